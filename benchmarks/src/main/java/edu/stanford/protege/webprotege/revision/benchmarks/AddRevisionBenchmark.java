@@ -0,0 +1,84 @@
+package edu.stanford.protege.webprotege.revision.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.UserId;
+import edu.stanford.protege.webprotege.revision.DurabilityMode;
+import edu.stanford.protege.webprotege.revision.Revision;
+import edu.stanford.protege.webprotege.revision.RevisionManagerImpl;
+import edu.stanford.protege.webprotege.revision.RevisionStoreImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of adding revisions from several threads to one project, under each durability mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AddRevisionBenchmark {
+
+    private static final int PREGENERATED_CHANGE_LISTS = 1024;
+
+    @Param({"10"})
+    public int changesPerRevision;
+
+    @Param({"ASYNC", "FSYNC", "GROUP_FSYNC"})
+    public DurabilityMode durabilityMode;
+
+    private BenchmarkProject project;
+
+    private RevisionStoreImpl revisionStore;
+
+    private RevisionManagerImpl revisionManager;
+
+    private final List<ImmutableList<OntologyChange>> changeLists = new ArrayList<>();
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int next = 0;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        project = BenchmarkProject.create(0, changesPerRevision);
+        var settings = BenchmarkProject.createSettings();
+        settings.setDurabilityMode(durabilityMode);
+        revisionStore = project.createRevisionStore(settings);
+        revisionStore.load();
+        revisionManager = new RevisionManagerImpl(revisionStore, settings);
+        changeLists.clear();
+        for(int i = 0; i < PREGENERATED_CHANGE_LISTS; i++) {
+            changeLists.add(project.getGenerator().nextChanges());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        revisionStore.dispose();
+        project.delete();
+    }
+
+    @Benchmark
+    public Revision addRevision(ThreadState threadState) {
+        var changes = changeLists.get(threadState.next++ % PREGENERATED_CHANGE_LISTS);
+        return revisionManager.addRevision(UserId.valueOf("benchmark"), changes, "Benchmark revision");
+    }
+
+    @Benchmark
+    public Revision addRevisionAndWaitUntilPersisted(ThreadState threadState) throws Exception {
+        var changes = changeLists.get(threadState.next++ % PREGENERATED_CHANGE_LISTS);
+        var revision = revisionManager.addRevision(UserId.valueOf("benchmark"), changes, "Benchmark revision");
+        revisionManager.whenPersisted(revision.getRevisionNumber()).get();
+        return revision;
+    }
+}
@@ -0,0 +1,105 @@
+package edu.stanford.protege.webprotege.revision.benchmarks;
+
+import edu.stanford.protege.webprotege.common.ProjectId;
+import edu.stanford.protege.webprotege.revision.ChangeHistoryFileFactory;
+import edu.stanford.protege.webprotege.revision.OntologyChangeRecordTranslatorImpl;
+import edu.stanford.protege.webprotege.revision.ProjectDirectoryFactory;
+import edu.stanford.protege.webprotege.revision.RevisionManagerSettings;
+import edu.stanford.protege.webprotege.revision.RevisionStoreImpl;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * A project, in a temporary data directory, with a generated change history.
+ */
+public class BenchmarkProject {
+
+    private static final long SEED = 20261017L;
+
+    private final Path dataDirectory;
+
+    private final ProjectId projectId = ProjectId.valueOf("6a3e9a8d-2c3b-4f0e-9d43-0b6e2c1f5a7e");
+
+    private final ChangeHistoryFileFactory changeHistoryFileFactory;
+
+    private final ChangeHistoryGenerator generator;
+
+    private BenchmarkProject(Path dataDirectory, ChangeHistoryGenerator generator) {
+        this.dataDirectory = dataDirectory;
+        this.changeHistoryFileFactory = new ChangeHistoryFileFactory(new ProjectDirectoryFactory(dataDirectory.toFile()));
+        this.generator = generator;
+    }
+
+    /**
+     * Creates a project with a generated change history.
+     * @param revisionCount The number of revisions in the history
+     * @param changesPerRevision The number of changes in each revision
+     */
+    @Nonnull
+    public static BenchmarkProject create(int revisionCount, int changesPerRevision) throws IOException {
+        var generator = new ChangeHistoryGenerator(SEED, revisionCount, changesPerRevision, ChangeHistoryGenerator.AxiomMix.defaultMix());
+        var project = new BenchmarkProject(Files.createTempDirectory("revision-benchmark"), generator);
+        if(revisionCount > 0) {
+            generator.writeHistory(project.getChangeHistoryFile(), revisionCount);
+        }
+        else {
+            project.getChangeHistoryFile().getParentFile().mkdirs();
+        }
+        return project;
+    }
+
+    /**
+     * Gets settings that do not write checkpoints, so that background checkpoint writing does not disturb
+     * measurements.
+     */
+    @Nonnull
+    public static RevisionManagerSettings createSettings() {
+        var settings = new RevisionManagerSettings();
+        settings.setCheckpointRevisionInterval(0);
+        settings.setCheckpointChangeInterval(0);
+        return settings;
+    }
+
+    @Nonnull
+    public RevisionStoreImpl createRevisionStore(@Nonnull RevisionManagerSettings settings) {
+        return new RevisionStoreImpl(projectId,
+                                     changeHistoryFileFactory,
+                                     new OWLDataFactoryImpl(),
+                                     new OntologyChangeRecordTranslatorImpl(),
+                                     settings);
+    }
+
+    @Nonnull
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+
+    @Nonnull
+    public ChangeHistoryFileFactory getChangeHistoryFileFactory() {
+        return changeHistoryFileFactory;
+    }
+
+    @Nonnull
+    public ChangeHistoryGenerator getGenerator() {
+        return generator;
+    }
+
+    @Nonnull
+    public File getChangeHistoryFile() {
+        return changeHistoryFileFactory.getChangeHistoryFile(projectId);
+    }
+
+    public void delete() throws IOException {
+        try(var paths = Files.walk(dataDirectory)) {
+            for(var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package edu.stanford.protege.webprotege.revision.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.change.RemoveAxiomChange;
+import edu.stanford.protege.webprotege.common.UserId;
+import edu.stanford.protege.webprotege.revision.ChangeLogIndex;
+import edu.stanford.protege.webprotege.revision.Revision;
+import edu.stanford.protege.webprotege.revision.RevisionNumber;
+import edu.stanford.protege.webprotege.revision.RevisionSerializationTask;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic, but reproducible, change histories.  Revisions add declarations, subclass axioms and label
+ * annotation assertions over a vocabulary of classes, in proportions given by an {@link AxiomMix}, and some changes
+ * remove axioms that were added earlier.  The same seed and parameters always produce the same history.
+ */
+public class ChangeHistoryGenerator {
+
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private static final UserId[] USERS = {
+            UserId.valueOf("alice"),
+            UserId.valueOf("bob"),
+            UserId.valueOf("carol"),
+            UserId.valueOf("dave")
+    };
+
+    /**
+     * The proportions of the kinds of change that are generated.  Changes that are not subclass axioms, annotation
+     * assertions or removals add declarations.
+     * @param subClassOf The proportion of changes that add subclass axioms
+     * @param annotationAssertion The proportion of changes that add label annotation assertions
+     * @param removal The proportion of changes that remove a previously added axiom
+     */
+    public record AxiomMix(double subClassOf, double annotationAssertion, double removal) {
+
+        public static AxiomMix defaultMix() {
+            return new AxiomMix(0.4, 0.3, 0.05);
+        }
+    }
+
+    private final OWLDataFactory dataFactory = new OWLDataFactoryImpl();
+
+    private final OWLOntologyID ontologyId = new OWLOntologyID(IRI.create("http://example.org/benchmark"));
+
+    private final Random random;
+
+    private final int changesPerRevision;
+
+    private final int vocabularySize;
+
+    @Nonnull
+    private final AxiomMix axiomMix;
+
+    private final List<OWLAxiom> addedAxioms = new ArrayList<>();
+
+    /**
+     * @param seed The seed for the history
+     * @param expectedRevisionCount The number of revisions that are expected to be generated.  This determines the
+     *                              size of the class vocabulary.
+     * @param changesPerRevision The number of changes in each revision
+     * @param axiomMix The proportions of the kinds of change that are generated
+     */
+    public ChangeHistoryGenerator(long seed,
+                                  int expectedRevisionCount,
+                                  int changesPerRevision,
+                                  @Nonnull AxiomMix axiomMix) {
+        this.random = new Random(seed);
+        this.changesPerRevision = changesPerRevision;
+        this.vocabularySize = Math.max(16, expectedRevisionCount * changesPerRevision / 4);
+        this.axiomMix = axiomMix;
+    }
+
+    /**
+     * Generates the next revision of the history.
+     * @param revisionNumber The number of the revision
+     */
+    @Nonnull
+    public synchronized Revision nextRevision(@Nonnull RevisionNumber revisionNumber) {
+        return new Revision(USERS[random.nextInt(USERS.length)],
+                            revisionNumber,
+                            nextChanges(),
+                            revisionNumber.getValue() * 1000,
+                            "Revision " + revisionNumber.getValue());
+    }
+
+    /**
+     * Generates the changes for a revision.
+     */
+    @Nonnull
+    public synchronized ImmutableList<OntologyChange> nextChanges() {
+        var changes = ImmutableList.<OntologyChange>builder();
+        for(int i = 0; i < changesPerRevision; i++) {
+            changes.add(nextChange());
+        }
+        return changes.build();
+    }
+
+    private OntologyChange nextChange() {
+        var p = random.nextDouble();
+        if(p < axiomMix.removal() && !addedAxioms.isEmpty()) {
+            var removed = addedAxioms.remove(random.nextInt(addedAxioms.size()));
+            return RemoveAxiomChange.of(ontologyId, removed);
+        }
+        p -= axiomMix.removal();
+        OWLAxiom axiom;
+        if(p < axiomMix.subClassOf()) {
+            axiom = dataFactory.getOWLSubClassOfAxiom(nextClass(), nextClass());
+        }
+        else if(p < axiomMix.subClassOf() + axiomMix.annotationAssertion()) {
+            var cls = nextClass();
+            axiom = dataFactory.getOWLAnnotationAssertionAxiom(dataFactory.getRDFSLabel(),
+                                                               cls.getIRI(),
+                                                               dataFactory.getOWLLiteral("Label " + random.nextInt(vocabularySize), "en"));
+        }
+        else {
+            axiom = dataFactory.getOWLDeclarationAxiom(nextClass());
+        }
+        addedAxioms.add(axiom);
+        return AddAxiomChange.of(ontologyId, axiom);
+    }
+
+    private OWLClass nextClass() {
+        return dataFactory.getOWLClass(IRI.create("http://example.org/benchmark/C" + random.nextInt(vocabularySize)));
+    }
+
+    /**
+     * Writes a history of the specified number of revisions to the specified change history file, along with its
+     * change log index.
+     */
+    public void writeHistory(@Nonnull File changeHistoryFile, int revisionCount) throws IOException {
+        changeHistoryFile.getParentFile().mkdirs();
+        var changeLogIndex = ChangeLogIndex.open(changeHistoryFile);
+        var batch = new ArrayList<Revision>(WRITE_BATCH_SIZE);
+        for(int i = 1; i <= revisionCount; i++) {
+            batch.add(nextRevision(RevisionNumber.getRevisionNumber(i)));
+            if(batch.size() == WRITE_BATCH_SIZE || i == revisionCount) {
+                new RevisionSerializationTask(changeHistoryFile, batch, changeLogIndex).call();
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package edu.stanford.protege.webprotege.revision.benchmarks;
+
+import edu.stanford.protege.webprotege.revision.RevisionNumber;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to load a change history with each loading strategy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LoadBenchmark {
+
+    @Param({"1000", "10000"})
+    public int revisionCount;
+
+    @Param({"10", "100"})
+    public int changesPerRevision;
+
+    @Param({"EAGER", "LAZY", "PARALLEL"})
+    public String loading;
+
+    private BenchmarkProject project;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = BenchmarkProject.create(revisionCount, changesPerRevision);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.delete();
+    }
+
+    @Benchmark
+    public RevisionNumber load() {
+        var settings = BenchmarkProject.createSettings();
+        settings.setLazyChangeLoading(loading.equals("LAZY"));
+        settings.setParallelLoading(loading.equals("PARALLEL"));
+        var revisionStore = project.createRevisionStore(settings);
+        try {
+            revisionStore.load();
+            return revisionStore.getCurrentRevisionNumber();
+        } finally {
+            revisionStore.dispose();
+        }
+    }
+}
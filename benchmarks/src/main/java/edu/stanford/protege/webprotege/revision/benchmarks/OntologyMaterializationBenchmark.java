@@ -0,0 +1,67 @@
+package edu.stanford.protege.webprotege.revision.benchmarks;
+
+import edu.stanford.protege.webprotege.revision.RevisionManagerImpl;
+import edu.stanford.protege.webprotege.revision.RevisionNumber;
+import edu.stanford.protege.webprotege.revision.RevisionStoreImpl;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the materialization of ontologies at revisions at various depths of a change history.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OntologyMaterializationBenchmark {
+
+    @Param({"5000"})
+    public int revisionCount;
+
+    @Param({"10"})
+    public int changesPerRevision;
+
+    /**
+     * The depth of the materialized revision, as a fraction of the revision count
+     */
+    @Param({"0.1", "0.5", "1.0"})
+    public double depth;
+
+    @Param({"false", "true"})
+    public boolean maintainHeadOntology;
+
+    private BenchmarkProject project;
+
+    private RevisionStoreImpl revisionStore;
+
+    private RevisionManagerImpl revisionManager;
+
+    private RevisionNumber revisionNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = BenchmarkProject.create(revisionCount, changesPerRevision);
+        var settings = BenchmarkProject.createSettings();
+        settings.setMaintainHeadOntology(maintainHeadOntology);
+        revisionStore = project.createRevisionStore(settings);
+        revisionStore.load();
+        revisionManager = new RevisionManagerImpl(revisionStore, settings);
+        revisionNumber = RevisionNumber.getRevisionNumber(Math.max(1, Math.round(revisionCount * depth)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        revisionStore.dispose();
+        project.delete();
+    }
+
+    @Benchmark
+    public OWLOntologyManager getOntologyManagerForRevision() {
+        return revisionManager.getOntologyManagerForRevision(revisionNumber);
+    }
+}
@@ -0,0 +1,72 @@
+package edu.stanford.protege.webprotege.revision.benchmarks;
+
+import edu.stanford.protege.webprotege.revision.HeadRevisionNumberFinder;
+import edu.stanford.protege.webprotege.revision.Revision;
+import edu.stanford.protege.webprotege.revision.RevisionNumber;
+import edu.stanford.protege.webprotege.revision.RevisionStoreImpl;
+import edu.stanford.protege.webprotege.revision.RevisionSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reads of revisions, revision summaries and the head revision number from a loaded store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReadBenchmark {
+
+    @Param({"10000"})
+    public int revisionCount;
+
+    @Param({"10"})
+    public int changesPerRevision;
+
+    @Param({"false", "true"})
+    public boolean lazyChangeLoading;
+
+    private BenchmarkProject project;
+
+    private RevisionStoreImpl revisionStore;
+
+    private HeadRevisionNumberFinder headRevisionNumberFinder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = BenchmarkProject.create(revisionCount, changesPerRevision);
+        var settings = BenchmarkProject.createSettings();
+        settings.setLazyChangeLoading(lazyChangeLoading);
+        revisionStore = project.createRevisionStore(settings);
+        revisionStore.load();
+        headRevisionNumberFinder = new HeadRevisionNumberFinder(project.getChangeHistoryFileFactory());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        revisionStore.dispose();
+        project.delete();
+    }
+
+    @Benchmark
+    public Revision getRevision() {
+        var revisionNumber = RevisionNumber.getRevisionNumber(ThreadLocalRandom.current().nextInt(1, revisionCount + 1));
+        return revisionStore.getRevision(revisionNumber).orElseThrow();
+    }
+
+    @Benchmark
+    public List<RevisionSummary> getRevisionSummaries() {
+        return revisionStore.getRevisionSummaries();
+    }
+
+    @Benchmark
+    public RevisionNumber getHeadRevisionNumber() throws IOException {
+        return headRevisionNumberFinder.getHeadRevisionNumber(project.getProjectId());
+    }
+}
@@ -0,0 +1,91 @@
+package edu.stanford.protege.webprotege.revision;
+
+import javax.annotation.Nonnull;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A list that only supports appending, and that can produce immutable snapshots of itself in constant time.
+ * Elements are stored in fixed size chunks.  Appending never moves or overwrites an element, so a snapshot can
+ * share the chunks with the list and simply record the size at the time it was taken.  Appending is amortized
+ * constant time because only the (small) chunk directory is ever copied.
+ * <p>
+ * This class is not thread safe.  Appends must be externally synchronized, and snapshots must be published to other
+ * threads safely, for example by taking them while holding the lock that guards appends.  Once published, a snapshot
+ * is immutable and may be read concurrently with appends to the list that it was taken from.
+ * </p>
+ */
+final class AppendOnlyList<E> {
+
+    private static final int CHUNK_SHIFT = 10;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Object[][] chunks = new Object[4][];
+
+    private int size = 0;
+
+    public void add(@Nonnull E element) {
+        checkNotNull(element);
+        var chunkIndex = size >>> CHUNK_SHIFT;
+        if(chunkIndex == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if(chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new Object[CHUNK_SIZE];
+        }
+        chunks[chunkIndex][size & CHUNK_MASK] = element;
+        size++;
+    }
+
+    public void addAll(@Nonnull Iterable<? extends E> elements) {
+        elements.forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets an immutable snapshot of the current contents of this list.  This takes constant time.
+     */
+    @Nonnull
+    public List<E> snapshot() {
+        return new Snapshot<>(chunks, size);
+    }
+
+    private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+
+        private final Object[][] chunks;
+
+        private final int size;
+
+        private Snapshot(Object[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E get(int index) {
+            checkElementIndex(index, size);
+            return (E) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
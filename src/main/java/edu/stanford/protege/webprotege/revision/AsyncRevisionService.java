@@ -0,0 +1,272 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.ProjectId;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An asynchronous facade over the revision managers in a {@link RevisionStoreRegistry}.  Each operation obtains the
+ * revision manager for the project, which opens and loads the project if it is not open, and runs the operation on
+ * an executor, so that callers are not blocked by loading, by materializing ontologies or by waiting for revisions
+ * to be written to storage.  The project is leased from the registry while the operation runs, so it is not
+ * evicted part way through an operation.
+ * <p>
+ * By default operations run on virtual threads if the Java runtime supports them (Java 21 and later), and otherwise
+ * on a fixed pool of daemon threads that is sized by {@link RevisionManagerSettings#getAsyncParallelism()}.  The
+ * operations block on locks and on I/O, so virtual threads let many of them wait without each holding a platform
+ * thread.
+ * </p>
+ * <p>
+ * The future of an operation that has not started when the service is disposed of, or that is submitted afterwards,
+ * is completed exceptionally with a {@link CancellationException}.
+ * </p>
+ */
+public class AsyncRevisionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncRevisionService.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    @Nonnull
+    private final RevisionStoreRegistry revisionStoreRegistry;
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    public AsyncRevisionService(@Nonnull RevisionStoreRegistry revisionStoreRegistry) {
+        this(revisionStoreRegistry, new RevisionManagerSettings());
+    }
+
+    @Inject
+    public AsyncRevisionService(@Nonnull RevisionStoreRegistry revisionStoreRegistry,
+                                @Nonnull RevisionManagerSettings settings) {
+        this(revisionStoreRegistry, newDefaultExecutor(settings.getAsyncParallelism()));
+    }
+
+    public AsyncRevisionService(@Nonnull RevisionStoreRegistry revisionStoreRegistry,
+                                @Nonnull ExecutorService executor) {
+        this.revisionStoreRegistry = checkNotNull(revisionStoreRegistry);
+        this.executor = checkNotNull(executor);
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread, if the Java runtime supports virtual threads,
+     * or otherwise on a fixed pool of daemon threads.
+     * @param parallelism The number of threads in the fixed pool.  Zero means the number of available processors.
+     */
+    @Nonnull
+    public static ExecutorService newDefaultExecutor(int parallelism) {
+        checkArgument(parallelism >= 0, "parallelism must not be negative");
+        try {
+            // Looked up reflectively so that this compiles, and runs, on Java 17
+            var factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch(ReflectiveOperationException e) {
+            var threadCount = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+            logger.info("Virtual threads are not available.  Asynchronous revision operations will run on a pool of {} threads.", threadCount);
+            return Executors.newFixedThreadPool(threadCount, runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName(thread.getName().replace("thread", "async-revision-thread"));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Adds a revision to the specified project.
+     * @return A future that completes with the revision once it has been added.  The revision may not have been
+     * written to storage yet.
+     * @see RevisionManager#addRevision(UserId, List, String)
+     */
+    @Nonnull
+    public CompletableFuture<Revision> addRevision(@Nonnull ProjectId projectId,
+                                                   @Nonnull UserId userId,
+                                                   @Nonnull List<OntologyChange> changes,
+                                                   @Nonnull String description) {
+        return supply(projectId, revisionManager -> revisionManager.addRevision(userId, changes, description));
+    }
+
+    /**
+     * Adds a revision for each of the specified requests to the specified project as a single unit.
+     * @return A future that completes with the revisions once they have been added
+     * @see RevisionManager#addRevisions(List)
+     */
+    @Nonnull
+    public CompletableFuture<ImmutableList<Revision>> addRevisions(@Nonnull ProjectId projectId,
+                                                                   @Nonnull List<RevisionRequest> requests) {
+        return supply(projectId, revisionManager -> revisionManager.addRevisions(requests));
+    }
+
+    /**
+     * Adds a revision to the specified project and waits for it to be written to storage, as determined by the
+     * {@link DurabilityMode}.
+     * @return A future that completes with the revision once it has been persisted
+     */
+    @Nonnull
+    public CompletableFuture<Revision> addRevisionDurably(@Nonnull ProjectId projectId,
+                                                          @Nonnull UserId userId,
+                                                          @Nonnull List<OntologyChange> changes,
+                                                          @Nonnull String description) {
+        return supply(projectId, revisionManager -> {
+            var revision = revisionManager.addRevision(userId, changes, description);
+            return revisionManager.whenPersisted(revision.getRevisionNumber())
+                                  .thenApply(persistedRevisionNumber -> revision);
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Materializes the ontologies of the specified project at the specified revision.
+     * @see RevisionManager#getOntologyManagerForRevision(RevisionNumber)
+     */
+    @Nonnull
+    public CompletableFuture<OWLOntologyManager> getOntologyManagerForRevision(@Nonnull ProjectId projectId,
+                                                                              @Nonnull RevisionNumber revisionNumber) {
+        return supply(projectId, revisionManager -> revisionManager.getOntologyManagerForRevision(revisionNumber));
+    }
+
+    @Nonnull
+    public CompletableFuture<RevisionNumber> getCurrentRevision(@Nonnull ProjectId projectId) {
+        return supply(projectId, RevisionManager::getCurrentRevision);
+    }
+
+    @Nonnull
+    public CompletableFuture<Optional<Revision>> getRevision(@Nonnull ProjectId projectId,
+                                                             @Nonnull RevisionNumber revisionNumber) {
+        return supply(projectId, revisionManager -> revisionManager.getRevision(revisionNumber));
+    }
+
+    @Nonnull
+    public CompletableFuture<ImmutableList<Revision>> getRevisions(@Nonnull ProjectId projectId) {
+        return supply(projectId, RevisionManager::getRevisions);
+    }
+
+    @Nonnull
+    public CompletableFuture<List<RevisionSummary>> getRevisionSummaries(@Nonnull ProjectId projectId) {
+        return supply(projectId, RevisionManager::getRevisionSummaries);
+    }
+
+    @Nonnull
+    public CompletableFuture<RevisionSummaryPage> getRevisionSummaryPage(@Nonnull ProjectId projectId,
+                                                                        @Nonnull RevisionNumber cursor,
+                                                                        int pageSize) {
+        return supply(projectId, revisionManager -> revisionManager.getRevisionSummaryPage(cursor, pageSize));
+    }
+
+    @Nonnull
+    public CompletableFuture<RevisionDiff> getNetChanges(@Nonnull ProjectId projectId,
+                                                         @Nonnull RevisionNumber fromRevision,
+                                                         @Nonnull RevisionNumber toRevision) {
+        return supply(projectId, revisionManager -> revisionManager.getNetChanges(fromRevision, toRevision));
+    }
+
+    @Nonnull
+    public CompletableFuture<RevisionNumber> getRevisionAt(@Nonnull ProjectId projectId,
+                                                           @Nonnull Instant instant) {
+        return supply(projectId, revisionManager -> revisionManager.getRevisionAt(instant));
+    }
+
+    @Nonnull
+    public CompletableFuture<List<UserContribution>> getContributions(@Nonnull ProjectId projectId) {
+        return supply(projectId, RevisionManager::getContributions);
+    }
+
+    private <T> CompletableFuture<T> supply(@Nonnull ProjectId projectId,
+                                            @Nonnull Function<RevisionManager, T> operation) {
+        checkNotNull(projectId);
+        var operationTask = new OperationTask<>(() -> revisionStoreRegistry.withRevisionManager(projectId, operation));
+        try {
+            executor.execute(operationTask);
+        } catch(RejectedExecutionException e) {
+            operationTask.cancel();
+        }
+        return operationTask.getFuture();
+    }
+
+    /**
+     * Stops accepting operations and waits for the operations that have been submitted to complete.  If they do not
+     * complete in time then the operations that are running are interrupted and the futures of the operations that
+     * have not started are completed exceptionally.
+     */
+    public void dispose() {
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for asynchronous revision operations to complete");
+                shutdownNow();
+            }
+        } catch(InterruptedException e) {
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting operations, interrupts the operations that are running, and completes the futures of the
+     * operations that have not started exceptionally.
+     */
+    public void shutdownNow() {
+        for(var unstartedTask : executor.shutdownNow()) {
+            if(unstartedTask instanceof OperationTask<?> operationTask) {
+                operationTask.cancel();
+            }
+        }
+    }
+
+    /**
+     * An operation along with the future that it completes.  The executor holds onto the task rather than onto a
+     * wrapper that it creates itself, so that the future of a task that never runs can be completed.
+     */
+    private static final class OperationTask<T> implements Runnable {
+
+        private final Supplier<T> operation;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private OperationTask(@Nonnull Supplier<T> operation) {
+            this.operation = operation;
+        }
+
+        @Nonnull
+        public CompletableFuture<T> getFuture() {
+            return future;
+        }
+
+        @Override
+        public void run() {
+            if(future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(operation.get());
+            } catch(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        public void cancel() {
+            future.completeExceptionally(new CancellationException("The asynchronous revision service has been shut down"));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Rewrites a change history file so that it starts with a {@link RevisionType#BASELINE} revision, which holds the
+ * net state of the ontologies at some revision, followed by the revisions after that revision (the tail).  The
+ * records in the tail are copied byte for byte from the existing change history file, so they are not decoded.
+ * <p>
+ * The compacted change history is written to a file next to the change history file and then moved over the change
+ * history file atomically, so readers see either the complete old history or the complete compacted history.  The
+ * old change history can optionally be copied to an archive directory before it is replaced.
+ * </p>
+ */
+final class ChangeHistoryCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeHistoryCompactor.class);
+
+    private static final String COMPACTING_FILE_SUFFIX = ".compacting";
+
+    @Nonnull
+    private final File changeHistoryFile;
+
+    public ChangeHistoryCompactor(@Nonnull File changeHistoryFile) {
+        this.changeHistoryFile = checkNotNull(changeHistoryFile);
+    }
+
+    /**
+     * Compacts the change history file.
+     * @param baseline The baseline revision.  Its revision number must be the revision number of the last revision
+     *                 that it replaces.
+     * @param indexEntries The change log index entries for every record in the change history file, in file order.
+     * @param archiveDirectory An optional directory that the old change history file is copied to before it is
+     *                         replaced.
+     * @return The change log index entries for the compacted change history file.
+     */
+    @Nonnull
+    public List<ChangeLogIndexEntry> compact(@Nonnull Revision baseline,
+                                             @Nonnull List<ChangeLogIndexEntry> indexEntries,
+                                             @Nullable Path archiveDirectory) throws IOException {
+        checkArgument(baseline.getRevisionType() == RevisionType.BASELINE, "The baseline revision must be of type BASELINE");
+        var baselineRevisionNumber = baseline.getRevisionNumber().getValue();
+        var tailEntries = indexEntries.stream()
+                                      .filter(entry -> entry.revisionNumber() > baselineRevisionNumber)
+                                      .toList();
+        var compactingFile = new File(changeHistoryFile.getParentFile(), changeHistoryFile.getName() + COMPACTING_FILE_SUFFIX);
+        Files.deleteIfExists(compactingFile.toPath());
+        try {
+            var baselineSerializationTask = new RevisionSerializationTask(compactingFile, baseline);
+            baselineSerializationTask.call();
+            var headerLength = baselineSerializationTask.getRecordsOffset();
+            var baselineEnd = compactingFile.length();
+            var compactedEntries = new ArrayList<ChangeLogIndexEntry>(tailEntries.size() + 1);
+            compactedEntries.add(new ChangeLogIndexEntry(baselineRevisionNumber, headerLength, baselineEnd - headerLength));
+            try(var targetChannel = FileChannel.open(compactingFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                if(!tailEntries.isEmpty()) {
+                    var tailStart = tailEntries.get(0).offset();
+                    var tailEnd = tailEntries.get(tailEntries.size() - 1).end();
+                    try(var sourceChannel = FileChannel.open(changeHistoryFile.toPath(), StandardOpenOption.READ)) {
+                        var position = tailStart;
+                        while(position < tailEnd) {
+                            var transferred = sourceChannel.transferTo(position, tailEnd - position, targetChannel);
+                            if(transferred <= 0) {
+                                throw new IOException(String.format("Could not copy the change history from offset %d.  The change history is shorter than its index.", position));
+                            }
+                            position += transferred;
+                        }
+                    }
+                    var shift = baselineEnd - tailStart;
+                    for(var entry : tailEntries) {
+                        compactedEntries.add(new ChangeLogIndexEntry(entry.revisionNumber(), entry.offset() + shift, entry.length()));
+                    }
+                }
+                targetChannel.force(true);
+            }
+            if(archiveDirectory != null && changeHistoryFile.exists()) {
+                archive(changeHistoryFile, archiveDirectory);
+            }
+            Files.move(compactingFile.toPath(), changeHistoryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return compactedEntries;
+        } finally {
+            Files.deleteIfExists(compactingFile.toPath());
+        }
+    }
+
+    /**
+     * Copies the specified file to the specified archive directory.  The name of the copy has the time of the copy
+     * appended to it.
+     */
+    static void archive(@Nonnull File file, @Nonnull Path archiveDirectory) throws IOException {
+        Files.createDirectories(archiveDirectory);
+        var archiveFile = archiveDirectory.resolve(file.getName() + "." + System.currentTimeMillis());
+        logger.info("Archiving change history {} to {}", file, archiveFile);
+        Files.copy(file.toPath(), archiveFile, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+}
@@ -0,0 +1,137 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.BinaryOWLVersion;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.binaryowl.stream.BinaryOWLOutputStream;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes change records, and reads the header that BinaryOWL writes at the start of a change log.  Individual change
+ * records in a change log are position independent, so any record (or run of records) can be decoded on its own by
+ * prefixing it with the header of the change log that it came from.
+ * <p>
+ * BinaryOWL does not expose the header format, so the header is read from the change log itself.  The first record
+ * is decoded and encoded again with {@link #encode(OntologyChangeRecordList)}, and the header is whatever precedes
+ * the encoded record.
+ * </p>
+ */
+final class ChangeLogHeader {
+
+    /**
+     * The BinaryOWL format version that change records are encoded with
+     */
+    static final BinaryOWLVersion VERSION = BinaryOWLVersion.getVersion(1);
+
+    private ChangeLogHeader() {
+    }
+
+    /**
+     * Encodes the specified change record list as it is encoded in a change log.
+     */
+    @Nonnull
+    static byte[] encode(@Nonnull OntologyChangeRecordList recordList) throws IOException {
+        var encodedRecord = new ByteArrayOutputStream();
+        recordList.write(new BinaryOWLOutputStream(new DataOutputStream(encodedRecord), VERSION));
+        return encodedRecord.toByteArray();
+    }
+
+    /**
+     * Reads the header of a change log.
+     * @param changeLog A stream that is positioned at the start of the change log.  The stream is read up to the end
+     *                  of the first record in the change log, and is not closed.
+     * @param dataFactory The data factory that is used to decode the first record
+     * @return The header bytes that precede the first record.  If the change log has no records then this is
+     * everything that was read from the stream.
+     * @throws IOException if the change log could not be read, or if the first record is not encoded as this class
+     * would encode it
+     */
+    @Nonnull
+    static byte[] read(@Nonnull InputStream changeLog, @Nonnull OWLDataFactory dataFactory) throws IOException {
+        var inputStream = new RecordingInputStream(changeLog);
+        var firstRecord = new OntologyChangeRecordList[1];
+        try {
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, dataFactory, (recordList, skipSetting, filePosition) -> {
+                firstRecord[0] = recordList;
+                throw new FirstRecordReadException();
+            }, SkipSetting.SKIP_NONE);
+        } catch(FirstRecordReadException e) {
+            // Expected.  Nothing after the first record is read.
+        }
+        var readBytes = inputStream.getRecordedBytes();
+        if(firstRecord[0] == null) {
+            return readBytes;
+        }
+        var encodedRecord = encode(firstRecord[0]);
+        var headerLength = readBytes.length - encodedRecord.length;
+        if(headerLength < 0 || !Arrays.equals(readBytes, headerLength, readBytes.length, encodedRecord, 0, encodedRecord.length)) {
+            throw new IOException("The first change record does not match its encoding.  The change log header cannot be determined.");
+        }
+        return Arrays.copyOf(readBytes, headerLength);
+    }
+
+    private static class FirstRecordReadException extends RuntimeException {
+
+        private FirstRecordReadException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Records the bytes that are read through it.
+     */
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private final ByteArrayOutputStream recordedBytes = new ByteArrayOutputStream();
+
+        private RecordingInputStream(@Nonnull InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = super.read();
+            if(b != -1) {
+                recordedBytes.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int off, int len) throws IOException {
+            var count = super.read(bytes, off, len);
+            if(count > 0) {
+                recordedBytes.write(bytes, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes are read so that they are recorded
+            var skipped = 0L;
+            while(skipped < n && read() != -1) {
+                skipped++;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private byte[] getRecordedBytes() {
+            return recordedBytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A persistent sidecar index for a change history file.  The index maps each revision number to the byte offset
+ * and length of the change record for that revision in the change history file, so that a single revision can be
+ * read with one positioned read rather than by parsing the whole change history file.
+ * <p>
+ * The index file consists of fixed width entries, each of which is a triple of longs (revision number, offset,
+ * length), in the order that the records appear in the change history file.  An index is only trustworthy if it
+ * covers the change history file exactly (see {@link #isConsistentWith(File)}).  Inconsistent indexes are rebuilt
+ * when the change history is loaded.
+ * </p>
+ */
+public class ChangeLogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogIndex.class);
+
+    private static final String INDEX_FILE_SUFFIX = ".index";
+
+    private static final int ENTRY_SIZE = 3 * Long.BYTES;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Nonnull
+    private final File indexFile;
+
+    private long[] revisionNumbers = new long[INITIAL_CAPACITY];
+
+    private long[] offsets = new long[INITIAL_CAPACITY];
+
+    private long[] lengths = new long[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    private ChangeLogIndex(@Nonnull File indexFile) {
+        this.indexFile = checkNotNull(indexFile);
+    }
+
+    /**
+     * Gets the sidecar index file for the specified change history file.
+     * @param changeHistoryFile The change history file.
+     * @return The index file, which lives next to the change history file.
+     */
+    @Nonnull
+    public static File getIndexFile(@Nonnull File changeHistoryFile) {
+        return new File(changeHistoryFile.getParentFile(), changeHistoryFile.getName() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Opens the index for the specified change history file.  If the index file does not exist, or cannot be
+     * read, then an empty index is returned.  The returned index is not necessarily consistent with the change
+     * history file.
+     * @param changeHistoryFile The change history file.
+     * @return The index.
+     */
+    @Nonnull
+    public static ChangeLogIndex open(@Nonnull File changeHistoryFile) {
+        var index = new ChangeLogIndex(getIndexFile(changeHistoryFile));
+        index.read();
+        return index;
+    }
+
+    /**
+     * Reads the last entry of the index for the specified change history file without reading the rest of the
+     * index.  The entry is only returned if it ends at the end of the change history file, that is, if the index
+     * covers the change history file.
+     * @param changeHistoryFile The change history file.
+     * @return The last entry, or empty if there is no index, the index is empty, or the index is stale.
+     */
+    @Nonnull
+    public static Optional<ChangeLogIndexEntry> readLastEntry(@Nonnull File changeHistoryFile) {
+        var indexFile = getIndexFile(changeHistoryFile);
+        if(!indexFile.exists() || !changeHistoryFile.exists()) {
+            return Optional.empty();
+        }
+        // A trailing partial entry, from an interrupted append, is ignored
+        var entryCount = indexFile.length() / ENTRY_SIZE;
+        if(entryCount == 0) {
+            return Optional.empty();
+        }
+        try(var file = new RandomAccessFile(indexFile, "r")) {
+            file.seek((entryCount - 1) * ENTRY_SIZE);
+            var entry = new ChangeLogIndexEntry(file.readLong(), file.readLong(), file.readLong());
+            if(entry.end() != changeHistoryFile.length()) {
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        } catch(IOException e) {
+            logger.warn("Could not read change log index {}.  Cause: {}", indexFile, e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    private synchronized void read() {
+        if(!indexFile.exists()) {
+            return;
+        }
+        // A trailing partial entry, from an interrupted append, is ignored
+        var entryCount = indexFile.length() / ENTRY_SIZE;
+        try(var inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            for(long i = 0; i < entryCount; i++) {
+                addToMemory(inputStream.readLong(), inputStream.readLong(), inputStream.readLong());
+            }
+        } catch(IOException e) {
+            logger.warn("Could not read change log index {}.  Cause: {}", indexFile, e.getMessage(), e);
+            size = 0;
+        }
+    }
+
+    /**
+     * Determines whether this index exactly covers the specified change history file.
+     * @param changeHistoryFile The change history file
+     * @return true if the last record in the index ends at the end of the change history file, otherwise false.
+     * An empty index is consistent with an empty, or non-existent, change history file.
+     */
+    public synchronized boolean isConsistentWith(@Nonnull File changeHistoryFile) {
+        var changeHistoryLength = changeHistoryFile.exists() ? changeHistoryFile.length() : 0;
+        if(size == 0) {
+            return changeHistoryLength == 0;
+        }
+        return offsets[size - 1] + lengths[size - 1] == changeHistoryLength;
+    }
+
+    /**
+     * Adds an entry for a record that has just been appended to the change history file.  If the record does not
+     * immediately follow the last indexed record then the index is stale; it is cleared and will be rebuilt the next
+     * time that the change history is loaded.
+     * @param revisionNumber The revision number of the appended record
+     * @param offset The offset of the appended record
+     * @param length The length of the appended record
+     */
+    public synchronized void add(@Nonnull RevisionNumber revisionNumber, long offset, long length) throws IOException {
+        addAll(List.of(new ChangeLogIndexEntry(revisionNumber.getValue(), offset, length)));
+    }
+
+    /**
+     * Adds entries for records that have just been appended to the change history file, with a single write to
+     * the index file.  If the records do not immediately follow the last indexed record, or do not follow each other,
+     * then the index is stale; it is cleared and will be rebuilt the next time that the change history is loaded.
+     * If this index is empty then the records must be the first records in the change history file.
+     * @param entries The entries for the appended records, in the order that they appear in the change history file.
+     */
+    public synchronized void addAll(@Nonnull List<ChangeLogIndexEntry> entries) throws IOException {
+        if(entries.isEmpty()) {
+            return;
+        }
+        // The first record follows the change log header, whose length is only known to the writer
+        var expectedOffset = size == 0 ? entries.get(0).offset() : offsets[size - 1] + lengths[size - 1];
+        for(var entry : entries) {
+            if(entry.offset() != expectedOffset) {
+                if(size != 0) {
+                    logger.warn("Change log index {} is stale.  Discarding it.", indexFile);
+                    clear();
+                }
+                return;
+            }
+            expectedOffset = entry.end();
+        }
+        try(var outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)))) {
+            for(var entry : entries) {
+                writeEntry(outputStream, entry.revisionNumber(), entry.offset(), entry.length());
+            }
+        }
+        entries.forEach(entry -> addToMemory(entry.revisionNumber(), entry.offset(), entry.length()));
+    }
+
+    /**
+     * Replaces the contents of this index with the specified entries.  The index file is replaced atomically.
+     * @param entries The entries, in the order that they appear in the change history file.
+     */
+    public synchronized void replace(@Nonnull List<ChangeLogIndexEntry> entries) throws IOException {
+        var tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        try(var outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            for(var entry : entries) {
+                writeEntry(outputStream, entry.revisionNumber(), entry.offset(), entry.length());
+            }
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        size = 0;
+        entries.forEach(entry -> addToMemory(entry.revisionNumber(), entry.offset(), entry.length()));
+    }
+
+    /**
+     * Removes all entries from this index and deletes the index file.
+     */
+    public synchronized void clear() {
+        size = 0;
+        try {
+            Files.deleteIfExists(indexFile.toPath());
+        } catch(IOException e) {
+            logger.warn("Could not delete change log index {}.  Cause: {}", indexFile, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the index entry for the specified revision.
+     * @param revisionNumber The revision number.  The head revision number denotes the last indexed revision.
+     * @return The entry, or empty if this index does not contain an entry for the revision.
+     */
+    @Nonnull
+    public synchronized Optional<ChangeLogIndexEntry> getEntry(@Nonnull RevisionNumber revisionNumber) {
+        if(size == 0) {
+            return Optional.empty();
+        }
+        if(revisionNumber.isHead()) {
+            return Optional.of(getEntryAt(size - 1));
+        }
+        var position = Arrays.binarySearch(revisionNumbers, 0, size, revisionNumber.getValue());
+        if(position < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(getEntryAt(position));
+    }
+
+    /**
+     * Gets all of the entries in this index, in the order that the records appear in the change history file.
+     */
+    @Nonnull
+    public synchronized List<ChangeLogIndexEntry> getEntries() {
+        var entries = new ArrayList<ChangeLogIndexEntry>(size);
+        for(int i = 0; i < size; i++) {
+            entries.add(getEntryAt(i));
+        }
+        return entries;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    private ChangeLogIndexEntry getEntryAt(int position) {
+        return new ChangeLogIndexEntry(revisionNumbers[position], offsets[position], lengths[position]);
+    }
+
+    private void addToMemory(long revisionNumber, long offset, long length) {
+        if(size == revisionNumbers.length) {
+            var capacity = size * 2;
+            revisionNumbers = Arrays.copyOf(revisionNumbers, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        revisionNumbers[size] = revisionNumber;
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    private static void writeEntry(DataOutputStream outputStream,
+                                   long revisionNumber,
+                                   long offset,
+                                   long length) throws IOException {
+        outputStream.writeLong(revisionNumber);
+        outputStream.writeLong(offset);
+        outputStream.writeLong(length);
+    }
+}
@@ -0,0 +1,21 @@
+package edu.stanford.protege.webprotege.revision;
+
+/**
+ * The location of the change record for a single revision in a change history file.
+ * @param revisionNumber The revision number of the revision that the record holds.
+ * @param offset The byte offset of the record in the change history file.
+ * @param length The length of the record in bytes.
+ */
+public record ChangeLogIndexEntry(long revisionNumber, long offset, long length) {
+
+    /**
+     * Gets the byte offset of the first byte after the record
+     */
+    public long end() {
+        return offset + length;
+    }
+
+    public RevisionNumber getRevisionNumber() {
+        return RevisionNumber.getRevisionNumber(revisionNumber);
+    }
+}
@@ -0,0 +1,263 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads a change history file through memory mapped windows of the file, so that bytes are read from the page cache
+ * without being copied through an intermediate heap buffer.  The reader supports reading the complete file, for
+ * full loads and scans, and reading individual change records, or runs of consecutive change records, whose
+ * locations are obtained from a {@link ChangeLogIndex}.
+ * <p>
+ * Each stream over the file maps its own windows, of at most a fixed size, so that the address space that is used
+ * stays bounded no matter how large the file is, and so that streams that are read concurrently, for example by a
+ * {@link ParallelChangeLogLoader}, do not replace each other's windows.  Reading a record, or a run of records, maps
+ * just the region that the records occupy.  Change history files are only ever appended to, or replaced by moving a
+ * new file over them, so a mapped window is never invalidated by the file shrinking.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public class ChangeLogReader implements Closeable {
+
+    /**
+     * The default maximum size of the windows that the file is mapped in
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    @Nonnull
+    private final File changeHistoryFile;
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    private final int windowSize;
+
+    private FileChannel channel;
+
+    /**
+     * The header of the change history file, read when it is first needed
+     */
+    private byte[] header;
+
+    public ChangeLogReader(@Nonnull File changeHistoryFile,
+                           @Nonnull OWLDataFactory dataFactory) {
+        this(changeHistoryFile, dataFactory, DEFAULT_WINDOW_SIZE);
+    }
+
+    public ChangeLogReader(@Nonnull File changeHistoryFile,
+                           @Nonnull OWLDataFactory dataFactory,
+                           int windowSize) {
+        checkArgument(windowSize > 0, "The window size must be positive");
+        this.changeHistoryFile = checkNotNull(changeHistoryFile);
+        this.dataFactory = checkNotNull(dataFactory);
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Reads the change record described by the specified index entry.
+     * @param entry The index entry
+     * @return The change record list
+     */
+    @Nonnull
+    public OntologyChangeRecordList read(@Nonnull ChangeLogIndexEntry entry) throws IOException {
+        var recordLists = read(entry.offset(), entry.length());
+        if(recordLists.size() != 1) {
+            throw new IOException(String.format("Expected one change record at offset %d but found %d",
+                                                entry.offset(),
+                                                recordLists.size()));
+        }
+        return recordLists.get(0);
+    }
+
+    /**
+     * Reads the consecutive change records that occupy the specified region of the change history file.  The region
+     * must start at the beginning of a record and end at the end of a record.
+     * @param offset The offset of the first record
+     * @param length The total length of the records
+     * @return The change record lists in the order that they appear in the file
+     */
+    @Nonnull
+    public List<OntologyChangeRecordList> read(long offset, long length) throws IOException {
+        if(offset + length > getChannel().size()) {
+            throw new EOFException(String.format("Unexpected end of change history file %s", changeHistoryFile));
+        }
+        // Change records are position independent, so the region is read as a change log of its own
+        var inputStream = new SequenceInputStream(new ByteArrayInputStream(readHeader()),
+                                                  new MappedRegionInputStream(offset, offset + length));
+        var recordLists = new ArrayList<OntologyChangeRecordList>();
+        var changeLog = new BinaryOWLOntologyChangeLog();
+        changeLog.readChanges(inputStream,
+                              dataFactory,
+                              (recordList, skipSetting, filePosition) -> recordLists.add(recordList),
+                              SkipSetting.SKIP_NONE);
+        return recordLists;
+    }
+
+    /**
+     * Gets the length of the header at the start of the change history file.  This is the offset of the first change
+     * record in the file.
+     */
+    public int getHeaderLength() throws IOException {
+        return readHeader().length;
+    }
+
+    /**
+     * Gets the header at the start of the change history file.  The header is empty if nothing has been written to
+     * the file.
+     * @return A copy of the header bytes
+     */
+    @Nonnull
+    public byte[] getHeader() throws IOException {
+        return readHeader().clone();
+    }
+
+    private synchronized byte[] readHeader() throws IOException {
+        if(header == null) {
+            if(getChannel().size() == 0) {
+                // Nothing has been written yet, so there is no header
+                return new byte[0];
+            }
+            try(var inputStream = openInputStream()) {
+                header = ChangeLogHeader.read(inputStream, dataFactory);
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Opens a stream that reads the change history file, including its header, from the start of the file to the end
+     * of the file as it is when the stream is opened.
+     */
+    @Nonnull
+    public InputStream openInputStream() throws IOException {
+        return new MappedRegionInputStream(0, getChannel().size());
+    }
+
+    /**
+     * Maps a window of the file that starts at the specified position and that does not extend past the specified
+     * end position.  Must only be called for positions that are within the file.
+     */
+    private MappedByteBuffer mapWindow(long position, long end) throws IOException {
+        var windowLength = Math.min(windowSize, end - position);
+        return getChannel().map(FileChannel.MapMode.READ_ONLY, position, windowLength);
+    }
+
+    private synchronized FileChannel getChannel() throws IOException {
+        if(channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(changeHistoryFile.toPath(), StandardOpenOption.READ);
+        }
+        return channel;
+    }
+
+    /**
+     * Closes the change history file.  The file is reopened if it is read after it has been closed, so this is also
+     * used to pick up a change history file that has been replaced.  Streams that are open keep the windows that
+     * they have already mapped.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        header = null;
+        if(channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Reads a region of the change history file through mapped windows.  The stream maps its own windows, so it must
+     * only be read by one thread at a time, but different streams can be read concurrently.
+     */
+    private class MappedRegionInputStream extends InputStream {
+
+        private long position;
+
+        private final long end;
+
+        private ByteBuffer buffer;
+
+        private MappedRegionInputStream(long start, long end) {
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if(!ensureBuffer()) {
+                return -1;
+            }
+            position++;
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, bytes.length);
+            if(len == 0) {
+                return 0;
+            }
+            if(!ensureBuffer()) {
+                return -1;
+            }
+            var count = (int) Math.min(len, Math.min(buffer.remaining(), end - position));
+            buffer.get(bytes, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            var skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            if(buffer != null && skipped <= buffer.remaining()) {
+                buffer.position(buffer.position() + (int) skipped);
+            }
+            else {
+                // Map the new position lazily on the next read
+                buffer = null;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        /**
+         * Makes sure that the buffer has the byte at the current position.
+         * @return false if the end of the region has been reached
+         */
+        private boolean ensureBuffer() throws IOException {
+            if(position >= end) {
+                return false;
+            }
+            if(buffer == null || !buffer.hasRemaining()) {
+                buffer = mapWindow(position, end);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read only, block compressed, copy of the older part of a change history.  The change records are grouped, in
+ * revision order, into blocks that are compressed with {@link java.util.zip.Deflater}.  A block index at the end of
+ * the file records the range of revisions in each block, so a revision is read by decompressing only the block that
+ * contains it.  Change records are position independent, so a decompressed block is decoded by prefixing it with the
+ * header of the change history file that the records came from (see {@link ChangeLogHeader}), which is kept in the
+ * file.
+ * <p>
+ * The compressed change log lives next to the change history file, which holds the revisions that have been added
+ * since the change history was sealed (see {@link CompressedChangeLogConverter}).  The file has the layout:
+ * </p>
+ * <pre>
+ *     int magic, int version, int changeLogHeaderLength, byte[changeLogHeaderLength] changeLogHeader
+ *     compressed blocks
+ *     for each block: long firstRevision, long lastRevision, int recordCount, long offset,
+ *                     int compressedLength, int uncompressedLength
+ *     long blockIndexOffset, int blockCount, int magic
+ * </pre>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public class CompressedChangeLog {
+
+    static final int MAGIC = 0x57504243;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_LENGTH = 3 * Integer.BYTES;
+
+    static final int BLOCK_ENTRY_LENGTH = 3 * Long.BYTES + 3 * Integer.BYTES;
+
+    static final int FOOTER_LENGTH = Long.BYTES + 2 * Integer.BYTES;
+
+    private static final String COMPRESSED_FILE_SUFFIX = ".blocks";
+
+    /**
+     * Describes a compressed block of change records.
+     * @param firstRevisionNumber The revision number of the first record in the block
+     * @param lastRevisionNumber The revision number of the last record in the block
+     * @param recordCount The number of records in the block
+     * @param offset The offset of the compressed block in the file
+     * @param compressedLength The length of the compressed block
+     * @param uncompressedLength The length of the records in the block once they are decompressed
+     */
+    public record Block(long firstRevisionNumber,
+                        long lastRevisionNumber,
+                        int recordCount,
+                        long offset,
+                        int compressedLength,
+                        int uncompressedLength) {
+
+    }
+
+    @Nonnull
+    private final File compressedFile;
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    @Nonnull
+    private final ImmutableList<Block> blocks;
+
+    @Nonnull
+    private final byte[] changeLogHeader;
+
+    private FileChannel channel;
+
+    private int cachedBlockPosition = -1;
+
+    private List<OntologyChangeRecordList> cachedBlockRecords = List.of();
+
+    private CompressedChangeLog(@Nonnull File compressedFile,
+                                @Nonnull OWLDataFactory dataFactory,
+                                @Nonnull ImmutableList<Block> blocks,
+                                @Nonnull byte[] changeLogHeader) {
+        this.compressedFile = checkNotNull(compressedFile);
+        this.dataFactory = checkNotNull(dataFactory);
+        this.blocks = checkNotNull(blocks);
+        this.changeLogHeader = checkNotNull(changeLogHeader);
+    }
+
+    /**
+     * Gets the compressed change log file for the specified change history file.
+     */
+    @Nonnull
+    public static File getCompressedFile(@Nonnull File changeHistoryFile) {
+        return new File(changeHistoryFile.getParentFile(), changeHistoryFile.getName() + COMPRESSED_FILE_SUFFIX);
+    }
+
+    /**
+     * Opens the compressed change log for the specified change history file, if there is one.
+     * @param changeHistoryFile The change history file
+     * @param dataFactory The data factory that is used to decode change records
+     * @return The compressed change log, or empty if the change history has never been sealed
+     * @throws IOException if the compressed change log exists but cannot be read
+     */
+    @Nonnull
+    public static Optional<CompressedChangeLog> openIfExists(@Nonnull File changeHistoryFile,
+                                                             @Nonnull OWLDataFactory dataFactory) throws IOException {
+        var compressedFile = getCompressedFile(changeHistoryFile);
+        if(!compressedFile.exists()) {
+            return Optional.empty();
+        }
+        return Optional.of(read(compressedFile, dataFactory));
+    }
+
+    private static CompressedChangeLog read(@Nonnull File compressedFile,
+                                            @Nonnull OWLDataFactory dataFactory) throws IOException {
+        try(var channel = FileChannel.open(compressedFile.toPath(), StandardOpenOption.READ)) {
+            var fileLength = channel.size();
+            if(fileLength < HEADER_LENGTH + FOOTER_LENGTH) {
+                throw new IOException("Compressed change log " + compressedFile + " is truncated");
+            }
+            var header = readFully(channel, 0, HEADER_LENGTH);
+            if(header.getInt() != MAGIC) {
+                throw new IOException(compressedFile + " is not a compressed change log");
+            }
+            var version = header.getInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported compressed change log version " + version + " in " + compressedFile);
+            }
+            var changeLogHeaderLength = header.getInt();
+            if(changeLogHeaderLength < 0 || HEADER_LENGTH + changeLogHeaderLength > fileLength - FOOTER_LENGTH) {
+                throw new IOException("Compressed change log " + compressedFile + " has a corrupt header");
+            }
+            var changeLogHeader = readFully(channel, HEADER_LENGTH, changeLogHeaderLength).array();
+            var footer = readFully(channel, fileLength - FOOTER_LENGTH, FOOTER_LENGTH);
+            var blockIndexOffset = footer.getLong();
+            var blockCount = footer.getInt();
+            if(footer.getInt() != MAGIC || blockIndexOffset + (long) blockCount * BLOCK_ENTRY_LENGTH != fileLength - FOOTER_LENGTH) {
+                throw new IOException("Compressed change log " + compressedFile + " has a corrupt block index");
+            }
+            var blockIndex = readFully(channel, blockIndexOffset, blockCount * BLOCK_ENTRY_LENGTH);
+            var blocks = ImmutableList.<Block>builderWithExpectedSize(blockCount);
+            for(int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(blockIndex.getLong(),
+                                     blockIndex.getLong(),
+                                     blockIndex.getInt(),
+                                     blockIndex.getLong(),
+                                     blockIndex.getInt(),
+                                     blockIndex.getInt()));
+            }
+            return new CompressedChangeLog(compressedFile, dataFactory, blocks.build(), changeLogHeader);
+        }
+    }
+
+    private static ByteBuffer readFully(@Nonnull FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of compressed change log");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Nonnull
+    public File getFile() {
+        return compressedFile;
+    }
+
+    @Nonnull
+    public ImmutableList<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Gets the number of the last revision in this compressed change log.
+     * @return The revision number, or zero if this log is empty
+     */
+    @Nonnull
+    public RevisionNumber getLastRevisionNumber() {
+        if(blocks.isEmpty()) {
+            return RevisionNumber.getRevisionNumber(0);
+        }
+        return RevisionNumber.getRevisionNumber(blocks.get(blocks.size() - 1).lastRevisionNumber());
+    }
+
+    /**
+     * Determines whether the specified revision falls within the range of revisions in this compressed change log.
+     * The head revision number is never contained.
+     */
+    public boolean contains(@Nonnull RevisionNumber revisionNumber) {
+        return !revisionNumber.isHead()
+                && !blocks.isEmpty()
+                && revisionNumber.getValue() >= blocks.get(0).firstRevisionNumber()
+                && revisionNumber.getValue() <= blocks.get(blocks.size() - 1).lastRevisionNumber();
+    }
+
+    /**
+     * Reads the change record for the specified revision.  Only the block that contains the revision is
+     * decompressed.  The most recently decompressed block is retained, so reading consecutive revisions decompresses
+     * each block once.
+     * @return The change record list, or empty if this log does not contain the revision
+     */
+    @Nonnull
+    public synchronized Optional<OntologyChangeRecordList> read(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        var blockPosition = getBlockPosition(revisionNumber.getValue());
+        if(blockPosition < 0) {
+            return Optional.empty();
+        }
+        if(blockPosition != cachedBlockPosition) {
+            cachedBlockRecords = readBlock(blocks.get(blockPosition));
+            cachedBlockPosition = blockPosition;
+        }
+        return cachedBlockRecords.stream()
+                                 .filter(recordList -> RevisionDecoder.getRevisionNumber(recordList).equals(revisionNumber))
+                                 .findFirst();
+    }
+
+    private int getBlockPosition(long revisionNumber) {
+        var low = 0;
+        var high = blocks.size() - 1;
+        while(low <= high) {
+            var mid = (low + high) >>> 1;
+            var block = blocks.get(mid);
+            if(block.lastRevisionNumber() < revisionNumber) {
+                low = mid + 1;
+            }
+            else if(block.firstRevisionNumber() > revisionNumber) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decompresses and decodes the change records in the specified block.
+     * @return The change record lists in revision order
+     */
+    @Nonnull
+    public List<OntologyChangeRecordList> readBlock(@Nonnull Block block) throws IOException {
+        var compressed = readFully(getChannel(), block.offset(), block.compressedLength());
+        var header = changeLogHeader;
+        var records = new byte[header.length + block.uncompressedLength()];
+        System.arraycopy(header, 0, records, 0, header.length);
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            var position = header.length;
+            while(position < records.length) {
+                var inflated = inflater.inflate(records, position, records.length - position);
+                if(inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Compressed block at offset " + block.offset() + " is truncated");
+                }
+                position += inflated;
+            }
+        } catch(DataFormatException e) {
+            throw new IOException("Compressed block at offset " + block.offset() + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        var recordLists = new ArrayList<OntologyChangeRecordList>(block.recordCount());
+        new BinaryOWLOntologyChangeLog().readChanges(new ByteArrayInputStream(records),
+                                                     dataFactory,
+                                                     (recordList, skipSetting, filePosition) -> recordLists.add(recordList),
+                                                     SkipSetting.SKIP_NONE);
+        if(recordLists.size() != block.recordCount()) {
+            throw new IOException(String.format("Expected %d change records in the block at offset %d but found %d",
+                                                block.recordCount(),
+                                                block.offset(),
+                                                recordLists.size()));
+        }
+        return recordLists;
+    }
+
+    private synchronized FileChannel getChannel() throws IOException {
+        if(channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(compressedFile.toPath(), StandardOpenOption.READ);
+        }
+        return channel;
+    }
+
+    /**
+     * Closes the file that blocks are read from.  The file is reopened if further blocks are read.
+     */
+    public synchronized void close() throws IOException {
+        cachedBlockPosition = -1;
+        cachedBlockRecords = List.of();
+        if(channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Closes and deletes this compressed change log.
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(compressedFile.toPath());
+    }
+}
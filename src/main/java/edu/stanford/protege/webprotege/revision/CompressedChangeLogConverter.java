@@ -0,0 +1,249 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.io.CountingInputStream;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Converts a change history file into the block compressed format of {@link CompressedChangeLog}.  The records in
+ * the change history file are appended, as compressed blocks, to the existing compressed change log for the change
+ * history, if there is one, and the change history file is then removed.  New revisions continue to be appended to
+ * a fresh change history file, so a change history can be sealed repeatedly as it grows.
+ * <p>
+ * The compressed change log is written to a temporary file and moved into place atomically.  If the process stops
+ * after the move but before the change history file is removed then the revisions in the change history file are
+ * also in the compressed change log, and they are ignored when the change history is loaded.
+ * </p>
+ */
+public class CompressedChangeLogConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressedChangeLogConverter.class);
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    private final int blockSize;
+
+    /**
+     * @param dataFactory The data factory that is used to decode change records
+     * @param blockSize The uncompressed size, in bytes, that blocks are filled to.  A block holds at least one record.
+     */
+    public CompressedChangeLogConverter(@Nonnull OWLDataFactory dataFactory, int blockSize) {
+        checkArgument(blockSize > 0, "The block size must be positive");
+        this.dataFactory = checkNotNull(dataFactory);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Seals the specified change history file into its compressed change log.  The change history must not be
+     * written to while it is converted.
+     * @param changeHistoryFile The change history file
+     * @return The number of revisions that were added to the compressed change log
+     */
+    public int convert(@Nonnull File changeHistoryFile) throws IOException {
+        var existingLog = CompressedChangeLog.openIfExists(changeHistoryFile, dataFactory);
+        var sealedRevisionNumber = existingLog.map(CompressedChangeLog::getLastRevisionNumber)
+                                              .orElse(RevisionNumber.getRevisionNumber(0))
+                                              .getValue();
+        var entries = changeHistoryFile.exists() ? getIndexEntries(changeHistoryFile) : List.<ChangeLogIndexEntry>of();
+        var newEntries = entries.stream()
+                                .filter(entry -> entry.revisionNumber() > sealedRevisionNumber)
+                                .toList();
+        if(!newEntries.isEmpty()) {
+            var compressedFile = CompressedChangeLog.getCompressedFile(changeHistoryFile);
+            var tempFile = new File(compressedFile.getParentFile(), compressedFile.getName() + TEMP_FILE_SUFFIX);
+            try {
+                if(existingLog.isPresent()) {
+                    writeCompressedLog(tempFile, changeHistoryFile, existingLog.get().getFile(), existingLog.get().getBlocks(), newEntries);
+                    existingLog.get().close();
+                }
+                else {
+                    writeCompressedLog(tempFile, changeHistoryFile, null, List.of(), newEntries);
+                }
+                Files.move(tempFile.toPath(), compressedFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // The compressed change log, and the move, must be on storage before the change history is removed
+                force(compressedFile.toPath());
+                force(compressedFile.getAbsoluteFile().getParentFile().toPath());
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+            logger.info("Sealed {} revisions of {} into {}", newEntries.size(), changeHistoryFile, compressedFile);
+        }
+        Files.deleteIfExists(changeHistoryFile.toPath());
+        Files.deleteIfExists(ChangeLogIndex.getIndexFile(changeHistoryFile).toPath());
+        return newEntries.size();
+    }
+
+    /**
+     * Gets the locations of the records in the change history file, from its index if the index covers the file,
+     * or otherwise by reading the file.
+     */
+    private List<ChangeLogIndexEntry> getIndexEntries(@Nonnull File changeHistoryFile) throws IOException {
+        var changeLogIndex = ChangeLogIndex.open(changeHistoryFile);
+        if(changeLogIndex.isConsistentWith(changeHistoryFile)) {
+            return changeLogIndex.getEntries();
+        }
+        var entries = new ArrayList<ChangeLogIndexEntry>();
+        try(var changeLogReader = new ChangeLogReader(changeHistoryFile, dataFactory);
+            var inputStream = new CountingInputStream(changeLogReader.openInputStream())) {
+            var recordOffset = new long[]{changeLogReader.getHeaderLength()};
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
+                var recordEnd = inputStream.getCount();
+                entries.add(new ChangeLogIndexEntry(RevisionDecoder.getRevisionNumber(changeRecordList).getValue(),
+                                                    recordOffset[0],
+                                                    recordEnd - recordOffset[0]));
+                recordOffset[0] = recordEnd;
+            }, SkipSetting.SKIP_NONE);
+        }
+        return entries;
+    }
+
+    private void writeCompressedLog(@Nonnull File targetFile,
+                                    @Nonnull File changeHistoryFile,
+                                    @Nullable File existingFile,
+                                    @Nonnull List<CompressedChangeLog.Block> existingBlocks,
+                                    @Nonnull List<ChangeLogIndexEntry> newEntries) throws IOException {
+        byte[] changeLogHeader;
+        try(var changeLogReader = new ChangeLogReader(changeHistoryFile, dataFactory)) {
+            changeLogHeader = changeLogReader.getHeader();
+        }
+        var blocks = new ArrayList<CompressedChangeLog.Block>();
+        try(var targetChannel = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Blocks are decoded with the change history header, which is the same for every change history file
+            var header = ByteBuffer.allocate(CompressedChangeLog.HEADER_LENGTH + changeLogHeader.length)
+                                   .putInt(CompressedChangeLog.MAGIC)
+                                   .putInt(CompressedChangeLog.VERSION)
+                                   .putInt(changeLogHeader.length)
+                                   .put(changeLogHeader)
+                                   .flip();
+            writeFully(targetChannel, header);
+            if(existingFile != null) {
+                // Existing blocks are copied without being decompressed
+                try(var existingChannel = FileChannel.open(existingFile.toPath(), StandardOpenOption.READ)) {
+                    for(var block : existingBlocks) {
+                        var offset = targetChannel.position();
+                        transferFully(existingChannel, block.offset(), block.compressedLength(), targetChannel);
+                        blocks.add(new CompressedChangeLog.Block(block.firstRevisionNumber(),
+                                                                 block.lastRevisionNumber(),
+                                                                 block.recordCount(),
+                                                                 offset,
+                                                                 block.compressedLength(),
+                                                                 block.uncompressedLength()));
+                    }
+                }
+            }
+            try(var sourceChannel = FileChannel.open(changeHistoryFile.toPath(), StandardOpenOption.READ)) {
+                var blockStart = 0;
+                while(blockStart < newEntries.size()) {
+                    var blockEnd = blockStart + 1;
+                    var uncompressedLength = newEntries.get(blockStart).length();
+                    while(blockEnd < newEntries.size() && uncompressedLength + newEntries.get(blockEnd).length() <= blockSize) {
+                        uncompressedLength += newEntries.get(blockEnd).length();
+                        blockEnd++;
+                    }
+                    checkArgument(uncompressedLength <= Integer.MAX_VALUE, "Change record is too large to compress");
+                    var firstEntry = newEntries.get(blockStart);
+                    var lastEntry = newEntries.get(blockEnd - 1);
+                    var compressed = compress(sourceChannel, firstEntry.offset(), (int) uncompressedLength);
+                    var offset = targetChannel.position();
+                    writeFully(targetChannel, ByteBuffer.wrap(compressed));
+                    blocks.add(new CompressedChangeLog.Block(firstEntry.revisionNumber(),
+                                                             lastEntry.revisionNumber(),
+                                                             blockEnd - blockStart,
+                                                             offset,
+                                                             compressed.length,
+                                                             (int) uncompressedLength));
+                    blockStart = blockEnd;
+                }
+            }
+            var blockIndexOffset = targetChannel.position();
+            var blockIndex = ByteBuffer.allocate(blocks.size() * CompressedChangeLog.BLOCK_ENTRY_LENGTH + CompressedChangeLog.FOOTER_LENGTH);
+            for(var block : blocks) {
+                blockIndex.putLong(block.firstRevisionNumber())
+                          .putLong(block.lastRevisionNumber())
+                          .putInt(block.recordCount())
+                          .putLong(block.offset())
+                          .putInt(block.compressedLength())
+                          .putInt(block.uncompressedLength());
+            }
+            blockIndex.putLong(blockIndexOffset)
+                      .putInt(blocks.size())
+                      .putInt(CompressedChangeLog.MAGIC)
+                      .flip();
+            writeFully(targetChannel, blockIndex);
+            targetChannel.force(true);
+        }
+    }
+
+    /**
+     * Compresses the consecutive records that occupy the specified region of the change history file.
+     */
+    private static byte[] compress(@Nonnull FileChannel sourceChannel, long offset, int length) throws IOException {
+        var compressed = new ByteArrayOutputStream(Math.max(64, length / 4));
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try(OutputStream outputStream = new DeflaterOutputStream(compressed, deflater)) {
+            transferFully(sourceChannel, offset, length, Channels.newChannel(outputStream));
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void transferFully(@Nonnull FileChannel sourceChannel,
+                                      long offset,
+                                      long length,
+                                      @Nonnull WritableByteChannel targetChannel) throws IOException {
+        var position = offset;
+        var end = offset + length;
+        while(position < end) {
+            var transferred = sourceChannel.transferTo(position, end - position, targetChannel);
+            if(transferred <= 0) {
+                throw new IOException(String.format("Could not read the change history at offset %d whilst compressing it", position));
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Forces the specified file or directory to storage.  Forcing a directory makes changes to its entries, such as a
+     * move into it, durable.
+     */
+    private static void force(@Nonnull Path path) throws IOException {
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
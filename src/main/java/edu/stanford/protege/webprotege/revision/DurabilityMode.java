@@ -0,0 +1,26 @@
+package edu.stanford.protege.webprotege.revision;
+
+/**
+ * Determines when a revision that has been written to a change history file is considered to be persisted.
+ */
+public enum DurabilityMode {
+
+    /**
+     * A revision is persisted as soon as it has been written to the change history file.  The change history file
+     * is never explicitly forced to storage, so recent revisions may be lost if the operating system crashes.
+     */
+    ASYNC,
+
+    /**
+     * The change history file is forced to storage after each batch of revisions is written, and a revision is
+     * persisted once the batch that contains it has been forced.
+     */
+    FSYNC,
+
+    /**
+     * The change history file is forced to storage periodically (see
+     * {@link RevisionManagerSettings#getGroupFsyncInterval()}), and a revision is persisted once a force that
+     * started after the revision was written has completed.
+     */
+    GROUP_FSYNC
+}
@@ -0,0 +1,268 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import org.semanticweb.owlapi.change.AddAxiomData;
+import org.semanticweb.owlapi.change.AddImportData;
+import org.semanticweb.owlapi.change.AddOntologyAnnotationData;
+import org.semanticweb.owlapi.change.OWLOntologyChangeDataVisitor;
+import org.semanticweb.owlapi.change.RemoveAxiomData;
+import org.semanticweb.owlapi.change.RemoveImportData;
+import org.semanticweb.owlapi.change.RemoveOntologyAnnotationData;
+import org.semanticweb.owlapi.change.SetOntologyIDData;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An index from entity IRIs to the numbers of the revisions that contain changes that mention the entity.  An entity
+ * is mentioned by a change if it is in the signature of the axiom or annotation that the change adds or removes, or
+ * if it is the subject of an annotation assertion that the change adds or removes.  Revisions must be added to the
+ * index in revision number order, so the revision numbers for an entity are always sorted.
+ * <p>
+ * The index may be saved to a sidecar file next to the change history file.  The file records the number of the last
+ * indexed revision so that, when a change history is loaded, only the revisions after it need to be indexed.
+ * </p>
+ */
+public class EntityRevisionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityRevisionIndex.class);
+
+    private static final String INDEX_FILE_SUFFIX = ".entities";
+
+    private static final int MAGIC_NUMBER = 0x57504549;
+
+    private static final int VERSION = 1;
+
+    private static final long[] NO_REVISIONS = new long[0];
+
+    @Nonnull
+    private final File indexFile;
+
+    private final Map<IRI, RevisionNumberList> revisionNumbersByEntity = new HashMap<>();
+
+    private long lastIndexedRevisionNumber = 0;
+
+    private EntityRevisionIndex(@Nonnull File indexFile) {
+        this.indexFile = checkNotNull(indexFile);
+    }
+
+    /**
+     * Gets the sidecar index file for the specified change history file.
+     * @param changeHistoryFile The change history file.
+     * @return The index file, which lives next to the change history file.
+     */
+    @Nonnull
+    public static File getIndexFile(@Nonnull File changeHistoryFile) {
+        return new File(changeHistoryFile.getParentFile(), changeHistoryFile.getName() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Creates an empty index for the specified change history file.  The index file is not read.
+     */
+    @Nonnull
+    public static EntityRevisionIndex create(@Nonnull File changeHistoryFile) {
+        return new EntityRevisionIndex(getIndexFile(changeHistoryFile));
+    }
+
+    /**
+     * Opens the index for the specified change history file.  If the index file does not exist, or cannot be read,
+     * then an empty index is returned.
+     * @param changeHistoryFile The change history file.
+     * @return The index.
+     */
+    @Nonnull
+    public static EntityRevisionIndex open(@Nonnull File changeHistoryFile) {
+        var index = create(changeHistoryFile);
+        index.read();
+        return index;
+    }
+
+    private synchronized void read() {
+        if(!indexFile.exists()) {
+            return;
+        }
+        try(var inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if(inputStream.readInt() != MAGIC_NUMBER || inputStream.readInt() != VERSION) {
+                logger.warn("Entity revision index {} is not in a recognised format.  Ignoring it.", indexFile);
+                return;
+            }
+            lastIndexedRevisionNumber = inputStream.readLong();
+            var entityCount = inputStream.readInt();
+            for(int i = 0; i < entityCount; i++) {
+                var entityIri = IRI.create(inputStream.readUTF());
+                var revisionCount = inputStream.readInt();
+                var revisionNumbers = new RevisionNumberList(revisionCount);
+                for(int j = 0; j < revisionCount; j++) {
+                    revisionNumbers.add(inputStream.readLong());
+                }
+                revisionNumbersByEntity.put(entityIri, revisionNumbers);
+            }
+        } catch(IOException | RuntimeException e) {
+            logger.warn("Could not read entity revision index {}.  Cause: {}", indexFile, e.getMessage(), e);
+            clear();
+        }
+    }
+
+    /**
+     * Writes this index to its index file.  The index file is replaced atomically.
+     */
+    public synchronized void save() throws IOException {
+        var tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        try(var outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            outputStream.writeInt(MAGIC_NUMBER);
+            outputStream.writeInt(VERSION);
+            outputStream.writeLong(lastIndexedRevisionNumber);
+            outputStream.writeInt(revisionNumbersByEntity.size());
+            for(var entry : revisionNumbersByEntity.entrySet()) {
+                outputStream.writeUTF(entry.getKey().toString());
+                var revisionNumbers = entry.getValue();
+                outputStream.writeInt(revisionNumbers.size());
+                for(int i = 0; i < revisionNumbers.size(); i++) {
+                    outputStream.writeLong(revisionNumbers.get(i));
+                }
+            }
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds the entities that are mentioned by the changes in the specified revision to this index.  Revisions that
+     * are at or below the last indexed revision are ignored.
+     * @param revision The revision.
+     */
+    public synchronized void add(@Nonnull Revision revision) {
+        var revisionNumber = revision.getRevisionNumber().getValue();
+        if(revisionNumber <= lastIndexedRevisionNumber) {
+            return;
+        }
+        for(var entityIri : getMentionedEntities(revision)) {
+            revisionNumbersByEntity.computeIfAbsent(entityIri, iri -> new RevisionNumberList())
+                                   .add(revisionNumber);
+        }
+        lastIndexedRevisionNumber = revisionNumber;
+    }
+
+    /**
+     * Gets the number of the last revision that has been added to this index.
+     * @return The revision number, or zero if no revisions have been added.
+     */
+    @Nonnull
+    public synchronized RevisionNumber getLastIndexedRevisionNumber() {
+        return RevisionNumber.getRevisionNumber(lastIndexedRevisionNumber);
+    }
+
+    /**
+     * Gets the numbers of the revisions that mention the specified entity.
+     * @param entityIri The IRI of the entity.
+     * @return The revision numbers in ascending order.  The array is a copy and may be modified by the caller.
+     */
+    @Nonnull
+    public synchronized long[] getRevisionNumbers(@Nonnull IRI entityIri) {
+        var revisionNumbers = revisionNumbersByEntity.get(checkNotNull(entityIri));
+        return revisionNumbers != null ? revisionNumbers.toArray() : NO_REVISIONS;
+    }
+
+    /**
+     * Gets the number of entities in this index.
+     */
+    public synchronized int size() {
+        return revisionNumbersByEntity.size();
+    }
+
+    /**
+     * Removes all entities from this index.  The index file is not modified.
+     */
+    public synchronized void clear() {
+        revisionNumbersByEntity.clear();
+        lastIndexedRevisionNumber = 0;
+    }
+
+    /**
+     * Gets the IRIs of the entities that are mentioned by the changes in the specified revision.
+     */
+    @Nonnull
+    public static Set<IRI> getMentionedEntities(@Nonnull Revision revision) {
+        var entityIris = new HashSet<IRI>();
+        for(var change : revision.getChanges()) {
+            addMentionedEntities(change, entityIris);
+        }
+        return entityIris;
+    }
+
+    /**
+     * Determines whether the specified change mentions the specified entity.
+     */
+    public static boolean isMentionedBy(@Nonnull IRI entityIri, @Nonnull OntologyChange change) {
+        var entityIris = new HashSet<IRI>();
+        addMentionedEntities(change, entityIris);
+        return entityIris.contains(entityIri);
+    }
+
+    private static void addMentionedEntities(@Nonnull OntologyChange change, @Nonnull Set<IRI> entityIris) {
+        var changedObject = change.toOwlOntologyChangeRecord().getData().accept(new OWLOntologyChangeDataVisitor<OWLObject, RuntimeException>() {
+            @Override
+            public OWLObject visit(AddAxiomData data) {
+                return data.getAxiom();
+            }
+
+            @Override
+            public OWLObject visit(RemoveAxiomData data) {
+                return data.getAxiom();
+            }
+
+            @Override
+            public OWLObject visit(AddOntologyAnnotationData data) {
+                return data.getAnnotation();
+            }
+
+            @Override
+            public OWLObject visit(RemoveOntologyAnnotationData data) {
+                return data.getAnnotation();
+            }
+
+            @Override
+            public OWLObject visit(SetOntologyIDData data) {
+                return null;
+            }
+
+            @Override
+            public OWLObject visit(AddImportData data) {
+                return null;
+            }
+
+            @Override
+            public OWLObject visit(RemoveImportData data) {
+                return null;
+            }
+        });
+        if(changedObject == null) {
+            return;
+        }
+        changedObject.getSignature().forEach(entity -> entityIris.add(entity.getIRI()));
+        if(changedObject instanceof OWLAnnotationAssertionAxiom annotationAssertion
+                && annotationAssertion.getSubject() instanceof IRI subjectIri) {
+            // Annotation assertion subjects are IRIs rather than entities, so are not in the signature
+            entityIris.add(subjectIri);
+        }
+    }
+}
@@ -9,10 +9,8 @@ import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.semanticweb.binaryowl.chunk.SkipSetting.SKIP_DATA;
@@ -33,22 +31,36 @@ public class HeadRevisionNumberFinder {
     }
 
     /**
-     * Computes the head revision number for the specified project.
+     * Computes the head revision number for the specified project.  The head revision number is read from the
+     * last entry of the change log index if the index covers the change history file.  Otherwise, the change history
+     * file is scanned.  If the change history has been sealed into a {@link CompressedChangeLog} then only the block
+     * index of the compressed change log is read.
      *
      * @param projectId The project.
      * @return The {@link RevisionNumber}
      */
     @Nonnull
     public RevisionNumber getHeadRevisionNumber(@Nonnull ProjectId projectId) throws IOException {
-        /*
-            This method works fairly well, even for large
-            projects, but it is only intended to be a stopgap and needs replacing.
-         */
         File changeHistoryFile = changeHistoryFileFactory.getChangeHistoryFile(projectId);
-        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(Files.newInputStream(changeHistoryFile.toPath()))) {
+        var sealedRevisionNumber = CompressedChangeLog.openIfExists(changeHistoryFile, new OWLDataFactoryImpl())
+                                                      .map(CompressedChangeLog::getLastRevisionNumber)
+                                                      .orElse(RevisionNumber.getRevisionNumber(0));
+        if(!changeHistoryFile.exists() && sealedRevisionNumber.getValue() > 0) {
+            return sealedRevisionNumber;
+        }
+        var lastEntry = ChangeLogIndex.readLastEntry(changeHistoryFile);
+        var revisionNumber = lastEntry.isPresent() ? lastEntry.get().getRevisionNumber() : scanForHeadRevisionNumber(changeHistoryFile);
+        // Revisions that are left in the change history file after it is sealed are also in the compressed change log
+        return revisionNumber.compareTo(sealedRevisionNumber) >= 0 ? revisionNumber : sealedRevisionNumber;
+    }
+
+    private static RevisionNumber scanForHeadRevisionNumber(@Nonnull File changeHistoryFile) throws IOException {
+        var dataFactory = new OWLDataFactoryImpl();
+        try (var changeLogReader = new ChangeLogReader(changeHistoryFile, dataFactory);
+             var inputStream = changeLogReader.openInputStream()) {
             BinaryOWLOntologyChangeLog log = new BinaryOWLOntologyChangeLog();
             RevisionExtractor extractor = new RevisionExtractor();
-            log.readChanges(bufferedInputStream, new OWLDataFactoryImpl(), extractor, SKIP_DATA);
+            log.readChanges(inputStream, dataFactory, extractor, SKIP_DATA);
             return RevisionNumber.getRevisionNumber(extractor.getLastRevision());
         }
     }
@@ -56,15 +68,22 @@ public class HeadRevisionNumberFinder {
 
     private static class RevisionExtractor implements BinaryOWLChangeLogHandler {
 
-        private int counter = 0;
+        private long counter = 0;
+
+        private long lastRecordedRevision = 0;
 
         @Override
         public void handleChangesRead(OntologyChangeRecordList list, SkipSetting skipSetting, long filePosition) {
             counter++;
+            lastRecordedRevision = RevisionDecoder.getRevisionNumber(list).getValue();
         }
 
-        public int getLastRevision() {
-            return counter;
+        /**
+         * Gets the revision number that is recorded in the last record, or, if the last record does not record a
+         * revision number, the number of records.
+         */
+        public long getLastRevision() {
+            return lastRecordedRevision > 0 ? lastRecordedRevision : counter;
         }
     }
 }
@@ -0,0 +1,177 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.ProjectId;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A revision manager for a project in a {@link RevisionStoreRegistry} that leases the project for each call.  The
+ * project may be evicted between calls, in which case the next call reopens it, so this manager can be held on to
+ * for as long as the registry is open.
+ */
+final class LeasingRevisionManager implements RevisionManager {
+
+    @Nonnull
+    private final RevisionStoreRegistry revisionStoreRegistry;
+
+    @Nonnull
+    private final ProjectId projectId;
+
+    LeasingRevisionManager(@Nonnull RevisionStoreRegistry revisionStoreRegistry,
+                           @Nonnull ProjectId projectId) {
+        this.revisionStoreRegistry = checkNotNull(revisionStoreRegistry);
+        this.projectId = checkNotNull(projectId);
+    }
+
+    private <T> T leased(@Nonnull Function<RevisionManager, T> operation) {
+        return revisionStoreRegistry.withRevisionManager(projectId, operation);
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getCurrentRevision() {
+        return leased(RevisionManager::getCurrentRevision);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<Revision> getRevision(@Nonnull RevisionNumber revisionNumber) {
+        return leased(revisionManager -> revisionManager.getRevision(revisionNumber));
+    }
+
+    @Nonnull
+    @Override
+    public Optional<RevisionSummary> getRevisionSummary(@Nonnull RevisionNumber revisionNumber) {
+        return leased(revisionManager -> revisionManager.getRevisionSummary(revisionNumber));
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableList<Revision> getRevisions() {
+        return leased(RevisionManager::getRevisions);
+    }
+
+    @Nonnull
+    @Override
+    public long[] getRevisionNumbersForEntity(@Nonnull IRI entityIri) {
+        return leased(revisionManager -> revisionManager.getRevisionNumbersForEntity(entityIri));
+    }
+
+    @Nonnull
+    @Override
+    public RevisionDiff getNetChanges(@Nonnull RevisionNumber fromRevision, @Nonnull RevisionNumber toRevision) {
+        return leased(revisionManager -> revisionManager.getNetChanges(fromRevision, toRevision));
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getRevisionAt(@Nonnull Instant instant) {
+        return leased(revisionManager -> revisionManager.getRevisionAt(instant));
+    }
+
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionsBetween(@Nonnull Instant from, @Nonnull Instant to) {
+        return leased(revisionManager -> revisionManager.getRevisionsBetween(from, to));
+    }
+
+    @Nonnull
+    @Override
+    public long[] getRevisionNumbersForUser(@Nonnull UserId userId) {
+        return leased(revisionManager -> revisionManager.getRevisionNumbersForUser(userId));
+    }
+
+    @Nonnull
+    @Override
+    public Optional<UserContribution> getContribution(@Nonnull UserId userId) {
+        return leased(revisionManager -> revisionManager.getContribution(userId));
+    }
+
+    @Nonnull
+    @Override
+    public List<UserContribution> getContributions() {
+        return leased(RevisionManager::getContributions);
+    }
+
+    @Nonnull
+    @Override
+    public OWLOntologyManager getOntologyManagerForRevision(@Nonnull RevisionNumber revision) {
+        return leased(revisionManager -> revisionManager.getOntologyManagerForRevision(revision));
+    }
+
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionSummaries() {
+        return leased(RevisionManager::getRevisionSummaries);
+    }
+
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionSummaries(@Nonnull RevisionNumber fromRevisionNumber, int limit) {
+        return leased(revisionManager -> revisionManager.getRevisionSummaries(fromRevisionNumber, limit));
+    }
+
+    @Nonnull
+    @Override
+    public RevisionSummaryPage getRevisionSummaryPage(@Nonnull RevisionNumber cursor, int pageSize) {
+        return leased(revisionManager -> revisionManager.getRevisionSummaryPage(cursor, pageSize));
+    }
+
+    /**
+     * Streams the revisions in the specified range.  Revisions are read as the stream is consumed, so the project is
+     * leased until the stream is closed.
+     */
+    @Nonnull
+    @Override
+    public Stream<Revision> streamRevisions(@Nonnull RevisionNumber fromRevisionNumber,
+                                            @Nonnull RevisionNumber toRevisionNumber) {
+        var lease = revisionStoreRegistry.lease(projectId);
+        try {
+            return lease.getRevisionManager()
+                        .streamRevisions(fromRevisionNumber, toRevisionNumber)
+                        .onClose(lease::close);
+        } catch(RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Revision addRevision(@Nonnull UserId userId,
+                                @Nonnull List<OntologyChange> changes,
+                                @Nonnull String desc) {
+        return leased(revisionManager -> revisionManager.addRevision(userId, changes, desc));
+    }
+
+    @Nonnull
+    @Override
+    public ImmutableList<Revision> addRevisions(@Nonnull List<RevisionRequest> requests) {
+        return leased(revisionManager -> revisionManager.addRevisions(requests));
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<RevisionNumber> whenPersisted(@Nonnull RevisionNumber revisionNumber) {
+        return leased(revisionManager -> revisionManager.whenPersisted(revisionNumber));
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getPersistedRevision() {
+        return leased(RevisionManager::getPersistedRevision);
+    }
+}
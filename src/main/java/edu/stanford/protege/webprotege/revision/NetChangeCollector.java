@@ -0,0 +1,199 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.AddImportChange;
+import edu.stanford.protege.webprotege.change.AddOntologyAnnotationChange;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.change.RemoveAxiomChange;
+import edu.stanford.protege.webprotege.change.RemoveImportChange;
+import edu.stanford.protege.webprotege.change.RemoveOntologyAnnotationChange;
+import org.semanticweb.owlapi.change.AddAxiomData;
+import org.semanticweb.owlapi.change.AddImportData;
+import org.semanticweb.owlapi.change.AddOntologyAnnotationData;
+import org.semanticweb.owlapi.change.OWLOntologyChangeDataVisitor;
+import org.semanticweb.owlapi.change.RemoveAxiomData;
+import org.semanticweb.owlapi.change.RemoveImportData;
+import org.semanticweb.owlapi.change.RemoveOntologyAnnotationData;
+import org.semanticweb.owlapi.change.SetOntologyIDData;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accumulates the net effect of a sequence of changes.  A change that adds an axiom, ontology annotation or import
+ * cancels out an earlier change that removed it, and vice versa.  Repeated additions or removals of the same thing
+ * are collapsed into one.  This assumes, as is the case for the changes that are recorded in revisions, that every
+ * change was effective when it was applied.
+ * <p>
+ * As when changes are replayed by the {@link OntologyReplayer}, every anonymous ontology is treated as the same
+ * ontology, so changes to anonymous ontologies cancel out even if they have different anonymous ids.
+ * </p>
+ */
+final class NetChangeCollector {
+
+    /**
+     * The thing that a change adds or removes, in the ontology that it adds it to or removes it from.
+     */
+    private record ChangeTarget(OWLOntologyID ontologyId, Object item) {
+
+    }
+
+    private record NetChange(OntologyChange change, boolean addition, Object item) {
+
+    }
+
+    private final Map<ChangeTarget, NetChange> netChanges = new LinkedHashMap<>();
+
+    @Nonnull
+    private final OWLOntologyID singletonOntologyId = new OWLOntologyID();
+
+    /**
+     * Adds the specified changes, which are applied after any changes that have already been added.
+     */
+    public void addAll(@Nonnull Iterable<OntologyChange> changes) {
+        changes.forEach(this::add);
+    }
+
+    /**
+     * Adds the specified change, which is applied after any changes that have already been added.
+     */
+    public void add(@Nonnull OntologyChange change) {
+        var normalisedChange = OntologyReplayer.normaliseChangeRecord(checkNotNull(change), singletonOntologyId);
+        var netChange = toNetChange(normalisedChange);
+        var target = new ChangeTarget(normalisedChange.getOntologyId(), netChange.item());
+        var existing = netChanges.get(target);
+        if(existing == null) {
+            netChanges.put(target, netChange);
+        }
+        else if(existing.addition() != netChange.addition()) {
+            netChanges.remove(target);
+        }
+    }
+
+    /**
+     * Gets the net difference of the changes that have been added.
+     * @param fromRevision The revision that the changes are applied to
+     * @param toRevision The revision that the changes produce
+     */
+    @Nonnull
+    public RevisionDiff toDiff(@Nonnull RevisionNumber fromRevision, @Nonnull RevisionNumber toRevision) {
+        return toDiff(fromRevision, toRevision, false);
+    }
+
+    /**
+     * Gets the net difference of the changes that have been added, inverted so that it undoes them.
+     * @param fromRevision The revision that the inverted changes are applied to
+     * @param toRevision The revision that the inverted changes produce
+     */
+    @Nonnull
+    public RevisionDiff toInverseDiff(@Nonnull RevisionNumber fromRevision, @Nonnull RevisionNumber toRevision) {
+        return toDiff(fromRevision, toRevision, true);
+    }
+
+    private RevisionDiff toDiff(@Nonnull RevisionNumber fromRevision, @Nonnull RevisionNumber toRevision, boolean inverse) {
+        var additions = ImmutableList.<OntologyChange>builder();
+        var removals = ImmutableList.<OntologyChange>builder();
+        var addedAxioms = ImmutableSet.<OWLAxiom>builder();
+        var removedAxioms = ImmutableSet.<OWLAxiom>builder();
+        for(var netChange : netChanges.values()) {
+            var change = inverse ? invert(netChange.change()) : netChange.change();
+            var addition = netChange.addition() != inverse;
+            (addition ? additions : removals).add(change);
+            if(netChange.item() instanceof OWLAxiom axiom) {
+                (addition ? addedAxioms : removedAxioms).add(axiom);
+            }
+        }
+        return new RevisionDiff(fromRevision,
+                                toRevision,
+                                additions.build(),
+                                removals.build(),
+                                addedAxioms.build(),
+                                removedAxioms.build());
+    }
+
+    private static NetChange toNetChange(@Nonnull OntologyChange change) {
+        return change.toOwlOntologyChangeRecord().getData().accept(new OWLOntologyChangeDataVisitor<NetChange, RuntimeException>() {
+            @Override
+            public NetChange visit(AddAxiomData data) {
+                return new NetChange(change, true, data.getAxiom());
+            }
+
+            @Override
+            public NetChange visit(RemoveAxiomData data) {
+                return new NetChange(change, false, data.getAxiom());
+            }
+
+            @Override
+            public NetChange visit(AddOntologyAnnotationData data) {
+                return new NetChange(change, true, data.getAnnotation());
+            }
+
+            @Override
+            public NetChange visit(RemoveOntologyAnnotationData data) {
+                return new NetChange(change, false, data.getAnnotation());
+            }
+
+            @Override
+            public NetChange visit(SetOntologyIDData data) {
+                throw new UnsupportedOperationException("Changes to ontology ids are not supported");
+            }
+
+            @Override
+            public NetChange visit(AddImportData data) {
+                return new NetChange(change, true, data.getDeclaration());
+            }
+
+            @Override
+            public NetChange visit(RemoveImportData data) {
+                return new NetChange(change, false, data.getDeclaration());
+            }
+        });
+    }
+
+    private static OntologyChange invert(@Nonnull OntologyChange change) {
+        var ontologyId = change.getOntologyId();
+        return change.toOwlOntologyChangeRecord().getData().accept(new OWLOntologyChangeDataVisitor<OntologyChange, RuntimeException>() {
+            @Override
+            public OntologyChange visit(AddAxiomData data) {
+                return RemoveAxiomChange.of(ontologyId, data.getAxiom());
+            }
+
+            @Override
+            public OntologyChange visit(RemoveAxiomData data) {
+                return AddAxiomChange.of(ontologyId, data.getAxiom());
+            }
+
+            @Override
+            public OntologyChange visit(AddOntologyAnnotationData data) {
+                return RemoveOntologyAnnotationChange.of(ontologyId, data.getAnnotation());
+            }
+
+            @Override
+            public OntologyChange visit(RemoveOntologyAnnotationData data) {
+                return AddOntologyAnnotationChange.of(ontologyId, data.getAnnotation());
+            }
+
+            @Override
+            public OntologyChange visit(SetOntologyIDData data) {
+                throw new UnsupportedOperationException("Changes to ontology ids are not supported");
+            }
+
+            @Override
+            public OntologyChange visit(AddImportData data) {
+                return RemoveImportChange.of(ontologyId, data.getDeclaration());
+            }
+
+            @Override
+            public OntologyChange visit(RemoveImportData data) {
+                return AddImportChange.of(ontologyId, data.getDeclaration());
+            }
+        });
+    }
+}
@@ -7,6 +7,8 @@ import org.semanticweb.owlapi.model.OWLOntologyID;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
@@ -14,14 +16,26 @@ import javax.inject.Inject;
  */
 public class OntologyChangeRecordTranslatorImpl implements OntologyChangeRecordTranslator {
 
-    @Inject
+    @Nonnull
+    private final RevisionDataInterner interner;
+
     public OntologyChangeRecordTranslatorImpl() {
+        this(RevisionDataInterner.getSharedInterner());
+    }
+
+    /**
+     * Creates a translator that interns the changes that it produces, along with their ontology ids and content,
+     * with the specified interner.
+     */
+    @Inject
+    public OntologyChangeRecordTranslatorImpl(@Nonnull RevisionDataInterner interner) {
+        this.interner = checkNotNull(interner);
     }
 
     @Nonnull
     @Override
     public OntologyChange getOntologyChange(@Nonnull OWLOntologyChangeRecord record) {
-        var ontologyId = record.getOntologyID();
+        var ontologyId = interner.internOntologyId(record.getOntologyID());
         OWLOntologyChangeDataVisitor<OntologyChange, RuntimeException> visitor = new OWLOntologyChangeDataVisitor<>() {
             @Nonnull
             @Override
@@ -59,33 +73,33 @@ public class OntologyChangeRecordTranslatorImpl implements OntologyChangeRecordT
                 return translateRemoveImport(data, ontologyId);
             }
         };
-        return record.getData()
-                     .accept(visitor);
+        return interner.internChange(record.getData()
+                                           .accept(visitor));
     }
 
     private AddAxiomChange translateAddAxiom(AddAxiomData data, OWLOntologyID ontologyId) {
-        return AddAxiomChange.of(ontologyId, data.getAxiom());
+        return AddAxiomChange.of(ontologyId, interner.internAxiom(data.getAxiom()));
     }
 
     private RemoveAxiomChange translateRemoveAxiom(RemoveAxiomData data, OWLOntologyID ontologyId) {
-        return RemoveAxiomChange.of(ontologyId, data.getAxiom());
+        return RemoveAxiomChange.of(ontologyId, interner.internAxiom(data.getAxiom()));
     }
 
     private AddOntologyAnnotationChange translateAddOntologyAnnotation(AddOntologyAnnotationData data,
                                                                        OWLOntologyID ontologyId) {
-        return AddOntologyAnnotationChange.of(ontologyId, data.getAnnotation());
+        return AddOntologyAnnotationChange.of(ontologyId, interner.internAnnotation(data.getAnnotation()));
     }
 
     private RemoveOntologyAnnotationChange translateRemoveOntologyAnnotation(RemoveOntologyAnnotationData data,
                                                                              OWLOntologyID ontologyId) {
-        return RemoveOntologyAnnotationChange.of(ontologyId, data.getAnnotation());
+        return RemoveOntologyAnnotationChange.of(ontologyId, interner.internAnnotation(data.getAnnotation()));
     }
 
     private AddImportChange translateAddImport(AddImportData data, OWLOntologyID ontologyId) {
-        return AddImportChange.of(ontologyId, data.getDeclaration());
+        return AddImportChange.of(ontologyId, interner.internImportsDeclaration(data.getDeclaration()));
     }
 
     private RemoveImportChange translateRemoveImport(RemoveImportData data, OWLOntologyID ontologyId) {
-        return RemoveImportChange.of(ontologyId, data.getDeclaration());
+        return RemoveImportChange.of(ontologyId, interner.internImportsDeclaration(data.getDeclaration()));
     }
 }
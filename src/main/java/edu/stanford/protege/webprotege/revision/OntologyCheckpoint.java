@@ -0,0 +1,18 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+/**
+ * The materialized state of the ontologies in a project at some revision.
+ * @param revisionNumber The revision that the checkpoint materializes
+ * @param ontologyIds The ids of the ontologies at the revision, including those that are empty and so are not
+ *                    mentioned by any change
+ * @param changes A list of changes that, when applied to empty ontologies, recreates the ontologies at the revision
+ */
+public record OntologyCheckpoint(RevisionNumber revisionNumber,
+                                 ImmutableList<OWLOntologyID> ontologyIds,
+                                 ImmutableList<OntologyChange> changes) {
+
+}
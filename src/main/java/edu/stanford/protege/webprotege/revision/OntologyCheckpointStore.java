@@ -0,0 +1,240 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import org.semanticweb.binaryowl.BinaryOWLMetadata;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Stores materialized ontology checkpoints in a directory next to the change history file.  Each checkpoint is a
+ * BinaryOWL change log that contains a single record holding the changes that recreate the ontologies at the
+ * checkpoint revision.  The ids of the ontologies are held in the metadata of the record, so that ontologies that
+ * are empty, and so are not mentioned by any change, are recreated too.
+ */
+public class OntologyCheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OntologyCheckpointStore.class);
+
+    private static final String CHECKPOINTS_DIRECTORY_NAME = "checkpoints";
+
+    private static final String CHECKPOINT_FILE_PREFIX = "checkpoint-";
+
+    private static final String CHECKPOINT_FILE_SUFFIX = ".binary";
+
+    private static final Pattern CHECKPOINT_FILE_NAME_PATTERN = Pattern.compile(CHECKPOINT_FILE_PREFIX + "(\\d+)" + CHECKPOINT_FILE_SUFFIX);
+
+    private static final String ANONYMOUS_ONTOLOGY_ID = "_";
+
+    @Nonnull
+    private final File checkpointsDirectory;
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    @Nonnull
+    private final OntologyChangeRecordTranslator changeRecordTranslator;
+
+    private final int maxCheckpoints;
+
+    private final NavigableSet<Long> checkpointRevisions = new ConcurrentSkipListSet<>();
+
+    /**
+     * Checkpoints at or below this revision have been superseded by a baseline revision and are not written.
+     */
+    private volatile long supersededRevisionNumber = 0;
+
+    public OntologyCheckpointStore(@Nonnull File changeHistoryFile,
+                                   @Nonnull OWLDataFactory dataFactory,
+                                   @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                                   int maxCheckpoints) {
+        this.checkpointsDirectory = new File(changeHistoryFile.getParentFile(), CHECKPOINTS_DIRECTORY_NAME);
+        this.dataFactory = checkNotNull(dataFactory);
+        this.changeRecordTranslator = checkNotNull(changeRecordTranslator);
+        this.maxCheckpoints = maxCheckpoints;
+        var checkpointFiles = checkpointsDirectory.listFiles();
+        if(checkpointFiles != null) {
+            for(var checkpointFile : checkpointFiles) {
+                var matcher = CHECKPOINT_FILE_NAME_PATTERN.matcher(checkpointFile.getName());
+                if(matcher.matches()) {
+                    checkpointRevisions.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the revision number of the nearest checkpoint at or below the specified revision.
+     * @param revisionNumber The revision number
+     * @return The revision number of the checkpoint, or empty if there is no such checkpoint
+     */
+    @Nonnull
+    public Optional<RevisionNumber> getNearestCheckpointRevision(@Nonnull RevisionNumber revisionNumber) {
+        return Optional.ofNullable(checkpointRevisions.floor(revisionNumber.getValue()))
+                       .map(RevisionNumber::getRevisionNumber);
+    }
+
+    /**
+     * Reads the nearest checkpoint at or below the specified revision.
+     * @param revisionNumber The revision number
+     * @return The checkpoint, or empty if there is no such checkpoint
+     */
+    @Nonnull
+    public Optional<OntologyCheckpoint> read(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        var checkpointRevision = getNearestCheckpointRevision(revisionNumber);
+        if(checkpointRevision.isEmpty()) {
+            return Optional.empty();
+        }
+        var checkpointFile = getCheckpointFile(checkpointRevision.get());
+        var changes = new ArrayList<OntologyChange>();
+        var ontologyIds = new ArrayList<OWLOntologyID>();
+        try(var inputStream = new BufferedInputStream(new FileInputStream(checkpointFile))) {
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
+                var encodedOntologyIds = changeRecordList.getMetadata()
+                                                         .getStringAttribute(RevisionSerializationVocabulary.ONTOLOGY_IDS_META_DATA_ATTRIBUTE.getVocabularyName(), "");
+                ontologyIds.addAll(decodeOntologyIds(encodedOntologyIds));
+                changeRecordList.getChangeRecords()
+                                .stream()
+                                .map(changeRecordTranslator::getOntologyChange)
+                                .forEach(changes::add);
+            }, SkipSetting.SKIP_NONE);
+        }
+        return Optional.of(new OntologyCheckpoint(checkpointRevision.get(), ImmutableList.copyOf(ontologyIds), ImmutableList.copyOf(changes)));
+    }
+
+    /**
+     * Writes a checkpoint that records no ontologies other than those that the changes apply to.
+     * @see #write(RevisionNumber, ImmutableList, ImmutableList)
+     */
+    public void write(@Nonnull RevisionNumber revisionNumber,
+                      @Nonnull ImmutableList<OntologyChange> changes) throws IOException {
+        write(revisionNumber, ImmutableList.of(), changes);
+    }
+
+    /**
+     * Writes a checkpoint.  The checkpoint file is written in full and then moved into place so that readers never
+     * see a partially written checkpoint.  If there are more than the maximum number of checkpoints after writing then
+     * the oldest checkpoints are deleted.
+     * @param revisionNumber The revision that the checkpoint materializes
+     * @param ontologyIds The ids of the ontologies at the revision, including those that are empty
+     * @param changes The changes that recreate the ontologies at the revision
+     */
+    public void write(@Nonnull RevisionNumber revisionNumber,
+                      @Nonnull ImmutableList<OWLOntologyID> ontologyIds,
+                      @Nonnull ImmutableList<OntologyChange> changes) throws IOException {
+        if(revisionNumber.getValue() <= supersededRevisionNumber) {
+            logger.info("Not writing checkpoint {}.  It has been superseded by a baseline revision.", revisionNumber.getValue());
+            return;
+        }
+        Files.createDirectories(checkpointsDirectory.toPath());
+        var checkpointFile = getCheckpointFile(revisionNumber);
+        var tempFile = new File(checkpointsDirectory, checkpointFile.getName() + ".tmp");
+        Files.deleteIfExists(tempFile.toPath());
+        var metadata = new BinaryOWLMetadata();
+        metadata.setLongAttribute(RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), revisionNumber.getValue());
+        metadata.setStringAttribute(RevisionSerializationVocabulary.REVISION_TYPE_META_DATA_ATTRIBUTE.getVocabularyName(), RevisionType.BASELINE.name());
+        metadata.setStringAttribute(RevisionSerializationVocabulary.ONTOLOGY_IDS_META_DATA_ATTRIBUTE.getVocabularyName(), encodeOntologyIds(ontologyIds));
+        var changeRecords = changes.stream()
+                                   .map(OntologyChange::toOwlOntologyChangeRecord)
+                                   .collect(toImmutableList());
+        new BinaryOWLOntologyChangeLog().appendChanges(new OntologyChangeRecordList(System.currentTimeMillis(), metadata, changeRecords), tempFile);
+        Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpointRevisions.add(revisionNumber.getValue());
+        if(revisionNumber.getValue() <= supersededRevisionNumber) {
+            // Superseded whilst it was being written
+            delete(revisionNumber);
+        }
+        while(checkpointRevisions.size() > maxCheckpoints) {
+            delete(RevisionNumber.getRevisionNumber(checkpointRevisions.first()));
+        }
+    }
+
+    /**
+     * Deletes any checkpoints that are beyond the specified revision.  Such checkpoints do not belong to the current
+     * change history.
+     */
+    public void deleteCheckpointsAfter(@Nonnull RevisionNumber revisionNumber) {
+        for(var checkpointRevision : checkpointRevisions.tailSet(revisionNumber.getValue(), false)) {
+            delete(RevisionNumber.getRevisionNumber(checkpointRevision));
+        }
+    }
+
+    /**
+     * Deletes any checkpoints that are at or below the specified baseline revision, and prevents such checkpoints
+     * from being written later.  Once the change history starts with a baseline, the revisions that such checkpoints
+     * were built from are no longer in the change history.
+     */
+    public void deleteCheckpointsAtOrBefore(@Nonnull RevisionNumber baselineRevisionNumber) {
+        supersededRevisionNumber = Math.max(supersededRevisionNumber, baselineRevisionNumber.getValue());
+        for(var checkpointRevision : checkpointRevisions.headSet(baselineRevisionNumber.getValue(), true)) {
+            delete(RevisionNumber.getRevisionNumber(checkpointRevision));
+        }
+    }
+
+    private void delete(@Nonnull RevisionNumber revisionNumber) {
+        checkpointRevisions.remove(revisionNumber.getValue());
+        try {
+            Files.deleteIfExists(getCheckpointFile(revisionNumber).toPath());
+        } catch(IOException e) {
+            logger.warn("Could not delete checkpoint {}.  Cause: {}", revisionNumber.getValue(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes ontology ids one per line.  A line holds the ontology IRI, followed by the version IRI if there is one,
+     * or {@link #ANONYMOUS_ONTOLOGY_ID} for an anonymous ontology.  IRIs do not contain whitespace.
+     */
+    private static String encodeOntologyIds(@Nonnull List<OWLOntologyID> ontologyIds) {
+        return ontologyIds.stream()
+                          .map(ontologyId -> {
+                              if(!ontologyId.getOntologyIRI().isPresent()) {
+                                  return ANONYMOUS_ONTOLOGY_ID;
+                              }
+                              var versionIri = ontologyId.getVersionIRI();
+                              return ontologyId.getOntologyIRI().get() + (versionIri.isPresent() ? " " + versionIri.get() : "");
+                          })
+                          .collect(joining("\n"));
+    }
+
+    private static List<OWLOntologyID> decodeOntologyIds(@Nonnull String encodedOntologyIds) {
+        return encodedOntologyIds.lines()
+                                 .filter(line -> !line.isEmpty())
+                                 .map(line -> {
+                                     if(line.equals(ANONYMOUS_ONTOLOGY_ID)) {
+                                         return new OWLOntologyID();
+                                     }
+                                     var iris = line.split(" ");
+                                     return iris.length == 1 ? new OWLOntologyID(IRI.create(iris[0]))
+                                                             : new OWLOntologyID(IRI.create(iris[0]), IRI.create(iris[1]));
+                                 })
+                                 .toList();
+    }
+
+    private File getCheckpointFile(@Nonnull RevisionNumber revisionNumber) {
+        return new File(checkpointsDirectory, CHECKPOINT_FILE_PREFIX + revisionNumber.getValue() + CHECKPOINT_FILE_SUFFIX);
+    }
+}
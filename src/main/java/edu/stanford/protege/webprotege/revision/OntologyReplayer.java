@@ -0,0 +1,165 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.AddImportChange;
+import edu.stanford.protege.webprotege.change.AddOntologyAnnotationChange;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/**
+ * Replays ontology changes into a fresh {@link OWLOntologyManager} in order to materialize the ontologies at some
+ * revision.
+ */
+public class OntologyReplayer {
+
+    @Nonnull
+    private final OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+
+    @Nonnull
+    private final OWLOntologyID singletonOntologyId = new OWLOntologyID();
+
+    private long replayedChangeCount = 0;
+
+    /**
+     * Materializes the ontologies at the specified revision of the specified store.  The nearest checkpoint at or
+     * below the revision is loaded, if there is one, and the revisions after it are replayed.  A
+     * {@link RevisionType#BASELINE} revision holds the complete state of the ontologies, so anything that was
+     * replayed before it is discarded.
+     * @param revisionStore The store
+     * @param revisionNumber The revision number.  The head revision number denotes the latest revision.
+     * @return A replayer whose manager contains the ontologies at the specified revision
+     */
+    @Nonnull
+    public static OntologyReplayer replayToRevision(@Nonnull RevisionStore revisionStore,
+                                                    @Nonnull RevisionNumber revisionNumber) throws OWLOntologyCreationException {
+        var replayer = new OntologyReplayer();
+        var checkpoint = revisionStore.getCheckpoint(revisionNumber);
+        var checkpointRevisionNumber = RevisionNumber.getRevisionNumber(0);
+        if(checkpoint.isPresent()) {
+            replayer.createOntologies(checkpoint.get().ontologyIds());
+            replayer.replay(checkpoint.get().changes());
+            checkpointRevisionNumber = checkpoint.get().revisionNumber();
+        }
+        // Only the revisions after the checkpoint are read, which matters when changes are loaded lazily
+        try(var revisions = revisionStore.streamRevisions(checkpointRevisionNumber.getNextRevisionNumber(), revisionNumber)) {
+            for(var iterator = revisions.iterator(); iterator.hasNext(); ) {
+                var revision = iterator.next();
+                if(revision.getRevisionType() == RevisionType.BASELINE) {
+                    replayer.clear();
+                }
+                replayer.replay(revision.getChanges());
+            }
+        }
+        return replayer;
+    }
+
+    /**
+     * Gets the ids of the ontologies in the specified manager.
+     */
+    @Nonnull
+    public static ImmutableList<OWLOntologyID> getOntologyIds(@Nonnull OWLOntologyManager manager) {
+        return manager.getOntologies()
+                      .stream()
+                      .map(OWLOntology::getOntologyID)
+                      .collect(toImmutableList());
+    }
+
+    /**
+     * Gets the contents of the ontologies in the specified manager as a list of changes that, when replayed into
+     * an empty manager, recreate the ontologies.  Ontologies that are empty are not mentioned by any change, so
+     * their ids must be recorded separately (see {@link #getOntologyIds(OWLOntologyManager)}).
+     */
+    @Nonnull
+    public static ImmutableList<OntologyChange> toChanges(@Nonnull OWLOntologyManager manager) {
+        var changes = ImmutableList.<OntologyChange>builder();
+        for(var ontology : manager.getOntologies()) {
+            var ontologyId = ontology.getOntologyID();
+            ontology.getImportsDeclarations()
+                    .forEach(importsDeclaration -> changes.add(AddImportChange.of(ontologyId, importsDeclaration)));
+            ontology.getAnnotations()
+                    .forEach(annotation -> changes.add(AddOntologyAnnotationChange.of(ontologyId, annotation)));
+            ontology.getAxioms()
+                    .forEach(axiom -> changes.add(AddAxiomChange.of(ontologyId, axiom)));
+        }
+        return changes.build();
+    }
+
+    /**
+     * Creates the specified ontologies, if they do not already exist, without adding anything to them.
+     */
+    public void createOntologies(@Nonnull Iterable<OWLOntologyID> ontologyIds) throws OWLOntologyCreationException {
+        for(var ontologyId : ontologyIds) {
+            var normalisedOntologyId = ontologyId.isAnonymous() ? singletonOntologyId : ontologyId;
+            if(!manager.contains(normalisedOntologyId)) {
+                manager.createOntology(normalisedOntologyId);
+            }
+        }
+    }
+
+    public void replay(@Nonnull Iterable<OntologyChange> changes) throws OWLOntologyCreationException {
+        for(OntologyChange record : changes) {
+            // Anonymous ontologies are not handled nicely at all.
+            var normalisedChangeRecord = normaliseChangeRecord(record, singletonOntologyId);
+            var ontologyId = normalisedChangeRecord.getOntologyId();
+            if(!manager.contains(ontologyId)) {
+                manager.createOntology(ontologyId);
+            }
+            var change = normalisedChangeRecord
+                    .toOwlOntologyChangeRecord()
+                    .createOntologyChange(manager);
+            manager.applyChange(change);
+            replayedChangeCount++;
+        }
+    }
+
+    /**
+     * Removes every ontology from the manager, so that subsequent changes are replayed into an empty manager.
+     */
+    public void clear() {
+        for(var ontology : new ArrayList<>(manager.getOntologies())) {
+            manager.removeOntology(ontology);
+        }
+    }
+
+    /**
+     * Replaces the id of the ontology that the specified change applies to with the specified id if the ontology is
+     * anonymous.  Each anonymous ontology id is distinct, so this treats every anonymous ontology as the same one.
+     */
+    static OntologyChange normaliseChangeRecord(@Nonnull OntologyChange change,
+                                                @Nonnull OWLOntologyID singletonAnonymousId) {
+        var ontologyID = change.getOntologyId();
+        if(ontologyID.isAnonymous()) {
+            return change.replaceOntologyId(singletonAnonymousId);
+        }
+        else {
+            // As is
+            return change;
+        }
+    }
+
+    /**
+     * Gets the manager that holds the replayed ontologies
+     */
+    @Nonnull
+    public OWLOntologyManager getOntologyManager() {
+        return manager;
+    }
+
+    /**
+     * Gets the number of changes that have been replayed
+     */
+    public long getReplayedChangeCount() {
+        return replayedChangeCount;
+    }
+}
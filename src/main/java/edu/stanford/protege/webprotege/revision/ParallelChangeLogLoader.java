@@ -0,0 +1,207 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.io.CountingInputStream;
+import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Loads a change history file in two phases.  The first phase finds the boundaries of the records in the file, either
+ * from a consistent {@link ChangeLogIndex} or with a scan that skips change data.  The second phase groups
+ * consecutive records into runs of roughly equal size and decodes the runs in parallel on a fork-join pool.  The
+ * decoded runs are then stitched back together in file order.
+ */
+class ParallelChangeLogLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelChangeLogLoader.class);
+
+    private static final long MIN_RUN_LENGTH = 1024 * 1024;
+
+    private static final long MAX_RUN_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * The number of runs per thread.  More runs than threads evens out runs that are slower to decode than others.
+     */
+    private static final int RUNS_PER_THREAD = 4;
+
+    @Nonnull
+    private final File changeHistoryFile;
+
+    @Nonnull
+    private final OWLDataFactory dataFactory;
+
+    @Nonnull
+    private final ChangeLogReader changeLogReader;
+
+    @Nonnull
+    private final RevisionDecoder revisionDecoder;
+
+    private final int parallelism;
+
+    /**
+     * The result of loading a change history.
+     * @param summaries The summaries of the revisions, in file order
+     * @param revisions The revisions, in file order.  Empty if changes were not decoded.
+     * @param indexEntries Index entries for the records, in file order
+     */
+    record Result(List<RevisionSummary> summaries, List<Revision> revisions, List<ChangeLogIndexEntry> indexEntries) {
+
+    }
+
+    private record RecordRange(long offset, long length) {
+
+    }
+
+    private record DecodedRun(List<RevisionSummary> summaries, List<Revision> revisions) {
+
+    }
+
+    public ParallelChangeLogLoader(@Nonnull File changeHistoryFile,
+                                   @Nonnull OWLDataFactory dataFactory,
+                                   @Nonnull ChangeLogReader changeLogReader,
+                                   @Nonnull RevisionDecoder revisionDecoder,
+                                   int parallelism) {
+        this.changeHistoryFile = checkNotNull(changeHistoryFile);
+        this.dataFactory = checkNotNull(dataFactory);
+        this.changeLogReader = checkNotNull(changeLogReader);
+        this.revisionDecoder = checkNotNull(revisionDecoder);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Loads the change history.
+     * @param changeLogIndex The index for the change history.  This is used for record boundaries if it is consistent
+     *                       with the change history file.
+     * @param decodeChanges true if changes should be decoded into revisions, false if only summaries are required
+     */
+    @Nonnull
+    public Result load(@Nonnull ChangeLogIndex changeLogIndex, boolean decodeChanges) throws IOException {
+        var recordRanges = changeLogIndex.isConsistentWith(changeHistoryFile) ? getIndexedRecordRanges(changeLogIndex) : scanRecordRanges();
+        var runs = partitionIntoRuns(recordRanges);
+        logger.info("Decoding {} records in {} runs on {} threads", recordRanges.size(), runs.size(), parallelism);
+        var pool = new ForkJoinPool(parallelism);
+        List<DecodedRun> decodedRuns;
+        try {
+            decodedRuns = pool.submit(() -> runs.parallelStream()
+                                               .map(run -> decodeRun(run, decodeChanges))
+                                               .collect(toList()))
+                              .get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted whilst loading change history", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        var summaries = new ArrayList<RevisionSummary>(recordRanges.size());
+        var revisions = new ArrayList<Revision>(decodeChanges ? recordRanges.size() : 0);
+        for(var decodedRun : decodedRuns) {
+            summaries.addAll(decodedRun.summaries());
+            revisions.addAll(decodedRun.revisions());
+        }
+        var indexEntries = new ArrayList<ChangeLogIndexEntry>(recordRanges.size());
+        for(int i = 0; i < recordRanges.size(); i++) {
+            var recordRange = recordRanges.get(i);
+            indexEntries.add(new ChangeLogIndexEntry(summaries.get(i).getRevisionNumber().getValue(),
+                                                     recordRange.offset(),
+                                                     recordRange.length()));
+        }
+        return new Result(summaries, revisions, indexEntries);
+    }
+
+    private static List<RecordRange> getIndexedRecordRanges(@Nonnull ChangeLogIndex changeLogIndex) {
+        return changeLogIndex.getEntries()
+                             .stream()
+                             .map(entry -> new RecordRange(entry.offset(), entry.length()))
+                             .collect(toList());
+    }
+
+    /**
+     * Finds record boundaries by reading the change history file without decoding change data.
+     */
+    private List<RecordRange> scanRecordRanges() throws IOException {
+        var recordRanges = new ArrayList<RecordRange>();
+        try(var inputStream = new CountingInputStream(changeLogReader.openInputStream())) {
+            var recordOffset = new long[]{changeLogReader.getHeaderLength()};
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
+                var recordEnd = inputStream.getCount();
+                recordRanges.add(new RecordRange(recordOffset[0], recordEnd - recordOffset[0]));
+                recordOffset[0] = recordEnd;
+            }, SkipSetting.SKIP_DATA);
+        }
+        return recordRanges;
+    }
+
+    /**
+     * Groups consecutive records into runs.  A record that is longer than the run length is a run on its own.
+     */
+    private List<List<RecordRange>> partitionIntoRuns(@Nonnull List<RecordRange> recordRanges) {
+        var totalLength = recordRanges.stream().mapToLong(RecordRange::length).sum();
+        var runLength = Math.min(MAX_RUN_LENGTH, Math.max(MIN_RUN_LENGTH, totalLength / ((long) parallelism * RUNS_PER_THREAD)));
+        var runs = new ArrayList<List<RecordRange>>();
+        var run = new ArrayList<RecordRange>();
+        var currentRunLength = 0L;
+        for(var recordRange : recordRanges) {
+            if(!run.isEmpty() && currentRunLength + recordRange.length() > runLength) {
+                runs.add(run);
+                run = new ArrayList<>();
+                currentRunLength = 0;
+            }
+            run.add(recordRange);
+            currentRunLength += recordRange.length();
+        }
+        if(!run.isEmpty()) {
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    private DecodedRun decodeRun(@Nonnull List<RecordRange> run, boolean decodeChanges) {
+        var first = run.get(0);
+        var last = run.get(run.size() - 1);
+        try {
+            var changeRecordLists = changeLogReader.read(first.offset(), last.offset() + last.length() - first.offset());
+            if(changeRecordLists.size() != run.size()) {
+                throw new IOException(String.format("Expected %d change records at offset %d but found %d",
+                                                    run.size(),
+                                                    first.offset(),
+                                                    changeRecordLists.size()));
+            }
+            var summaries = new ArrayList<RevisionSummary>(run.size());
+            var revisions = new ArrayList<Revision>(decodeChanges ? run.size() : 0);
+            for(var changeRecordList : changeRecordLists) {
+                var summary = revisionDecoder.decodeSummary(changeRecordList);
+                summaries.add(summary);
+                if(decodeChanges) {
+                    revisions.add(new Revision(summary.getUserId(),
+                                               summary.getRevisionNumber(),
+                                               revisionDecoder.decodeChanges(changeRecordList),
+                                               summary.getTimestamp(),
+                                               summary.getDescription(),
+                                               summary.getRevisionType()));
+                }
+            }
+            return new DecodedRun(summaries, revisions);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
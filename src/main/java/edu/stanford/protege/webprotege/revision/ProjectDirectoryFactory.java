@@ -24,6 +24,13 @@ public class ProjectDirectoryFactory {
         return new File(getProjectDataDirectory(), projectId.id());
     }
 
+    /**
+     * Gets the file that records the projects that were open when the revision store registry was last shut down.
+     */
+    public File getRecentProjectsFile() {
+        return new File(getDataStoreDirectory(), "recent-projects");
+    }
+
     private File getProjectDataDirectory() {
         return new File(getDataStoreDirectory(), "project-data");
     }
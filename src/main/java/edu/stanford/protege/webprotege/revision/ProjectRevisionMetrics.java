@@ -0,0 +1,159 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.ProjectId;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The meters for the revisions of a single project.
+ * <ul>
+ *     <li>{@code webprotege.revisions.load.duration} and {@code webprotege.revisions.load.bytes} record change
+ *     history loads.</li>
+ *     <li>{@code webprotege.revisions.append.duration} and {@code webprotege.revisions.append.batch.size} record
+ *     appends to the change history file.</li>
+ *     <li>{@code webprotege.revisions.add.lock.wait} records the time that adding a revision waits for the store
+ *     lock.</li>
+ *     <li>{@code webprotege.revisions.replay.duration} and {@code webprotege.revisions.replay.changes} record the
+ *     materialization of ontologies at a revision.</li>
+ *     <li>{@code webprotege.revisions.serialization.queue.depth}, {@code webprotege.revisions.resident.revisions}
+ *     and {@code webprotege.revisions.resident.changes} are gauges that are bound to a store.</li>
+ * </ul>
+ */
+public class ProjectRevisionMetrics {
+
+    @Nonnull
+    private final MeterRegistry meterRegistry;
+
+    @Nonnull
+    private final Tags tags;
+
+    private final Timer loadTimer;
+
+    private final DistributionSummary loadBytes;
+
+    private final Timer appendTimer;
+
+    private final DistributionSummary appendBatchSize;
+
+    private final Timer addRevisionLockWaitTimer;
+
+    private final Timer replayTimer;
+
+    private final DistributionSummary replayChangeCount;
+
+    private final List<Meter> gauges = new CopyOnWriteArrayList<>();
+
+    ProjectRevisionMetrics(@Nonnull MeterRegistry meterRegistry, @Nonnull ProjectId projectId) {
+        this(meterRegistry, Tags.of(RevisionMetrics.PROJECT_TAG, projectId.id()));
+    }
+
+    private ProjectRevisionMetrics(@Nonnull MeterRegistry meterRegistry, @Nonnull Tags tags) {
+        this.meterRegistry = checkNotNull(meterRegistry);
+        this.tags = checkNotNull(tags);
+        loadTimer = Timer.builder("webprotege.revisions.load.duration")
+                         .description("The time taken to load a change history")
+                         .tags(tags)
+                         .register(meterRegistry);
+        loadBytes = DistributionSummary.builder("webprotege.revisions.load.bytes")
+                                       .description("The number of bytes read when loading a change history")
+                                       .baseUnit("bytes")
+                                       .tags(tags)
+                                       .register(meterRegistry);
+        appendTimer = Timer.builder("webprotege.revisions.append.duration")
+                           .description("The time taken to append a batch of revisions to a change history file")
+                           .publishPercentileHistogram()
+                           .tags(tags)
+                           .register(meterRegistry);
+        appendBatchSize = DistributionSummary.builder("webprotege.revisions.append.batch.size")
+                                             .description("The number of revisions appended to a change history file at once")
+                                             .tags(tags)
+                                             .register(meterRegistry);
+        addRevisionLockWaitTimer = Timer.builder("webprotege.revisions.add.lock.wait")
+                                        .description("The time that adding a revision waits to acquire the store lock")
+                                        .publishPercentileHistogram()
+                                        .tags(tags)
+                                        .register(meterRegistry);
+        replayTimer = Timer.builder("webprotege.revisions.replay.duration")
+                           .description("The time taken to materialize ontologies at a revision")
+                           .tags(tags)
+                           .register(meterRegistry);
+        replayChangeCount = DistributionSummary.builder("webprotege.revisions.replay.changes")
+                                               .description("The number of changes replayed to materialize ontologies at a revision")
+                                               .tags(tags)
+                                               .register(meterRegistry);
+    }
+
+    /**
+     * Gets metrics that are not recorded anywhere
+     */
+    @Nonnull
+    public static ProjectRevisionMetrics noop() {
+        return new ProjectRevisionMetrics(new CompositeMeterRegistry(), Tags.empty());
+    }
+
+    public void recordLoad(long durationNanos, long bytesRead) {
+        loadTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        loadBytes.record(bytesRead);
+    }
+
+    public void recordAppend(long durationNanos, int batchSize) {
+        appendTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        appendBatchSize.record(batchSize);
+    }
+
+    public void recordAddRevisionLockWait(long durationNanos) {
+        addRevisionLockWaitTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordReplay(long durationNanos, long changeCount) {
+        replayTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        replayChangeCount.record(changeCount);
+    }
+
+    /**
+     * Binds the serialization queue depth and resident revision gauges to the specified store.  The gauges are
+     * removed by {@link #removeGauges()}.
+     */
+    public void bindGauges(@Nonnull RevisionStoreImpl revisionStore) {
+        registerGauge("webprotege.revisions.serialization.queue.depth",
+                      "The number of revisions waiting to be written to the change history file",
+                      revisionStore,
+                      RevisionStoreImpl::getPendingRevisionCount);
+        registerGauge("webprotege.revisions.resident.revisions",
+                      "The number of revisions whose changes are held in memory",
+                      revisionStore,
+                      RevisionStoreImpl::getResidentRevisionCount);
+        registerGauge("webprotege.revisions.resident.changes",
+                      "The number of changes held in memory",
+                      revisionStore,
+                      RevisionStoreImpl::getResidentChangeCount);
+    }
+
+    private <T> void registerGauge(String name, String description, T object, ToDoubleFunction<T> function) {
+        gauges.add(Gauge.builder(name, object, function)
+                        .description(description)
+                        .tags(tags)
+                        .register(meterRegistry));
+    }
+
+    /**
+     * Removes the gauges that are bound to a store, so that a store that is reopened can bind its own gauges.
+     */
+    public void removeGauges() {
+        gauges.forEach(meterRegistry::remove);
+        gauges.clear();
+    }
+}
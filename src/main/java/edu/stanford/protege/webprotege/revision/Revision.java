@@ -30,15 +30,26 @@ public class Revision implements Comparable<Revision> {
 
     private final String highLevelDescription;
 
+    private final RevisionType revisionType;
+
     public Revision(UserId userId, RevisionNumber revisionNumber,
                     ImmutableList<OntologyChange> changes,
                     long timestamp,
                     String highLevelDescription) {
+        this(userId, revisionNumber, changes, timestamp, highLevelDescription, RevisionType.EDIT);
+    }
+
+    public Revision(UserId userId, RevisionNumber revisionNumber,
+                    ImmutableList<OntologyChange> changes,
+                    long timestamp,
+                    String highLevelDescription,
+                    RevisionType revisionType) {
         this.changes = checkNotNull(changes);
         this.userId = checkNotNull(userId);
         this.revisionNumber = checkNotNull(revisionNumber);
         this.timestamp = timestamp;
         this.highLevelDescription = checkNotNull(highLevelDescription);
+        this.revisionType = checkNotNull(revisionType);
     }
 
     public int getSize() {
@@ -73,6 +84,18 @@ public class Revision implements Comparable<Revision> {
         return highLevelDescription != null ? highLevelDescription : "";
     }
 
+    /**
+     * Gets the type of this revision.  A {@link RevisionType#BASELINE} revision holds the state of the ontologies
+     * that the revisions before it, which have been compacted away, produced.
+     */
+    public RevisionType getRevisionType() {
+        return revisionType;
+    }
+
+    public RevisionSummary toRevisionSummary() {
+        return new RevisionSummary(revisionNumber, userId, timestamp, getSize(), getHighLevelDescription(), revisionType);
+    }
+
     @Nonnull
     public Iterator<OntologyChange> iterator() {
         return changes.iterator();
@@ -86,6 +109,7 @@ public class Revision implements Comparable<Revision> {
                 .addValue(userId)
                 .add("timestamp", timestamp)
                 .add("description", highLevelDescription)
+                .add("type", revisionType)
                 .add("changes", changes.size())
                 .toString();
     }
@@ -103,11 +127,12 @@ public class Revision implements Comparable<Revision> {
                 && this.revisionNumber.equals(other.revisionNumber)
                 && this.timestamp == other.timestamp
                 && this.highLevelDescription.equals(other.highLevelDescription)
+                && this.revisionType == other.revisionType
                 && this.changes.equals(other.changes);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(userId, revisionNumber, timestamp, highLevelDescription, changes);
+        return Objects.hashCode(userId, revisionNumber, timestamp, highLevelDescription, revisionType, changes);
     }
 }
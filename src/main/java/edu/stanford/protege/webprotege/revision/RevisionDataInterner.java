@@ -0,0 +1,83 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Interns the objects that make up revisions so that equal axioms, changes, users and descriptions are represented
+ * by a single instance, both within a change history and across the change histories of different projects.  The
+ * interner holds its canonical instances weakly, so an instance is discarded once no revision refers to it.
+ * <p>
+ * A single shared interner (see {@link #getSharedInterner()}) is used by default so that deduplication spans all of
+ * the revision stores in a process.
+ * </p>
+ */
+public class RevisionDataInterner {
+
+    private static final RevisionDataInterner sharedInterner = new RevisionDataInterner();
+
+    private final Interner<String> stringInterner = Interners.newWeakInterner();
+
+    private final Interner<UserId> userIdInterner = Interners.newWeakInterner();
+
+    private final Interner<OWLOntologyID> ontologyIdInterner = Interners.newWeakInterner();
+
+    private final Interner<OWLAxiom> axiomInterner = Interners.newWeakInterner();
+
+    private final Interner<OWLAnnotation> annotationInterner = Interners.newWeakInterner();
+
+    private final Interner<OWLImportsDeclaration> importsDeclarationInterner = Interners.newWeakInterner();
+
+    private final Interner<OntologyChange> changeInterner = Interners.newWeakInterner();
+
+    /**
+     * Gets the interner that is shared by all revision stores in this process.
+     */
+    @Nonnull
+    public static RevisionDataInterner getSharedInterner() {
+        return sharedInterner;
+    }
+
+    @Nonnull
+    public String internString(@Nonnull String string) {
+        return stringInterner.intern(string);
+    }
+
+    @Nonnull
+    public UserId internUserId(@Nonnull UserId userId) {
+        return userIdInterner.intern(userId);
+    }
+
+    @Nonnull
+    public OWLOntologyID internOntologyId(@Nonnull OWLOntologyID ontologyId) {
+        return ontologyIdInterner.intern(ontologyId);
+    }
+
+    @Nonnull
+    public OWLAxiom internAxiom(@Nonnull OWLAxiom axiom) {
+        return axiomInterner.intern(axiom);
+    }
+
+    @Nonnull
+    public OWLAnnotation internAnnotation(@Nonnull OWLAnnotation annotation) {
+        return annotationInterner.intern(annotation);
+    }
+
+    @Nonnull
+    public OWLImportsDeclaration internImportsDeclaration(@Nonnull OWLImportsDeclaration importsDeclaration) {
+        return importsDeclarationInterner.intern(importsDeclaration);
+    }
+
+    @Nonnull
+    public OntologyChange internChange(@Nonnull OntologyChange change) {
+        return changeInterner.intern(change);
+    }
+}
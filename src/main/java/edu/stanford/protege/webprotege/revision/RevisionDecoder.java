@@ -0,0 +1,92 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
+
+import javax.annotation.Nonnull;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/**
+ * Decodes the change record lists that are read from a change history file into {@link Revision}s.
+ */
+public class RevisionDecoder {
+
+    @Nonnull
+    private final OntologyChangeRecordTranslator changeRecordTranslator;
+
+    @Nonnull
+    private final RevisionDataInterner interner;
+
+    public RevisionDecoder(@Nonnull OntologyChangeRecordTranslator changeRecordTranslator) {
+        this(changeRecordTranslator, RevisionDataInterner.getSharedInterner());
+    }
+
+    public RevisionDecoder(@Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                           @Nonnull RevisionDataInterner interner) {
+        this.changeRecordTranslator = checkNotNull(changeRecordTranslator);
+        this.interner = checkNotNull(interner);
+    }
+
+    /**
+     * Gets the revision number that is recorded in the metadata of the specified change record list
+     */
+    @Nonnull
+    public static RevisionNumber getRevisionNumber(@Nonnull OntologyChangeRecordList changeRecordList) {
+        var metadata = changeRecordList.getMetadata();
+        var revisionNumberValue = metadata.getLongAttribute(RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
+        return RevisionNumber.getRevisionNumber(revisionNumberValue);
+    }
+
+    @Nonnull
+    public Revision decode(@Nonnull OntologyChangeRecordList changeRecordList) {
+        var summary = decodeSummary(changeRecordList);
+        return new Revision(summary.getUserId(),
+                            summary.getRevisionNumber(),
+                            decodeChanges(changeRecordList),
+                            summary.getTimestamp(),
+                            summary.getDescription(),
+                            summary.getRevisionType());
+    }
+
+    /**
+     * Decodes the metadata of the specified change record list into a revision summary.  The change records
+     * themselves are not translated.
+     */
+    @Nonnull
+    public RevisionSummary decodeSummary(@Nonnull OntologyChangeRecordList changeRecordList) {
+        var metadata = changeRecordList.getMetadata();
+        var userName = interner.internString(metadata.getStringAttribute(RevisionSerializationVocabulary.USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), ""));
+        var revisionNumber = getRevisionNumber(changeRecordList);
+        var description = interner.internString(metadata.getStringAttribute(RevisionSerializationVocabulary.DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), ""));
+        var userId = interner.internUserId(UserId.valueOf(userName));
+        return new RevisionSummary(revisionNumber,
+                                   userId,
+                                   changeRecordList.getTimestamp(),
+                                   changeRecordList.getChangeRecords().size(),
+                                   description,
+                                   getRevisionType(changeRecordList));
+    }
+
+    /**
+     * Gets the revision type that is recorded in the metadata of the specified change record list.  Records without
+     * a recognised type are edits.
+     */
+    @Nonnull
+    public static RevisionType getRevisionType(@Nonnull OntologyChangeRecordList changeRecordList) {
+        var metadata = changeRecordList.getMetadata();
+        var revisionType = metadata.getStringAttribute(RevisionSerializationVocabulary.REVISION_TYPE_META_DATA_ATTRIBUTE.getVocabularyName(), RevisionType.EDIT.name());
+        return RevisionType.BASELINE.name().equals(revisionType) ? RevisionType.BASELINE : RevisionType.EDIT;
+    }
+
+    @Nonnull
+    public ImmutableList<OntologyChange> decodeChanges(@Nonnull OntologyChangeRecordList changeRecordList) {
+        return changeRecordList.getChangeRecords()
+                .stream()
+                .map(changeRecordTranslator::getOntologyChange)
+                .collect(toImmutableList());
+    }
+}
@@ -0,0 +1,119 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import org.semanticweb.owlapi.model.OWLAxiom;
+
+import javax.annotation.Nonnull;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The net difference between the ontologies at two revisions.  The net changes are the changes that, when applied to
+ * the ontologies at the "from" revision, produce the ontologies at the "to" revision.  An axiom, ontology annotation
+ * or import that is added and then removed (or removed and then added) between the two revisions does not appear in
+ * the net changes.
+ */
+public class RevisionDiff {
+
+    @Nonnull
+    private final RevisionNumber fromRevision;
+
+    @Nonnull
+    private final RevisionNumber toRevision;
+
+    @Nonnull
+    private final ImmutableList<OntologyChange> additions;
+
+    @Nonnull
+    private final ImmutableList<OntologyChange> removals;
+
+    @Nonnull
+    private final ImmutableSet<OWLAxiom> addedAxioms;
+
+    @Nonnull
+    private final ImmutableSet<OWLAxiom> removedAxioms;
+
+    public RevisionDiff(@Nonnull RevisionNumber fromRevision,
+                        @Nonnull RevisionNumber toRevision,
+                        @Nonnull ImmutableList<OntologyChange> additions,
+                        @Nonnull ImmutableList<OntologyChange> removals,
+                        @Nonnull ImmutableSet<OWLAxiom> addedAxioms,
+                        @Nonnull ImmutableSet<OWLAxiom> removedAxioms) {
+        this.fromRevision = checkNotNull(fromRevision);
+        this.toRevision = checkNotNull(toRevision);
+        this.additions = checkNotNull(additions);
+        this.removals = checkNotNull(removals);
+        this.addedAxioms = checkNotNull(addedAxioms);
+        this.removedAxioms = checkNotNull(removedAxioms);
+    }
+
+    @Nonnull
+    public RevisionNumber getFromRevision() {
+        return fromRevision;
+    }
+
+    @Nonnull
+    public RevisionNumber getToRevision() {
+        return toRevision;
+    }
+
+    /**
+     * Gets the net changes.  Removals come before additions.
+     */
+    @Nonnull
+    public ImmutableList<OntologyChange> getChanges() {
+        return ImmutableList.<OntologyChange>builder()
+                            .addAll(removals)
+                            .addAll(additions)
+                            .build();
+    }
+
+    /**
+     * Gets the net changes that add axioms, ontology annotations or imports.
+     */
+    @Nonnull
+    public ImmutableList<OntologyChange> getAdditions() {
+        return additions;
+    }
+
+    /**
+     * Gets the net changes that remove axioms, ontology annotations or imports.
+     */
+    @Nonnull
+    public ImmutableList<OntologyChange> getRemovals() {
+        return removals;
+    }
+
+    /**
+     * Gets the axioms that are added, in any ontology.
+     */
+    @Nonnull
+    public ImmutableSet<OWLAxiom> getAddedAxioms() {
+        return addedAxioms;
+    }
+
+    /**
+     * Gets the axioms that are removed, from any ontology.
+     */
+    @Nonnull
+    public ImmutableSet<OWLAxiom> getRemovedAxioms() {
+        return removedAxioms;
+    }
+
+    public boolean isEmpty() {
+        return additions.isEmpty() && removals.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper("RevisionDiff")
+                .add("fromRevision", fromRevision)
+                .add("toRevision", toRevision)
+                .add("additions", additions.size())
+                .add("removals", removals.size())
+                .toString();
+    }
+}
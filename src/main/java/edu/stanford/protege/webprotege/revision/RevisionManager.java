@@ -3,11 +3,15 @@ package edu.stanford.protege.webprotege.revision;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.protege.webprotege.change.OntologyChange;
 import edu.stanford.protege.webprotege.common.UserId;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import javax.annotation.Nonnull;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Matthew Horridge
@@ -53,12 +57,107 @@ public interface RevisionManager extends HasGetRevisionSummary {
     @Nonnull
     ImmutableList<Revision> getRevisions();
 
+    /**
+     * Gets the numbers of the revisions that contain changes that mention the specified entity.  This is answered
+     * from an index and does not examine the changes in each revision.
+     * @param entityIri The IRI of the entity.  Not {@code null}.
+     * @return The revision numbers in ascending order.  The array is a copy and may be modified by the caller.
+     */
+    @Nonnull
+    long[] getRevisionNumbersForEntity(@Nonnull IRI entityIri);
+
+    /**
+     * Gets the net difference between the ontologies at two revisions.  This is computed from the changes in the
+     * revisions between the two revisions, without materializing the ontologies at either revision.
+     * @param fromRevision The revision to compare from.  The head revision number denotes the current revision.
+     * @param toRevision The revision to compare to.  The head revision number denotes the current revision.  This
+     *                   may be before the "from" revision, in which case the difference undoes the intervening
+     *                   revisions.
+     * @return The net changes that transform the ontologies at the "from" revision into the ontologies at the "to"
+     * revision.
+     * @throws IllegalArgumentException if either revision does not exist.  Revision zero, the empty history, always
+     * exists.
+     */
+    @Nonnull
+    RevisionDiff getNetChanges(@Nonnull RevisionNumber fromRevision, @Nonnull RevisionNumber toRevision);
+
+    /**
+     * Gets the revision that was in effect at the specified instant.  The returned revision number can be passed to
+     * {@link #getOntologyManagerForRevision(RevisionNumber)} to get the ontologies as of the instant.
+     * @param instant The instant.  Not {@code null}.
+     * @return The number of the latest revision that had taken effect by the instant, or zero if there was none.
+     */
+    @Nonnull
+    RevisionNumber getRevisionAt(@Nonnull Instant instant);
+
+    /**
+     * Gets summaries of the revisions that took effect in the specified period.
+     * @param from The start of the period, inclusive.  Not {@code null}.
+     * @param to The end of the period, exclusive.  Not {@code null}.
+     * @return The summaries, ordered by revision number.  Not {@code null}.
+     */
+    @Nonnull
+    List<RevisionSummary> getRevisionsBetween(@Nonnull Instant from, @Nonnull Instant to);
+
+    /**
+     * Gets the numbers of the revisions that the specified user has made.
+     * @param userId The user.  Not {@code null}.
+     * @return The revision numbers in ascending order.  The array is a copy and may be modified by the caller.
+     */
+    @Nonnull
+    long[] getRevisionNumbersForUser(@Nonnull UserId userId);
+
+    /**
+     * Gets statistics about the revisions that the specified user has made.
+     * @param userId The user.  Not {@code null}.
+     * @return The contribution, or an absent value if the user has not made any revisions.
+     */
+    @Nonnull
+    Optional<UserContribution> getContribution(@Nonnull UserId userId);
+
+    /**
+     * Gets statistics about the revisions that each user has made.
+     * @return The contributions, in the order that users first made a revision.
+     */
+    @Nonnull
+    List<UserContribution> getContributions();
+
     @Nonnull
     OWLOntologyManager getOntologyManagerForRevision(@Nonnull RevisionNumber revision);
 
     @Nonnull
     List<RevisionSummary> getRevisionSummaries();
 
+    /**
+     * Gets summaries of the revisions that have revision numbers at or after the specified revision number.
+     * @param fromRevisionNumber The revision number of the first summary.  Not {@code null}.
+     * @param limit The maximum number of summaries.
+     * @return At most {@code limit} summaries, ordered by revision number.  Not {@code null}.
+     */
+    @Nonnull
+    List<RevisionSummary> getRevisionSummaries(@Nonnull RevisionNumber fromRevisionNumber, int limit);
+
+    /**
+     * Gets a page of revision summaries, newest first.
+     * @param cursor The cursor returned with the previous page, or the head revision number for the first page.  Not
+     * {@code null}.
+     * @param pageSize The maximum number of summaries in the page.
+     * @return The page.  Not {@code null}.
+     */
+    @Nonnull
+    RevisionSummaryPage getRevisionSummaryPage(@Nonnull RevisionNumber cursor, int pageSize);
+
+    /**
+     * Streams the revisions that have revision numbers in the specified range.  Revisions are read as the stream is
+     * consumed, so callers that only need some of the revisions should limit the stream.
+     * @param fromRevisionNumber The first revision number, inclusive.  Not {@code null}.
+     * @param toRevisionNumber The last revision number, inclusive.  The head revision number denotes the current
+     *                         revision.  Not {@code null}.
+     * @return The revisions, ordered by revision number.  Not {@code null}.
+     */
+    @Nonnull
+    Stream<Revision> streamRevisions(@Nonnull RevisionNumber fromRevisionNumber, @Nonnull RevisionNumber toRevisionNumber);
+
 
     /**
      * Adds a new revision that is based on the specified details.  If the list of changes is empty then no revision
@@ -72,4 +171,30 @@ public interface RevisionManager extends HasGetRevisionSummary {
                          @Nonnull List<OntologyChange> changes,
                          @Nonnull String desc);
 
+    /**
+     * Adds a revision for each of the specified requests as a single unit.  The revisions are given consecutive
+     * revision numbers, in the order of the requests, and they become visible together.  They are written to storage
+     * together, so {@link #whenPersisted(RevisionNumber)} for the last revision completes when all of them have been
+     * persisted.  Their timestamps are strictly increasing, a millisecond apart, so that a point in time never falls
+     * part way through the batch.
+     * @param requests The requests.  Not {@code null}.
+     * @return The revisions that were added, in revision number order.  Empty if there are no requests.
+     */
+    @Nonnull
+    ImmutableList<Revision> addRevisions(@Nonnull List<RevisionRequest> requests);
+
+    /**
+     * Gets a future that completes when the specified revision has been persisted.
+     * @param revisionNumber The revision number.  The head revision number denotes the current revision.
+     * @return A future that completes with the revision number once the revision has been persisted, or that
+     * completes exceptionally if the revision could not be persisted.
+     */
+    @Nonnull
+    CompletableFuture<RevisionNumber> whenPersisted(@Nonnull RevisionNumber revisionNumber);
+
+    /**
+     * Gets the revision number of the latest revision such that it, and every revision before it, has been persisted.
+     */
+    @Nonnull
+    RevisionNumber getPersistedRevision();
 }
@@ -4,6 +4,8 @@ import edu.stanford.protege.webprotege.common.ProjectId;
 
 import javax.annotation.Nonnull;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
@@ -11,15 +13,39 @@ import javax.annotation.Nonnull;
  */
 public class RevisionManagerFactory {
 
-    private final RevisionStoreFactory revisionStoreFactory;
+    private final RevisionStoreRegistry revisionStoreRegistry;
 
     public RevisionManagerFactory(RevisionStoreFactory revisionStoreFactory) {
-        this.revisionStoreFactory = revisionStoreFactory;
+        this(revisionStoreFactory, new RevisionManagerSettings());
+    }
+
+    public RevisionManagerFactory(RevisionStoreFactory revisionStoreFactory,
+                                  RevisionManagerSettings settings) {
+        this(revisionStoreFactory, settings, RevisionMetrics.noop());
+    }
+
+    public RevisionManagerFactory(RevisionStoreFactory revisionStoreFactory,
+                                  RevisionManagerSettings settings,
+                                  RevisionMetrics metrics) {
+        this(new RevisionStoreRegistry(revisionStoreFactory, settings, metrics));
+    }
+
+    /**
+     * Creates a factory whose revision managers share the open projects in the specified registry, so that a
+     * project is only opened once however many managers are created for it.
+     */
+    public RevisionManagerFactory(RevisionStoreRegistry revisionStoreRegistry) {
+        this.revisionStoreRegistry = checkNotNull(revisionStoreRegistry);
     }
 
+    /**
+     * Creates a revision manager for the specified project.  The manager uses the store for the project that is held
+     * by the registry, opening the project if it is not open.
+     */
     @Nonnull
     public RevisionManager createRevisionManager(@Nonnull ProjectId projectId) {
-        var revisionStore = revisionStoreFactory.createRevisionStore(projectId);
-        return new RevisionManagerImpl(revisionStore);
+        var revisionManager = revisionStoreRegistry.getRevisionManager(projectId);
+        revisionStoreRegistry.open(projectId);
+        return revisionManager;
     }
 }
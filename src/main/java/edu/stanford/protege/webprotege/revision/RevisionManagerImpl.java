@@ -3,39 +3,82 @@ package edu.stanford.protege.webprotege.revision;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.protege.webprotege.change.OntologyChange;
 import edu.stanford.protege.webprotege.common.UserId;
-import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.util.stream.Collectors.toList;
 
 /**
  * Author: Matthew Horridge<br>
  * Stanford University<br>
  * Bio-Medical Informatics Research Group<br>
  * Date: 05/04/2012
+ * <p>
+ *     If {@link RevisionManagerSettings#isMaintainHeadOntology()} is set then the manager keeps the ontologies at the
+ *     head revision materialized.  They are materialized on the first request for the head revision and are updated
+ *     in place as revisions are added.  Requests for the head revision receive a copy.
+ * </p>
  */
 public class RevisionManagerImpl implements RevisionManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(RevisionManagerImpl.class);
+
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
     private final Lock writeLock = readWriteLock.writeLock();
 
     private final RevisionStore revisionStore;
 
-    @Inject
+    private final boolean maintainHeadOntology;
+
+    /**
+     * The ontologies at the head revision.  Guarded by the write lock.
+     */
+    @Nullable
+    private OntologyReplayer headOntology;
+
+    /**
+     * The number of the last revision that was applied to the head ontology.  Revisions can be added to the store
+     * through other managers, so this is compared with the current revision number of the store whenever the head
+     * ontology is used.  Guarded by the write lock.
+     */
+    @Nonnull
+    private RevisionNumber headOntologyRevisionNumber = RevisionNumber.getRevisionNumber(0);
+
+    @Nonnull
+    private final ProjectRevisionMetrics projectMetrics;
+
     public RevisionManagerImpl(@Nonnull RevisionStore revisionStore) {
+        this(revisionStore, new RevisionManagerSettings());
+    }
+
+    public RevisionManagerImpl(@Nonnull RevisionStore revisionStore,
+                               @Nonnull RevisionManagerSettings settings) {
+        this(revisionStore, settings, ProjectRevisionMetrics.noop());
+    }
+
+    @Inject
+    public RevisionManagerImpl(@Nonnull RevisionStore revisionStore,
+                               @Nonnull RevisionManagerSettings settings,
+                               @Nonnull ProjectRevisionMetrics projectMetrics) {
         this.revisionStore = checkNotNull(revisionStore);
+        this.maintainHeadOntology = settings.isMaintainHeadOntology();
+        this.projectMetrics = checkNotNull(projectMetrics);
     }
 
     @Nonnull
@@ -55,12 +98,44 @@ public class RevisionManagerImpl implements RevisionManager {
                     timestamp,
                     desc);
             revisionStore.addRevision(revision);
+            updateHeadOntology(revision);
             return revision;
         } finally {
             writeLock.unlock();
         }
     }
 
+    @Nonnull
+    @Override
+    public ImmutableList<Revision> addRevisions(@Nonnull List<RevisionRequest> requests) {
+        checkNotNull(requests);
+        if(requests.isEmpty()) {
+            return ImmutableList.of();
+        }
+        try {
+            writeLock.lock();
+            long timestamp = System.currentTimeMillis();
+            RevisionNumber revisionNumber = revisionStore.getCurrentRevisionNumber();
+            var revisions = ImmutableList.<Revision>builderWithExpectedSize(requests.size());
+            for(var request : requests) {
+                revisionNumber = revisionNumber.getNextRevisionNumber();
+                revisions.add(new Revision(request.userId(),
+                                           revisionNumber,
+                                           ImmutableList.copyOf(request.changes()),
+                                           timestamp,
+                                           request.description()));
+                // Each revision in the batch has its own timestamp, so getRevisionAt resolves to a single revision
+                timestamp++;
+            }
+            var addedRevisions = revisions.build();
+            revisionStore.addRevisions(addedRevisions);
+            addedRevisions.forEach(this::updateHeadOntology);
+            return addedRevisions;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
 
     @Nonnull
     @Override
@@ -70,27 +145,101 @@ public class RevisionManagerImpl implements RevisionManager {
 
     @Nonnull
     @Override
-    public OWLOntologyManager getOntologyManagerForRevision(@Nonnull RevisionNumber revision) {
+    public CompletableFuture<RevisionNumber> whenPersisted(@Nonnull RevisionNumber revisionNumber) {
+        return revisionStore.whenPersisted(revisionNumber);
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getPersistedRevision() {
+        return revisionStore.getPersistedRevisionNumber();
+    }
+
+    /**
+     * Applies the changes in the specified revision to the head ontology, if it has been materialized and the
+     * revision directly follows the last revision that was applied to it.  Otherwise, revisions have been added to
+     * the store by something other than this manager and the head ontology is brought up to date when it is next
+     * used.  Must be called with the write lock held.
+     */
+    private void updateHeadOntology(@Nonnull Revision revision) {
+        if(headOntology == null) {
+            return;
+        }
+        if(!revision.getRevisionNumber().equals(headOntologyRevisionNumber.getNextRevisionNumber())) {
+            return;
+        }
         try {
-            OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-            final OWLOntologyID singletonOntologyId = new OWLOntologyID();
-            for(Revision rev : revisionStore.getRevisions()) {
-                if(rev.getRevisionNumber()
-                      .compareTo(revision) <= 0) {
-                    for(OntologyChange record : rev.getChanges()) {
-                        // Anonymous ontologies are not handled nicely at all.
-                        var normalisedChangeRecord = normaliseChangeRecord(record, singletonOntologyId);
-                        var ontologyId = normalisedChangeRecord.getOntologyId();
-                        if(!manager.contains(ontologyId)) {
-                            manager.createOntology(ontologyId);
-                        }
-                        var change = normalisedChangeRecord
-                                .toOwlOntologyChangeRecord()
-                                .createOntologyChange(manager);
-                        manager.applyChange(change);
+            headOntology.replay(revision.getChanges());
+            headOntologyRevisionNumber = revision.getRevisionNumber();
+        } catch(OWLOntologyCreationException e) {
+            logger.warn("Could not update head ontology.  It will be rebuilt.  Cause: {}", e.getMessage(), e);
+            headOntology = null;
+        }
+    }
+
+    /**
+     * Brings the head ontology up to the specified revision, which is the current revision of the store.  Revisions
+     * that were added to the store by something other than this manager are replayed into the head ontology.  If
+     * the head ontology has not been materialized, or is ahead of the store because the store was reloaded, then it
+     * is rebuilt.  Must be called with the write lock held.
+     */
+    private void refreshHeadOntology(@Nonnull RevisionNumber currentRevisionNumber) throws OWLOntologyCreationException {
+        if(headOntology != null && headOntologyRevisionNumber.compareTo(currentRevisionNumber) < 0) {
+            try(var missingRevisions = revisionStore.streamRevisions(headOntologyRevisionNumber.getNextRevisionNumber(), currentRevisionNumber)) {
+                for(var iterator = missingRevisions.iterator(); iterator.hasNext(); ) {
+                    var revision = iterator.next();
+                    if(revision.getRevisionType() == RevisionType.BASELINE) {
+                        headOntology.clear();
                     }
+                    headOntology.replay(revision.getChanges());
+                    headOntologyRevisionNumber = revision.getRevisionNumber();
                 }
+            } catch(OWLOntologyCreationException e) {
+                logger.warn("Could not update head ontology.  It will be rebuilt.  Cause: {}", e.getMessage(), e);
+                headOntology = null;
+            }
+        }
+        if(headOntology == null || !headOntologyRevisionNumber.equals(currentRevisionNumber)) {
+            headOntology = OntologyReplayer.replayToRevision(revisionStore, currentRevisionNumber);
+            headOntologyRevisionNumber = currentRevisionNumber;
+        }
+    }
+
+    /**
+     * Gets a copy of the materialized head ontology, materializing it first if necessary.
+     * @param revision The requested revision
+     * @return A replayer holding the copy, or null if the requested revision is not the head revision
+     */
+    @Nullable
+    private OntologyReplayer copyHeadOntology(@Nonnull RevisionNumber revision) throws OWLOntologyCreationException {
+        try {
+            // OWL API ontologies are not safe for concurrent reads, so copying is exclusive
+            writeLock.lock();
+            var currentRevisionNumber = revisionStore.getCurrentRevisionNumber();
+            if(!revision.isHead() && !revision.equals(currentRevisionNumber)) {
+                return null;
             }
+            refreshHeadOntology(currentRevisionNumber);
+            var copy = new OntologyReplayer();
+            copy.createOntologies(OntologyReplayer.getOntologyIds(headOntology.getOntologyManager()));
+            copy.replay(OntologyReplayer.toChanges(headOntology.getOntologyManager()));
+            return copy;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public OWLOntologyManager getOntologyManagerForRevision(@Nonnull RevisionNumber revision) {
+        try {
+            var replayStart = System.nanoTime();
+            var replayer = maintainHeadOntology ? copyHeadOntology(revision) : null;
+            if(replayer == null) {
+                replayer = OntologyReplayer.replayToRevision(revisionStore, revision);
+            }
+            projectMetrics.recordReplay(System.nanoTime() - replayStart, replayer.getReplayedChangeCount());
+            var manager = replayer.getOntologyManager();
             if(manager.getOntologies()
                       .isEmpty()) {
                 // No revisions exported.  Just create an empty ontology
@@ -102,18 +251,6 @@ public class RevisionManagerImpl implements RevisionManager {
         }
     }
 
-    private OntologyChange normaliseChangeRecord(@Nonnull OntologyChange change,
-                                                 @Nonnull OWLOntologyID singletonAnonymousId) {
-        var ontologyID = change.getOntologyId();
-        if(ontologyID.isAnonymous()) {
-            return change.replaceOntologyId(singletonAnonymousId);
-        }
-        else {
-            // As is
-            return change;
-        }
-    }
-
     @Nonnull
     @Override
     public ImmutableList<Revision> getRevisions() {
@@ -136,26 +273,96 @@ public class RevisionManagerImpl implements RevisionManager {
     @Nonnull
     @Override
     public Optional<RevisionSummary> getRevisionSummary(@Nonnull RevisionNumber revisionNumber) {
-        Optional<Revision> revision = revisionStore.getRevision(revisionNumber);
-        return revision.map(RevisionManagerImpl::toRevisionSummary);
+        return revisionStore.getRevisionSummary(revisionNumber);
+    }
 
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionSummaries() {
+        return revisionStore.getRevisionSummaries();
     }
 
-    private static RevisionSummary toRevisionSummary(Revision revision) {
-        return new RevisionSummary(revision.getRevisionNumber(),
-                                   revision.getUserId(),
-                                   revision.getTimestamp(),
-                                   revision.getSize(),
-                                   revision.getHighLevelDescription());
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionSummaries(@Nonnull RevisionNumber fromRevisionNumber, int limit) {
+        return revisionStore.getRevisionSummaries(checkNotNull(fromRevisionNumber), limit);
     }
 
     @Nonnull
     @Override
-    public List<RevisionSummary> getRevisionSummaries() {
-        return revisionStore.getRevisions()
-                            .stream()
-                            .map(RevisionManagerImpl::toRevisionSummary)
-                            .collect(toList());
+    public RevisionSummaryPage getRevisionSummaryPage(@Nonnull RevisionNumber cursor, int pageSize) {
+        return revisionStore.getRevisionSummaryPage(checkNotNull(cursor), pageSize);
+    }
+
+    @Nonnull
+    @Override
+    public Stream<Revision> streamRevisions(@Nonnull RevisionNumber fromRevisionNumber, @Nonnull RevisionNumber toRevisionNumber) {
+        return revisionStore.streamRevisions(checkNotNull(fromRevisionNumber), checkNotNull(toRevisionNumber));
+    }
+
+    @Nonnull
+    @Override
+    public RevisionDiff getNetChanges(@Nonnull RevisionNumber fromRevision, @Nonnull RevisionNumber toRevision) {
+        var from = resolveRevisionNumber(fromRevision);
+        var to = resolveRevisionNumber(toRevision);
+        var lower = from.compareTo(to) <= 0 ? from : to;
+        var upper = from.compareTo(to) <= 0 ? to : from;
+        var collector = new NetChangeCollector();
+        // Only the revisions in (lower, upper] are read, one at a time
+        try(var revisions = revisionStore.streamRevisions(lower.getNextRevisionNumber(), upper)) {
+            revisions.forEach(revision -> collector.addAll(revision.getChanges()));
+        }
+        return from.compareTo(to) <= 0 ? collector.toDiff(from, to) : collector.toInverseDiff(from, to);
+    }
+
+    /**
+     * Resolves the head revision number to the current revision and checks that any other revision exists.
+     */
+    private RevisionNumber resolveRevisionNumber(@Nonnull RevisionNumber revisionNumber) {
+        checkNotNull(revisionNumber);
+        if(revisionNumber.isHead()) {
+            return revisionStore.getCurrentRevisionNumber();
+        }
+        if(revisionNumber.getValue() != 0 && revisionStore.getRevisionSummary(revisionNumber).isEmpty()) {
+            throw new IllegalArgumentException("Revision " + revisionNumber.getValue() + " does not exist");
+        }
+        return revisionNumber;
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getRevisionAt(@Nonnull Instant instant) {
+        return revisionStore.getRevisionNumberAt(checkNotNull(instant));
+    }
+
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionsBetween(@Nonnull Instant from, @Nonnull Instant to) {
+        return revisionStore.getRevisionSummariesBetween(checkNotNull(from), checkNotNull(to));
+    }
+
+    @Nonnull
+    @Override
+    public long[] getRevisionNumbersForUser(@Nonnull UserId userId) {
+        return revisionStore.getRevisionNumbersForUser(checkNotNull(userId));
+    }
+
+    @Nonnull
+    @Override
+    public Optional<UserContribution> getContribution(@Nonnull UserId userId) {
+        return revisionStore.getContribution(checkNotNull(userId));
+    }
+
+    @Nonnull
+    @Override
+    public List<UserContribution> getContributions() {
+        return revisionStore.getContributions();
+    }
+
+    @Nonnull
+    @Override
+    public long[] getRevisionNumbersForEntity(@Nonnull IRI entityIri) {
+        return revisionStore.getRevisionNumbersForEntity(checkNotNull(entityIri));
     }
 
 }
@@ -0,0 +1,265 @@
+package edu.stanford.protege.webprotege.revision;
+
+import java.time.Duration;
+
+/**
+ * Settings that control how revision stores hold, load and persist the change history of a project.  In a Spring
+ * Boot application these are bound from properties that have the prefix {@code webprotege.revisions}.
+ */
+public class RevisionManagerSettings {
+
+    private boolean lazyChangeLoading = false;
+
+    private long changeCacheSize = 250_000;
+
+    private int checkpointRevisionInterval = 1_000;
+
+    private int checkpointChangeInterval = 100_000;
+
+    private int maxCheckpoints = 5;
+
+    private boolean maintainHeadOntology = false;
+
+    private int maxSerializationBatchSize = 1_000;
+
+    private DurabilityMode durabilityMode = DurabilityMode.ASYNC;
+
+    private Duration groupFsyncInterval = Duration.ofMillis(50);
+
+    private boolean parallelLoading = false;
+
+    private int loadParallelism = 0;
+
+    private Duration storeIdleTimeout = Duration.ofMinutes(30);
+
+    private long storeHeapBudget = 0;
+
+    private boolean persistEntityRevisionIndex = true;
+
+    private int compressedBlockSize = 256 * 1024;
+
+    private boolean warmUpOnStartup = false;
+
+    private int warmUpParallelism = 2;
+
+    private int asyncParallelism = 0;
+
+    /**
+     * Determines whether revision stores keep only revision summaries in memory, and read the changes for a
+     * revision from the change history file when the revision is requested.
+     */
+    public boolean isLazyChangeLoading() {
+        return lazyChangeLoading;
+    }
+
+    public void setLazyChangeLoading(boolean lazyChangeLoading) {
+        this.lazyChangeLoading = lazyChangeLoading;
+    }
+
+    /**
+     * Gets the maximum number of changes, per revision store, that are cached when lazy change loading is enabled.
+     */
+    public long getChangeCacheSize() {
+        return changeCacheSize;
+    }
+
+    public void setChangeCacheSize(long changeCacheSize) {
+        this.changeCacheSize = changeCacheSize;
+    }
+
+    /**
+     * Gets the number of revisions after which a new ontology checkpoint is written.  A value of zero means that
+     * checkpoints are not written based on the number of revisions.
+     */
+    public int getCheckpointRevisionInterval() {
+        return checkpointRevisionInterval;
+    }
+
+    public void setCheckpointRevisionInterval(int checkpointRevisionInterval) {
+        this.checkpointRevisionInterval = checkpointRevisionInterval;
+    }
+
+    /**
+     * Gets the number of changes after which a new ontology checkpoint is written.  A value of zero means that
+     * checkpoints are not written based on the number of changes.
+     */
+    public int getCheckpointChangeInterval() {
+        return checkpointChangeInterval;
+    }
+
+    public void setCheckpointChangeInterval(int checkpointChangeInterval) {
+        this.checkpointChangeInterval = checkpointChangeInterval;
+    }
+
+    /**
+     * Gets the maximum number of ontology checkpoints that are kept for a project.  When this number is exceeded
+     * the oldest checkpoints are deleted.
+     */
+    public int getMaxCheckpoints() {
+        return maxCheckpoints;
+    }
+
+    public void setMaxCheckpoints(int maxCheckpoints) {
+        this.maxCheckpoints = maxCheckpoints;
+    }
+
+    /**
+     * Determines whether revision managers keep a materialized copy of the ontologies at the head revision, which is
+     * updated as revisions are added, so that requests for the head revision do not replay the change history.
+     */
+    public boolean isMaintainHeadOntology() {
+        return maintainHeadOntology;
+    }
+
+    public void setMaintainHeadOntology(boolean maintainHeadOntology) {
+        this.maintainHeadOntology = maintainHeadOntology;
+    }
+
+    /**
+     * Gets the maximum number of pending revisions that are written to the change history file in a single append.
+     * Pending revisions are written in batches whose size is the number of revisions that are waiting to be written,
+     * up to this maximum.
+     */
+    public int getMaxSerializationBatchSize() {
+        return maxSerializationBatchSize;
+    }
+
+    public void setMaxSerializationBatchSize(int maxSerializationBatchSize) {
+        this.maxSerializationBatchSize = maxSerializationBatchSize;
+    }
+
+    /**
+     * Gets the mode that determines when revisions that have been written to the change history file are considered
+     * to be persisted.
+     */
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+
+    public void setDurabilityMode(DurabilityMode durabilityMode) {
+        this.durabilityMode = durabilityMode;
+    }
+
+    /**
+     * Gets the interval at which the change history file is forced to storage when the durability mode is
+     * {@link DurabilityMode#GROUP_FSYNC}.
+     */
+    public Duration getGroupFsyncInterval() {
+        return groupFsyncInterval;
+    }
+
+    public void setGroupFsyncInterval(Duration groupFsyncInterval) {
+        this.groupFsyncInterval = groupFsyncInterval;
+    }
+
+    /**
+     * Determines whether change histories are loaded in parallel.  Record boundaries are found first, from the change
+     * log index or with a scan that skips change data, and then runs of records are decoded in parallel.
+     */
+    public boolean isParallelLoading() {
+        return parallelLoading;
+    }
+
+    public void setParallelLoading(boolean parallelLoading) {
+        this.parallelLoading = parallelLoading;
+    }
+
+    /**
+     * Gets the number of threads that decode a change history when parallel loading is enabled.  A value of zero
+     * means that the number of available processors is used.
+     */
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
+    /**
+     * Gets the time after which a revision store that has not been accessed is evicted from the
+     * {@link RevisionStoreRegistry}.  A zero duration means that stores are never evicted for being idle.
+     */
+    public Duration getStoreIdleTimeout() {
+        return storeIdleTimeout;
+    }
+
+    public void setStoreIdleTimeout(Duration storeIdleTimeout) {
+        this.storeIdleTimeout = storeIdleTimeout;
+    }
+
+    /**
+     * Gets the estimated heap, in bytes, that the revision stores that are held open by the
+     * {@link RevisionStoreRegistry} may use in total.  When the budget is exceeded the least recently used stores are
+     * evicted.  A value of zero means that there is no budget.
+     */
+    public long getStoreHeapBudget() {
+        return storeHeapBudget;
+    }
+
+    public void setStoreHeapBudget(long storeHeapBudget) {
+        this.storeHeapBudget = storeHeapBudget;
+    }
+
+    /**
+     * Determines whether the index from entities to the revisions that mention them is saved next to the change
+     * history file, so that only revisions that have been added since it was saved are indexed when a change
+     * history is loaded.
+     */
+    public boolean isPersistEntityRevisionIndex() {
+        return persistEntityRevisionIndex;
+    }
+
+    public void setPersistEntityRevisionIndex(boolean persistEntityRevisionIndex) {
+        this.persistEntityRevisionIndex = persistEntityRevisionIndex;
+    }
+
+    /**
+     * Gets the uncompressed size, in bytes, of the blocks that revisions are grouped into when a change history is
+     * sealed into a {@link CompressedChangeLog}.  Larger blocks compress better, but more has to be decompressed to
+     * read a single revision.
+     */
+    public int getCompressedBlockSize() {
+        return compressedBlockSize;
+    }
+
+    public void setCompressedBlockSize(int compressedBlockSize) {
+        this.compressedBlockSize = compressedBlockSize;
+    }
+
+    /**
+     * Determines whether the projects that were open when the application was last shut down are loaded when it
+     * starts.  See {@link RevisionStoreWarmUpService}.
+     */
+    public boolean isWarmUpOnStartup() {
+        return warmUpOnStartup;
+    }
+
+    public void setWarmUpOnStartup(boolean warmUpOnStartup) {
+        this.warmUpOnStartup = warmUpOnStartup;
+    }
+
+    /**
+     * Gets the maximum number of projects that are loaded at the same time when projects are warmed up.
+     */
+    public int getWarmUpParallelism() {
+        return warmUpParallelism;
+    }
+
+    public void setWarmUpParallelism(int warmUpParallelism) {
+        this.warmUpParallelism = warmUpParallelism;
+    }
+
+    /**
+     * Gets the number of threads that run operations for the {@link AsyncRevisionService} when the Java runtime does
+     * not support virtual threads.  Operations that are submitted while every thread is busy wait in a queue.  A
+     * value of zero means that the number of available processors is used.
+     */
+    public int getAsyncParallelism() {
+        return asyncParallelism;
+    }
+
+    public void setAsyncParallelism(int asyncParallelism) {
+        this.asyncParallelism = asyncParallelism;
+    }
+}
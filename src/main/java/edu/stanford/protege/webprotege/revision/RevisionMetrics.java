@@ -0,0 +1,48 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.ProjectId;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Creates the Micrometer meters that revision stores and revision managers record to.  Meters are tagged with the
+ * project that they describe.
+ * <p>
+ * The meters are registered with the application's {@link MeterRegistry}.  Publishing them, for example through the
+ * Spring Boot actuator's Prometheus endpoint, is left to the application that deploys this module.
+ * </p>
+ */
+public class RevisionMetrics {
+
+    static final String PROJECT_TAG = "project";
+
+    @Nonnull
+    private final MeterRegistry meterRegistry;
+
+    @Inject
+    public RevisionMetrics(@Nonnull MeterRegistry meterRegistry) {
+        this.meterRegistry = checkNotNull(meterRegistry);
+    }
+
+    /**
+     * Gets metrics that are not recorded anywhere
+     */
+    @Nonnull
+    public static RevisionMetrics noop() {
+        // A composite registry without any child registries discards everything that is recorded to it
+        return new RevisionMetrics(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Gets the metrics for the specified project.
+     */
+    @Nonnull
+    public ProjectRevisionMetrics forProject(@Nonnull ProjectId projectId) {
+        return new ProjectRevisionMetrics(meterRegistry, projectId);
+    }
+}
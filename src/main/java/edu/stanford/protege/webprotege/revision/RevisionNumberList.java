@@ -0,0 +1,56 @@
+package edu.stanford.protege.webprotege.revision;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of revision numbers held as primitive longs.  Revision numbers are appended in increasing order, so
+ * the list is always sorted.  This class is not thread safe.
+ */
+final class RevisionNumberList {
+
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private long[] values;
+
+    private int size = 0;
+
+    public RevisionNumberList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RevisionNumberList(int capacity) {
+        values = new long[Math.max(DEFAULT_CAPACITY, capacity)];
+    }
+
+    public void add(long revisionNumber) {
+        if(size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = revisionNumber;
+        size++;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the array that holds the revision numbers in this list.  Only the first {@link #size()} elements are
+     * revision numbers.  Adding a revision number never overwrites the elements before it, so the array may be
+     * shared with readers that only read those elements.
+     */
+    long[] getValues() {
+        return values;
+    }
+
+    /**
+     * Gets a copy of the revision numbers in this list.
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,146 @@
+package edu.stanford.protege.webprotege.revision;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Tracks the persisted revision watermark of a revision store, which is the highest revision number at or below
+ * which every revision has been persisted, and completes the futures of callers that are waiting for revisions to be
+ * persisted.
+ * <p>
+ * Revisions that could not be written are recorded as failed.  The watermark never advances past the first failed
+ * revision, but revisions after it that were written still complete their futures normally, and the futures for a
+ * failed revision complete exceptionally.  The causes of at most {@link #MAX_RECORDED_FAILURES} failed revisions are
+ * kept.  A revision whose cause has been discarded is still reported as not persisted.
+ * </p>
+ */
+class RevisionPersistenceTracker {
+
+    static final int MAX_RECORDED_FAILURES = 10_000;
+
+    /**
+     * The highest revision number at or below which every revision that was not recorded as failed has been
+     * persisted
+     */
+    private volatile long writtenRevisionNumber = 0;
+
+    /**
+     * The number of the first revision that could not be written, or {@link Long#MAX_VALUE} if there is none
+     */
+    private volatile long firstFailedRevisionNumber = Long.MAX_VALUE;
+
+    /**
+     * The highest failed revision number whose cause has been discarded from {@link #failedRevisions}, or zero
+     */
+    private volatile long discardedFailureRevisionNumber = 0;
+
+    private final ConcurrentNavigableMap<Long, CompletableFuture<RevisionNumber>> waiters = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentNavigableMap<Long, Throwable> failedRevisions = new ConcurrentSkipListMap<>();
+
+    /**
+     * Gets the persisted revision watermark.
+     */
+    @Nonnull
+    public RevisionNumber getPersistedRevisionNumber() {
+        return RevisionNumber.getRevisionNumber(Math.min(writtenRevisionNumber, firstFailedRevisionNumber - 1));
+    }
+
+    /**
+     * Gets the highest revision number that has been passed to {@link #markPersisted(RevisionNumber)}.  Unlike the
+     * watermark, this is not held back by failed revisions.
+     */
+    public long getMarkedRevisionNumber() {
+        return writtenRevisionNumber;
+    }
+
+    /**
+     * Gets a future that completes when the specified revision has been persisted.
+     * @param revisionNumber The revision number.  This must not be the head revision number.
+     */
+    @Nonnull
+    public CompletableFuture<RevisionNumber> whenPersisted(@Nonnull RevisionNumber revisionNumber) {
+        var value = revisionNumber.getValue();
+        var failure = getFailure(value);
+        if(failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+        if(value <= writtenRevisionNumber) {
+            return CompletableFuture.completedFuture(revisionNumber);
+        }
+        var future = waiters.computeIfAbsent(value, v -> new CompletableFuture<>());
+        // The revision may have failed, or been written, before the future was registered
+        failure = getFailure(value);
+        if(failure != null) {
+            waiters.remove(value, future);
+            future.completeExceptionally(failure);
+        }
+        else if(value <= writtenRevisionNumber) {
+            waiters.remove(value, future);
+            future.complete(revisionNumber);
+        }
+        return future;
+    }
+
+    private Throwable getFailure(long value) {
+        if(value < firstFailedRevisionNumber) {
+            return null;
+        }
+        var failure = failedRevisions.get(value);
+        if(failure == null && value <= discardedFailureRevisionNumber) {
+            // Conservatively treat the revision as failed, because its failure may have been discarded
+            return new IOException("Revision " + value + " may not have been persisted");
+        }
+        return failure;
+    }
+
+    /**
+     * Records that every revision up to and including the specified revision number, other than those that have
+     * been marked as failed, has been persisted, and completes the futures of any callers that are waiting for them.
+     * The watermark advances to the specified revision number, or to the revision before the first failed revision if
+     * that is lower.
+     */
+    public synchronized void markPersisted(@Nonnull RevisionNumber revisionNumber) {
+        if(revisionNumber.getValue() <= writtenRevisionNumber) {
+            return;
+        }
+        writtenRevisionNumber = revisionNumber.getValue();
+        var persistedWaiters = waiters.headMap(writtenRevisionNumber, true);
+        persistedWaiters.forEach((value, future) -> {
+            var failure = getFailure(value);
+            if(failure != null) {
+                future.completeExceptionally(failure);
+            }
+            else {
+                future.complete(RevisionNumber.getRevisionNumber(value));
+            }
+        });
+        persistedWaiters.clear();
+    }
+
+    /**
+     * Completes the futures of any callers that are waiting for the specified revisions exceptionally.  The
+     * revisions could not be written.
+     */
+    public synchronized void markFailed(@Nonnull Collection<RevisionNumber> revisionNumbers, @Nonnull Throwable cause) {
+        for(var revisionNumber : revisionNumbers) {
+            var value = revisionNumber.getValue();
+            firstFailedRevisionNumber = Math.min(firstFailedRevisionNumber, value);
+            failedRevisions.put(value, cause);
+            var future = waiters.remove(value);
+            if(future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+        while(failedRevisions.size() > MAX_RECORDED_FAILURES) {
+            var discarded = failedRevisions.pollFirstEntry();
+            if(discarded != null) {
+                discardedFailureRevisionNumber = Math.max(discardedFailureRevisionNumber, discarded.getKey());
+            }
+        }
+    }
+}
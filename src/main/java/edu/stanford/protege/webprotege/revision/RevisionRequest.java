@@ -0,0 +1,27 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.UserId;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The details of a revision that is to be added with {@link RevisionManager#addRevisions(List)}.  The revision
+ * number and timestamp are assigned when the revision is added.
+ * @param userId The user who made the revision
+ * @param changes The changes in the revision
+ * @param description A description of the revision
+ */
+public record RevisionRequest(@Nonnull UserId userId,
+                              @Nonnull List<OntologyChange> changes,
+                              @Nonnull String description) {
+
+    public RevisionRequest {
+        checkNotNull(userId);
+        checkNotNull(changes);
+        checkNotNull(description);
+    }
+}
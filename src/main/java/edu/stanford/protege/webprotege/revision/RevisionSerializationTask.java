@@ -1,14 +1,24 @@
 package edu.stanford.protege.webprotege.revision;
 
+import com.google.common.collect.ImmutableList;
 import edu.stanford.protege.webprotege.change.OntologyChange;
 import org.semanticweb.binaryowl.BinaryOWLMetadata;
 import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
 import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
@@ -17,37 +27,124 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
  * Stanford University<br>
  * Bio-Medical Informatics Research Group<br>
  * Date: 15/05/2012
+ * <p>
+ *     Serializes one or more revisions to a change history file.  The change records for the revisions are encoded
+ *     into memory and then appended to the change history file with one open and one write, followed by a force if
+ *     one is requested, so the cost of touching the change history file is paid once per batch rather than once per
+ *     revision.
+ * </p>
  */
 public class RevisionSerializationTask implements Callable<Integer> {
 
     private final File file;
 
-    private final Revision revision;
+    private final ImmutableList<Revision> revisions;
+
+    private final Optional<ChangeLogIndex> changeLogIndex;
 
     private Runnable savedHook = () -> {};
 
+    private boolean force = false;
+
+    private long recordsOffset = 0;
+
     public RevisionSerializationTask(File file, Revision revision) {
         this.file = file;
-        this.revision = revision;
+        this.revisions = ImmutableList.of(revision);
+        this.changeLogIndex = Optional.empty();
+    }
+
+    /**
+     * Creates a task that serializes the specified revision to the specified change history file and records the
+     * location of the serialized revision in the specified index.
+     */
+    public RevisionSerializationTask(File file, Revision revision, ChangeLogIndex changeLogIndex) {
+        this(file, List.of(revision), changeLogIndex);
+    }
+
+    /**
+     * Creates a task that serializes the specified revisions, in order, to the specified change history file and
+     * records the locations of the serialized revisions in the specified index.
+     */
+    public RevisionSerializationTask(File file, List<Revision> revisions, ChangeLogIndex changeLogIndex) {
+        checkArgument(!revisions.isEmpty(), "At least one revision must be serialized");
+        this.file = file;
+        this.revisions = ImmutableList.copyOf(revisions);
+        this.changeLogIndex = Optional.of(changeLogIndex);
+    }
+
+    /**
+     * Sets whether the change history file, including its length, is forced to storage after the revisions have been
+     * appended.  By default it is not.
+     */
+    public void setForce(boolean force) {
+        this.force = force;
     }
 
     public void setSavedHook(Runnable savedHook) {
         this.savedHook = checkNotNull(savedHook);
     }
 
+    /**
+     * Gets the offset, in the change history file, of the first record that was written by the last call.
+     */
+    public long getRecordsOffset() {
+        return recordsOffset;
+    }
+
     public Integer call() throws IOException {
+        var encodedRecords = new ByteArrayOutputStream();
+        var recordEnds = new long[revisions.size()];
+        for(int i = 0; i < revisions.size(); i++) {
+            encodedRecords.write(ChangeLogHeader.encode(toChangeRecordList(revisions.get(i))));
+            recordEnds[i] = encodedRecords.size();
+        }
+        var records = ByteBuffer.wrap(encodedRecords.toByteArray());
+        var createsChangeLog = !file.exists() || file.length() == 0;
+        if(createsChangeLog) {
+            // BinaryOWL only writes the change log header when it creates the change log, so it writes the first record
+            Files.deleteIfExists(file.toPath());
+            new BinaryOWLOntologyChangeLog().appendChanges(toChangeRecordList(revisions.get(0)), file);
+            recordsOffset = file.length() - recordEnds[0];
+            records.position((int) recordEnds[0]);
+        }
+        else {
+            recordsOffset = file.length();
+        }
+        try(var changeLogChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while(records.hasRemaining()) {
+                changeLogChannel.write(records);
+            }
+            if(force) {
+                changeLogChannel.force(true);
+            }
+        }
+        // An empty index can only be extended by the records that start the change history file
+        if(changeLogIndex.isPresent() && (createsChangeLog || !changeLogIndex.get().isEmpty())) {
+            var entries = new ArrayList<ChangeLogIndexEntry>(revisions.size());
+            var recordStart = 0L;
+            for(int i = 0; i < revisions.size(); i++) {
+                entries.add(new ChangeLogIndexEntry(revisions.get(i).getRevisionNumber().getValue(),
+                                                    recordsOffset + recordStart,
+                                                    recordEnds[i] - recordStart));
+                recordStart = recordEnds[i];
+            }
+            changeLogIndex.get().addAll(entries);
+        }
+        savedHook.run();
+        return 0;
+    }
+
+    private static OntologyChangeRecordList toChangeRecordList(Revision revision) {
         BinaryOWLMetadata metadata = new BinaryOWLMetadata();
         metadata.setStringAttribute(RevisionSerializationVocabulary.USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), revision.getUserId().id());
         metadata.setLongAttribute(RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), revision.getRevisionNumber().getValue());
         metadata.setStringAttribute(RevisionSerializationVocabulary.DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), revision.getHighLevelDescription());
-        metadata.setStringAttribute(RevisionSerializationVocabulary.REVISION_TYPE_META_DATA_ATTRIBUTE.getVocabularyName(), RevisionType.EDIT.name());
-        BinaryOWLOntologyChangeLog changeLog = new BinaryOWLOntologyChangeLog();
+        metadata.setStringAttribute(RevisionSerializationVocabulary.REVISION_TYPE_META_DATA_ATTRIBUTE.getVocabularyName(), revision.getRevisionType().name());
         var changeRecords = revision.getChanges()
                 .stream()
                 .map(OntologyChange::toOwlOntologyChangeRecord)
                 .collect(toImmutableList());
-        changeLog.appendChanges(new OntologyChangeRecordList(revision.getTimestamp(), metadata, changeRecords), file);
-        savedHook.run();
-        return 0;
+        return new OntologyChangeRecordList(revision.getTimestamp(), metadata, changeRecords);
     }
 }
@@ -15,7 +15,9 @@ public enum RevisionSerializationVocabulary {
 
     DESCRIPTION_META_DATA_ATTRIBUTE("description"),
 
-    REVISION_TYPE_META_DATA_ATTRIBUTE("revisionType");
+    REVISION_TYPE_META_DATA_ATTRIBUTE("revisionType"),
+
+    ONTOLOGY_IDS_META_DATA_ATTRIBUTE("ontologyIds");
 
     private final String vocabularyName;
 
@@ -1,9 +1,18 @@
 package edu.stanford.protege.webprotege.revision;
 
 import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.semanticweb.owlapi.model.IRI;
 
 import javax.annotation.Nonnull;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 
 /**
  * Matthew Horridge
@@ -12,6 +21,16 @@ import java.util.Optional;
  */
 public interface RevisionStore {
 
+    /**
+     * A rough estimate of the heap, in bytes, that is used by a revision summary
+     */
+    long ESTIMATED_REVISION_SUMMARY_SIZE = 200;
+
+    /**
+     * A rough estimate of the heap, in bytes, that is used by a change and the axiom that it holds
+     */
+    long ESTIMATED_CHANGE_SIZE = 300;
+
     /**
      * Gets all of the revisions.
      * @return The revisions in an immutable list.
@@ -19,6 +38,16 @@ public interface RevisionStore {
     @Nonnull
     ImmutableList<Revision> getRevisions();
 
+    /**
+     * Gets an immutable snapshot of all of the revisions.  Implementations may return this view more cheaply than
+     * {@link #getRevisions()}, which copies the revisions into an {@link ImmutableList}.
+     * @return The revisions, ordered by revision number, in an immutable list.
+     */
+    @Nonnull
+    default List<Revision> getRevisionsSnapshot() {
+        return getRevisions();
+    }
+
     /**
      * Gets the revision that has the specified revision number.
      * @param revisionNumber The revision number.  Not {@code null}.
@@ -28,6 +57,196 @@ public interface RevisionStore {
     @Nonnull
     Optional<Revision> getRevision(@Nonnull RevisionNumber revisionNumber);
 
+    /**
+     * Gets summaries of all of the revisions.
+     * @return The revision summaries, ordered by revision number, in an immutable list.
+     */
+    @Nonnull
+    default List<RevisionSummary> getRevisionSummaries() {
+        return getRevisions().stream()
+                             .map(Revision::toRevisionSummary)
+                             .collect(toImmutableList());
+    }
+
+    /**
+     * Gets summaries of the revisions that have revision numbers at or after the specified revision number.
+     * @param fromRevisionNumber The revision number of the first summary.  Not {@code null}.
+     * @param limit The maximum number of summaries.
+     * @return At most {@code limit} summaries, ordered by revision number.  Not {@code null}.
+     */
+    @Nonnull
+    default List<RevisionSummary> getRevisionSummaries(@Nonnull RevisionNumber fromRevisionNumber, int limit) {
+        checkArgument(limit >= 0, "limit must not be negative");
+        var summaries = getRevisionSummaries();
+        var fromIndex = indexOfFirstSummaryAtOrAfter(summaries, fromRevisionNumber);
+        return summaries.subList(fromIndex, (int) Math.min(summaries.size(), (long) fromIndex + limit));
+    }
+
+    /**
+     * Gets a page of revision summaries, newest first.  Pages are addressed by cursors, so a page is stable even if
+     * revisions are added between requests for pages.
+     * @param cursor The cursor returned with the previous page, or the head revision number for the first page.  Not
+     * {@code null}.
+     * @param pageSize The maximum number of summaries in the page.
+     * @return The page, which contains the summaries of revisions before the cursor.  Not {@code null}.
+     */
+    @Nonnull
+    default RevisionSummaryPage getRevisionSummaryPage(@Nonnull RevisionNumber cursor, int pageSize) {
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        var summaries = getRevisionSummaries();
+        // The head cursor is beyond every revision, so the first page starts with the latest revision
+        var endIndex = cursor.isHead() ? summaries.size() : indexOfFirstSummaryAtOrAfter(summaries, cursor);
+        var startIndex = Math.max(0, endIndex - pageSize);
+        var page = ImmutableList.copyOf(summaries.subList(startIndex, endIndex)).reverse();
+        var nextCursor = startIndex > 0 ? Optional.of(summaries.get(startIndex).getRevisionNumber()) : Optional.<RevisionNumber>empty();
+        return new RevisionSummaryPage(page, nextCursor);
+    }
+
+    /**
+     * Streams the revisions that have revision numbers in the specified range.  Implementations should read
+     * revisions as the stream is consumed rather than up front.
+     * @param fromRevisionNumber The first revision number, inclusive.  Not {@code null}.
+     * @param toRevisionNumber The last revision number, inclusive.  The head revision number denotes the current
+     *                         revision.  Not {@code null}.
+     * @return The revisions, ordered by revision number.  Not {@code null}.
+     */
+    @Nonnull
+    default Stream<Revision> streamRevisions(@Nonnull RevisionNumber fromRevisionNumber, @Nonnull RevisionNumber toRevisionNumber) {
+        return getRevisionSummaries(fromRevisionNumber, Integer.MAX_VALUE)
+                .stream()
+                .map(RevisionSummary::getRevisionNumber)
+                .takeWhile(revisionNumber -> revisionNumber.compareTo(toRevisionNumber) <= 0)
+                .map(revisionNumber -> getRevision(revisionNumber).orElseThrow(() -> new IllegalStateException("Revision " + revisionNumber.getValue() + " is missing")));
+    }
+
+    /**
+     * Gets the revision that was in effect at the specified instant, that is, the latest revision that had taken
+     * effect by then.  Revision timestamps are not necessarily increasing, so a revision is taken to have taken effect
+     * no earlier than any revision before it (see {@link TimestampIndex}).
+     * @param instant The instant.  Not {@code null}.
+     * @return The revision number, which is zero if no revision had taken effect by the instant.  Not {@code null}.
+     */
+    @Nonnull
+    default RevisionNumber getRevisionNumberAt(@Nonnull Instant instant) {
+        var summaries = getRevisionSummaries();
+        var index = buildTimestampIndex(summaries).getLastIndexAtOrBefore(instant.toEpochMilli());
+        return index < 0 ? RevisionNumber.getRevisionNumber(0) : summaries.get(index).getRevisionNumber();
+    }
+
+    /**
+     * Gets summaries of the revisions that took effect in the specified period.
+     * @param from The start of the period, inclusive.  Not {@code null}.
+     * @param to The end of the period, exclusive.  Not {@code null}.
+     * @return The summaries, ordered by revision number.  Not {@code null}.
+     */
+    @Nonnull
+    default List<RevisionSummary> getRevisionSummariesBetween(@Nonnull Instant from, @Nonnull Instant to) {
+        var summaries = getRevisionSummaries();
+        var timestampIndex = buildTimestampIndex(summaries);
+        var fromIndex = timestampIndex.getFirstIndexAtOrAfter(from.toEpochMilli());
+        var toIndex = timestampIndex.getFirstIndexAtOrAfter(to.toEpochMilli());
+        return fromIndex < toIndex ? summaries.subList(fromIndex, toIndex) : List.of();
+    }
+
+    /**
+     * Gets the numbers of the revisions that the specified user has made.
+     * @param userId The user.  Not {@code null}.
+     * @return The revision numbers in ascending order.  Not {@code null}.
+     */
+    @Nonnull
+    default long[] getRevisionNumbersForUser(@Nonnull UserId userId) {
+        return buildUserRevisionIndex(getRevisionSummaries()).getRevisionNumbers(userId);
+    }
+
+    /**
+     * Gets statistics about the revisions that the specified user has made.
+     * @param userId The user.  Not {@code null}.
+     * @return The contribution, or an absent value if the user has not made any revisions.  Not {@code null}.
+     */
+    @Nonnull
+    default Optional<UserContribution> getContribution(@Nonnull UserId userId) {
+        return buildUserRevisionIndex(getRevisionSummaries()).getContribution(userId);
+    }
+
+    /**
+     * Gets statistics about the revisions that each user has made.
+     * @return The contributions, in the order that users first made a revision.  Not {@code null}.
+     */
+    @Nonnull
+    default List<UserContribution> getContributions() {
+        return buildUserRevisionIndex(getRevisionSummaries()).getContributions();
+    }
+
+    private static UserRevisionIndex buildUserRevisionIndex(@Nonnull List<RevisionSummary> summaries) {
+        var userRevisionIndex = new UserRevisionIndex();
+        summaries.forEach(userRevisionIndex::add);
+        return userRevisionIndex;
+    }
+
+    private static TimestampIndex buildTimestampIndex(@Nonnull List<RevisionSummary> summaries) {
+        var timestampIndex = new TimestampIndex();
+        summaries.forEach(summary -> timestampIndex.add(summary.getTimestamp()));
+        return timestampIndex;
+    }
+
+    /**
+     * Finds the position of the first summary, in a list of summaries ordered by revision number, that has a
+     * revision number at or after the specified revision number.
+     * @return The position, which is the size of the list if every summary is before the revision number
+     */
+    private static int indexOfFirstSummaryAtOrAfter(@Nonnull List<RevisionSummary> summaries, @Nonnull RevisionNumber revisionNumber) {
+        var low = 0;
+        var high = summaries.size();
+        while(low < high) {
+            var mid = (low + high) >>> 1;
+            if(summaries.get(mid).getRevisionNumber().compareTo(revisionNumber) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets a summary of the revision that has the specified revision number.
+     * @param revisionNumber The revision number.  Not {@code null}.
+     * @return The summary.  If a revision with the specified revision number does not exist
+     * then an absent value will be returned.  Not {@code null}.
+     */
+    @Nonnull
+    default Optional<RevisionSummary> getRevisionSummary(@Nonnull RevisionNumber revisionNumber) {
+        return getRevision(revisionNumber).map(Revision::toRevisionSummary);
+    }
+
+    /**
+     * Gets the nearest materialized ontology checkpoint at or below the specified revision.
+     * @param revisionNumber The revision number.  Not {@code null}.
+     * @return The checkpoint.  If there is no checkpoint at or below the specified revision then an absent value
+     * will be returned.  Not {@code null}.
+     */
+    @Nonnull
+    default Optional<OntologyCheckpoint> getCheckpoint(@Nonnull RevisionNumber revisionNumber) {
+        return Optional.empty();
+    }
+
+    /**
+     * Gets the numbers of the revisions that contain changes that mention the specified entity.  See
+     * {@link EntityRevisionIndex} for what it means for a change to mention an entity.
+     * @param entityIri The IRI of the entity.  Not {@code null}.
+     * @return The revision numbers in ascending order.  Not {@code null}.
+     */
+    @Nonnull
+    default long[] getRevisionNumbersForEntity(@Nonnull IRI entityIri) {
+        return getRevisionsSnapshot().stream()
+                                     .filter(revision -> revision.getChanges()
+                                                                 .stream()
+                                                                 .anyMatch(change -> EntityRevisionIndex.isMentionedBy(entityIri, change)))
+                                     .mapToLong(revision -> revision.getRevisionNumber().getValue())
+                                     .toArray();
+    }
+
     /**
      * Add the specified revision to this revision store.  The revision must have a number that is beyond the revision
      * number of the current revision otherwise an IllegalArgumentException will be thrown.
@@ -35,6 +254,14 @@ public interface RevisionStore {
      */
     void addRevision(@Nonnull Revision revision);
 
+    /**
+     * Adds the specified revisions to this revision store as a single unit.  Either every revision is added or, if
+     * any revision number is not beyond the number of the revision before it, none is added and an
+     * IllegalArgumentException is thrown.  Readers see either none or all of the revisions.
+     * @param revisions The revisions to be added, in revision number order.  Not {@code null}.
+     */
+    void addRevisions(@Nonnull List<Revision> revisions);
+
     /**
      * Gets the revision number of the latest revision.
      * @return The revision number of the latest revision.  If there are no revisions then a revision number
@@ -42,4 +269,45 @@ public interface RevisionStore {
      */
     @Nonnull
     RevisionNumber getCurrentRevisionNumber();
+
+    /**
+     * Gets a future that completes when the specified revision has been persisted, according to the durability mode
+     * of this store.
+     * @param revisionNumber The revision number.  The head revision number denotes the current revision.
+     * @return A future that completes with the revision number once the revision has been persisted, or that
+     * completes exceptionally if the revision could not be persisted.
+     */
+    @Nonnull
+    default CompletableFuture<RevisionNumber> whenPersisted(@Nonnull RevisionNumber revisionNumber) {
+        return CompletableFuture.completedFuture(revisionNumber.isHead() ? getCurrentRevisionNumber() : revisionNumber);
+    }
+
+    /**
+     * Gets the revision number of the latest revision such that it, and every revision before it, has been persisted.
+     * @return The persisted revision number.  If no revisions have been persisted then a revision number of zero is
+     * returned.
+     */
+    @Nonnull
+    default RevisionNumber getPersistedRevisionNumber() {
+        return getCurrentRevisionNumber();
+    }
+
+    /**
+     * Gets an estimate, in bytes, of the heap that is used by the revisions that this store holds in memory.
+     */
+    default long getEstimatedHeapSize() {
+        var changeCount = getRevisionSummaries().stream()
+                                                .mapToLong(RevisionSummary::getChangeCount)
+                                                .sum();
+        return getRevisionSummaries().size() * ESTIMATED_REVISION_SUMMARY_SIZE + changeCount * ESTIMATED_CHANGE_SIZE;
+    }
+
+    /**
+     * Disposes of this store and releases the resources that it holds.  Revisions that have been added but that
+     * have not yet been persisted are persisted before this method returns.  The store should not be used after it
+     * has been disposed of.
+     */
+    default void dispose() {
+
+    }
 }
@@ -24,13 +24,36 @@ public class RevisionStoreFactory {
     @Nonnull
     private final OntologyChangeRecordTranslator changeRecordTranslator;
 
-    @Inject
+    @Nonnull
+    private final RevisionManagerSettings settings;
+
+    @Nonnull
+    private final RevisionMetrics metrics;
+
     public RevisionStoreFactory(@Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
                                 @Nonnull OWLDataFactory dataFactory,
                                 @Nonnull OntologyChangeRecordTranslator changeRecordTranslator) {
+        this(changeHistoryFileFactory, dataFactory, changeRecordTranslator, new RevisionManagerSettings());
+    }
+
+    public RevisionStoreFactory(@Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
+                                @Nonnull OWLDataFactory dataFactory,
+                                @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                                @Nonnull RevisionManagerSettings settings) {
+        this(changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings, RevisionMetrics.noop());
+    }
+
+    @Inject
+    public RevisionStoreFactory(@Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
+                                @Nonnull OWLDataFactory dataFactory,
+                                @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                                @Nonnull RevisionManagerSettings settings,
+                                @Nonnull RevisionMetrics metrics) {
         this.changeHistoryFileFactory = checkNotNull(changeHistoryFileFactory);
         this.dataFactory = checkNotNull(dataFactory);
         this.changeRecordTranslator = checkNotNull(changeRecordTranslator);
+        this.settings = checkNotNull(settings);
+        this.metrics = checkNotNull(metrics);
     }
 
     /**
@@ -44,7 +67,9 @@ public class RevisionStoreFactory {
         var revisionStore = new RevisionStoreImpl(projectId,
                                      changeHistoryFileFactory,
                                      dataFactory,
-                                     changeRecordTranslator);
+                                     changeRecordTranslator,
+                                     settings,
+                                     metrics);
         revisionStore.load();
         return revisionStore;
     }
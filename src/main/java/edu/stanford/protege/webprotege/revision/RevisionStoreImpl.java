@@ -1,44 +1,81 @@
 package edu.stanford.protege.webprotege.revision;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Interners;
+import com.google.common.io.CountingInputStream;
 import edu.stanford.protege.webprotege.common.ProjectId;
+import edu.stanford.protege.webprotege.change.OntologyChange;
 import edu.stanford.protege.webprotege.common.UserId;
 import org.semanticweb.binaryowl.BinaryOWLOntologyChangeLog;
+import org.semanticweb.binaryowl.change.OntologyChangeRecordList;
 import org.semanticweb.binaryowl.chunk.SkipSetting;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.ImmutableList.toImmutableList;
 
 /**
  * Matthew Horridge
  * Stanford Center for Biomedical Informatics Research
  * 29/05/15
+ * <p>
+ *     A revision store that is backed by a change history file.  Summaries of all revisions are held in memory.  By
+ *     default the changes for every revision are also held in memory.  If lazy change loading is enabled (see
+ *     {@link RevisionManagerSettings#isLazyChangeLoading()}) then the changes for a revision are read from the change
+ *     history file, using the {@link ChangeLogIndex}, when the revision is requested, and recently requested revisions
+ *     are held in a size bounded cache.
+ * </p>
+ * <p>
+ *     Every so many revisions, or changes, the store writes a materialized checkpoint of the ontologies to an
+ *     {@link OntologyCheckpointStore} so that ontologies can be materialized at a revision without replaying the
+ *     complete change history.
+ * </p>
  */
 public class RevisionStoreImpl implements RevisionStore {
 
     private static final Logger logger = LoggerFactory.getLogger(RevisionStoreImpl.class);
 
+    private static final long DISPOSE_TIMEOUT_SECONDS = 60;
+
     private final ExecutorService changeSerializationExecutor;
 
+    private final ExecutorService checkpointExecutor;
+
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
     private final Lock readLock = readWriteLock.readLock();
@@ -54,29 +91,231 @@ public class RevisionStoreImpl implements RevisionStore {
     @Nonnull
     private final OWLDataFactory dataFactory;
 
-    private ImmutableList<Revision> revisions = ImmutableList.of();
+    /**
+     * The revisions, including their changes.  Empty if changes are loaded lazily.
+     */
+    private AppendOnlyList<Revision> revisions = new AppendOnlyList<>();
+
+    /**
+     * Summaries of the revisions.  These are always resident.
+     */
+    private AppendOnlyList<RevisionSummary> revisionSummaries = new AppendOnlyList<>();
+
+    /**
+     * The revisions and summaries as they were when they were last changed.  A new snapshot is published, with the
+     * write lock held, whenever the revisions or summaries change, so that readers of the resident revisions do not
+     * need to take the lock.
+     */
+    @Nonnull
+    private volatile RevisionSnapshot snapshot = RevisionSnapshot.EMPTY;
 
     @Nonnull
     private final OntologyChangeRecordTranslator changeRecordTranslator;
 
+    @Nonnull
+    private final File changeHistoryFile;
+
+    @Nonnull
+    private final ChangeLogIndex changeLogIndex;
+
+    @Nonnull
+    private final ChangeLogReader changeLogReader;
+
+    @Nonnull
+    private final RevisionDecoder revisionDecoder;
+
+    /** The older, sealed, part of the change history, or null if the change history has not been sealed */
+    @Nullable
+    private volatile CompressedChangeLog compressedChangeLog;
+
+    private final int compressedBlockSize;
+
+    private boolean lazyChangeLoading;
+
+    /**
+     * Recently requested revisions, weighed by their number of changes.  Only used if changes are loaded lazily.
+     */
+    @Nonnull
+    private final Cache<RevisionNumber, Revision> revisionCache;
+
+    /**
+     * Revisions that have been added but that have not yet been written to the change history file.  Only used if
+     * changes are loaded lazily.  These cannot be read back from the change history file so they are held here
+     * until they are written.
+     */
+    private final Map<RevisionNumber, Revision> unsavedRevisions = new ConcurrentHashMap<>();
+
+    /**
+     * Revisions that are waiting to be written to the change history file, in revision number order, grouped by
+     * the call that added them.  A batch that could not be written is put back at the head, so that no revision is
+     * written before the revisions that precede it.
+     */
+    private final Deque<List<Revision>> pendingRevisions = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Serializes writes of pending revisions to the change history file.
+     */
+    private final Object serializationLock = new Object();
+
+    private final int maxSerializationBatchSize;
+
+    @Nonnull
+    private final DurabilityMode durabilityMode;
+
+    private final boolean parallelLoading;
+
+    private final int loadParallelism;
+
+    /**
+     * Forces the change history file to storage periodically.  Only used in {@link DurabilityMode#GROUP_FSYNC} mode.
+     */
+    @Nullable
+    private final ScheduledExecutorService groupFsyncExecutor;
+
+    @Nonnull
+    private final RevisionPersistenceTracker persistenceTracker = new RevisionPersistenceTracker();
+
+    /**
+     * The number of the latest revision that has been written to the change history file, but that has not
+     * necessarily been forced to storage.
+     */
+    private volatile long writtenRevisionNumber = 0;
+
+    /**
+     * The first failure to write or force the change history file in {@link DurabilityMode#FSYNC} or
+     * {@link DurabilityMode#GROUP_FSYNC} mode, or {@code null} if there has been none.  Once it is set, revisions
+     * cannot be persisted, so the store rejects further revisions.
+     */
+    @Nullable
+    private volatile IOException writeFailure = null;
+
+    @Nonnull
+    private final ProjectRevisionMetrics projectMetrics;
+
+    /**
+     * The number of changes in the revisions that are held in memory when changes are not loaded lazily.
+     */
+    private volatile long residentChangeCount = 0;
+
+    /**
+     * The times at which the revisions took effect, in the same order as the revision summaries.
+     */
+    private TimestampIndex timestampIndex = new TimestampIndex();
+
+    /**
+     * The revisions made by each user, and their contribution statistics.
+     */
+    private UserRevisionIndex userRevisionIndex = new UserRevisionIndex();
+
+    /**
+     * The index from entities to the revisions that mention them.  Updated as revisions are added.
+     */
+    @Nonnull
+    private final EntityRevisionIndex entityRevisionIndex;
+
+    private final boolean persistEntityRevisionIndex;
+
+    @Nonnull
+    private final OntologyCheckpointStore checkpointStore;
+
+    private final int checkpointRevisionInterval;
+
+    private final int checkpointChangeInterval;
+
+    private long revisionsSinceCheckpoint = 0;
+
+    private long changesSinceCheckpoint = 0;
+
     private Runnable savedHook = () -> {};
 
     private boolean loaded = false;
 
-    @Inject
+    /**
+     * Set, with the write lock held, when this store is disposed of.  A disposed store does not accept revisions.
+     */
+    private boolean disposed = false;
+
     public RevisionStoreImpl(@Nonnull ProjectId projectId,
                              @Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
                              @Nonnull OWLDataFactory dataFactory,
                              @Nonnull OntologyChangeRecordTranslator changeRecordTranslator) {
+        this(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, new RevisionManagerSettings());
+    }
+
+    public RevisionStoreImpl(@Nonnull ProjectId projectId,
+                             @Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
+                             @Nonnull OWLDataFactory dataFactory,
+                             @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                             @Nonnull RevisionManagerSettings settings) {
+        this(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings, RevisionMetrics.noop());
+    }
+
+    @Inject
+    public RevisionStoreImpl(@Nonnull ProjectId projectId,
+                             @Nonnull ChangeHistoryFileFactory changeHistoryFileFactory,
+                             @Nonnull OWLDataFactory dataFactory,
+                             @Nonnull OntologyChangeRecordTranslator changeRecordTranslator,
+                             @Nonnull RevisionManagerSettings settings,
+                             @Nonnull RevisionMetrics metrics) {
         this.projectId = checkNotNull(projectId);
         this.changeHistoryFileFactory = changeHistoryFileFactory;
         this.dataFactory = checkNotNull(dataFactory);
         this.changeRecordTranslator = changeRecordTranslator;
+        this.changeHistoryFile = changeHistoryFileFactory.getChangeHistoryFile(projectId);
+        this.changeLogIndex = ChangeLogIndex.open(changeHistoryFile);
+        this.changeLogReader = new ChangeLogReader(changeHistoryFile, dataFactory);
+        this.revisionDecoder = new RevisionDecoder(changeRecordTranslator);
+        try {
+            this.compressedChangeLog = CompressedChangeLog.openIfExists(changeHistoryFile, dataFactory).orElse(null);
+        } catch(IOException e) {
+            throw new UncheckedIOException("Could not open the compressed change history of project " + projectId.id(), e);
+        }
+        this.compressedBlockSize = settings.getCompressedBlockSize();
+        this.lazyChangeLoading = settings.isLazyChangeLoading();
+        this.revisionCache = CacheBuilder.newBuilder()
+                                         .maximumWeight(settings.getChangeCacheSize())
+                                         .weigher((RevisionNumber revisionNumber, Revision revision) -> revision.getSize() + 1)
+                                         .build();
+        this.persistEntityRevisionIndex = settings.isPersistEntityRevisionIndex();
+        // A saved entity revision index is only meaningful alongside the change history that it indexes
+        this.entityRevisionIndex = persistEntityRevisionIndex && hasChangeHistory() ? EntityRevisionIndex.open(changeHistoryFile) : EntityRevisionIndex.create(changeHistoryFile);
+        this.checkpointStore = new OntologyCheckpointStore(changeHistoryFile, dataFactory, changeRecordTranslator, settings.getMaxCheckpoints());
+        this.checkpointRevisionInterval = settings.getCheckpointRevisionInterval();
+        this.checkpointChangeInterval = settings.getCheckpointChangeInterval();
+        this.maxSerializationBatchSize = Math.max(1, settings.getMaxSerializationBatchSize());
+        this.durabilityMode = checkNotNull(settings.getDurabilityMode());
+        this.parallelLoading = settings.isParallelLoading();
+        this.loadParallelism = settings.getLoadParallelism();
         changeSerializationExecutor = Executors.newSingleThreadExecutor(runnable -> {
             Thread thread = Executors.defaultThreadFactory().newThread(runnable);
             thread.setName(thread.getName().replace("thread", "change-serializer-thread"));
             return thread;
         });
+        checkpointExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName(thread.getName().replace("thread", "checkpoint-writer-thread"));
+            thread.setDaemon(true);
+            return thread;
+        });
+        if(durabilityMode == DurabilityMode.GROUP_FSYNC) {
+            var groupFsyncIntervalMs = Math.max(1, settings.getGroupFsyncInterval().toMillis());
+            groupFsyncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName(thread.getName().replace("thread", "change-fsync-thread"));
+                thread.setDaemon(true);
+                return thread;
+            });
+            groupFsyncExecutor.scheduleWithFixedDelay(this::forceWrittenRevisions, groupFsyncIntervalMs, groupFsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        else {
+            groupFsyncExecutor = null;
+        }
+        this.projectMetrics = metrics.forProject(projectId);
+        projectMetrics.bindGauges(this);
+    }
+
+    private boolean hasChangeHistory() {
+        return changeHistoryFile.exists() || compressedChangeLog != null;
     }
 
     public void setSavedHook(Runnable savedHook) {
@@ -86,113 +325,610 @@ public class RevisionStoreImpl implements RevisionStore {
     @Nonnull
     @Override
     public Optional<Revision> getRevision(@Nonnull RevisionNumber revisionNumber) {
-        if(revisions.isEmpty()) {
+        var current = snapshot;
+        if(!current.isLoaded()) {
+            var revision = getRevisionFromChangeLog(revisionNumber);
+            if(revision.isPresent()) {
+                return revision;
+            }
+            current = snapshot;
+        }
+        if(!current.isLazyChangeLoading()) {
+            int index = current.getRevisionIndex(revisionNumber);
+            return index < 0 ? Optional.empty() : Optional.of(current.getRevisions().get(index));
+        }
+        try {
+            // Lazily loaded changes are read from the change history files, which are replaced by compaction and
+            // sealing with the write lock held
+            readLock.lock();
+            current = snapshot;
+            int index = current.getRevisionIndex(revisionNumber);
+            if(index < 0) {
+                return Optional.empty();
+            }
+            if(current.isLazyChangeLoading()) {
+                return Optional.of(getCachedRevision(current.getSummaries().get(index)));
+            }
+            else {
+                return Optional.of(current.getRevisions().get(index));
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private boolean isLoaded() {
+        return snapshot.isLoaded();
+    }
+
+    /**
+     * Reads a revision directly from the change history file, without loading the complete change history, using
+     * the change log index.  If the index does not cover the change history file then the change history is loaded.
+     */
+    private Optional<Revision> getRevisionFromChangeLog(@Nonnull RevisionNumber revisionNumber) {
+        var compressedLog = compressedChangeLog;
+        if(compressedLog != null) {
+            var sealedRevisionNumber = revisionNumber.isHead() && changeLogIndex.isEmpty() ? compressedLog.getLastRevisionNumber() : revisionNumber;
+            if(compressedLog.contains(sealedRevisionNumber)) {
+                return getRevisionFromCompressedChangeLog(compressedLog, sealedRevisionNumber);
+            }
+        }
+        if(!changeLogIndex.isConsistentWith(changeHistoryFile)) {
+            load();
             return Optional.empty();
         }
-        int index = getRevisionIndexForRevision(revisionNumber);
-        if(index < 0 || revisions.size() <= index) {
+        var entry = changeLogIndex.getEntry(revisionNumber);
+        if(entry.isEmpty()) {
             return Optional.empty();
         }
-        else {
-            return Optional.of(revisions.get(index));
+        try {
+            var changeRecordList = changeLogReader.read(entry.get());
+            return Optional.of(revisionDecoder.decode(changeRecordList));
+        } catch(IOException e) {
+            logger.error("{} Failed to read revision {} from change history.  Cause: {}", projectId, revisionNumber, e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Revision> getRevisionFromCompressedChangeLog(@Nonnull CompressedChangeLog compressedLog,
+                                                                  @Nonnull RevisionNumber revisionNumber) {
+        try {
+            return compressedLog.read(revisionNumber).map(revisionDecoder::decode);
+        } catch(IOException e) {
+            logger.error("{} Failed to read revision {} from compressed change history.  Cause: {}", projectId, revisionNumber, e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets the revision for the specified summary when changes are loaded lazily, reading it from the change history
+     * file if it is not cached.
+     */
+    private Revision getCachedRevision(@Nonnull RevisionSummary summary) {
+        var revisionNumber = summary.getRevisionNumber();
+        var unsavedRevision = unsavedRevisions.get(revisionNumber);
+        if(unsavedRevision != null) {
+            return unsavedRevision;
+        }
+        try {
+            return revisionCache.get(revisionNumber, () -> readRevision(summary));
+        } catch(ExecutionException e) {
+            throw new RuntimeException("Could not read revision " + revisionNumber.getValue() + " from the change history", e.getCause());
+        }
+    }
+
+    /**
+     * Reads the revision for the specified summary from the change history file when changes are loaded lazily.  The
+     * resident summary supplies the revision metadata, so only the changes are decoded.
+     */
+    private Revision readRevision(@Nonnull RevisionSummary summary) throws IOException {
+        var revisionNumber = summary.getRevisionNumber();
+        var unsavedRevision = unsavedRevisions.get(revisionNumber);
+        if(unsavedRevision != null) {
+            return unsavedRevision;
+        }
+        var changeRecordList = readChangeRecordList(revisionNumber);
+        return new Revision(summary.getUserId(),
+                            revisionNumber,
+                            revisionDecoder.decodeChanges(changeRecordList),
+                            summary.getTimestamp(),
+                            summary.getDescription(),
+                            summary.getRevisionType());
+    }
+
+    private OntologyChangeRecordList readChangeRecordList(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        var compressedLog = compressedChangeLog;
+        if(compressedLog != null && compressedLog.contains(revisionNumber)) {
+            return compressedLog.read(revisionNumber)
+                                .orElseThrow(() -> new IOException("Revision " + revisionNumber.getValue() + " is not in the compressed change history"));
+        }
+        var entry = changeLogIndex.getEntry(revisionNumber);
+        return entry.isPresent() ? changeLogReader.read(entry.get()) : scanForRecord(revisionNumber);
+    }
+
+    /**
+     * Finds the record for a revision by scanning the change history file.  This is only used if the change log
+     * index has been discarded since the change history was loaded.
+     */
+    private OntologyChangeRecordList scanForRecord(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        logger.warn("{} Revision {} is not in the change log index.  Scanning change history.", projectId, revisionNumber.getValue());
+        var found = new ArrayList<OntologyChangeRecordList>(1);
+        try(var inputStream = changeLogReader.openInputStream()) {
+            new BinaryOWLOntologyChangeLog().readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
+                if(found.isEmpty() && RevisionDecoder.getRevisionNumber(changeRecordList).equals(revisionNumber)) {
+                    found.add(changeRecordList);
+                }
+            }, SkipSetting.SKIP_NONE);
+        }
+        if(found.isEmpty()) {
+            throw new IOException("Revision " + revisionNumber.getValue() + " is not in the change history");
         }
+        return found.get(0);
     }
 
-    private int getRevisionIndexForRevision(RevisionNumber revision) {
+    /**
+     * Gets all of the revisions.  If changes are held in memory then the revisions are copied into an immutable list
+     * the first time that this is called after revisions are added; callers that do not need an
+     * {@link ImmutableList} should use {@link #getRevisionsSnapshot()} instead.  If changes are loaded lazily then
+     * this reads the changes for every revision that is not cached from the change history file, and so should be
+     * avoided.
+     */
+    @Nonnull
+    @Override
+    public ImmutableList<Revision> getRevisions() {
+        var current = snapshot;
+        if(!current.isLazyChangeLoading()) {
+            return current.getRevisionsCopy();
+        }
         try {
             readLock.lock();
-            if(revisions.isEmpty()) {
-                return -1;
-            }
-            if(revision.isHead()) {
-                return revisions.size() - 1;
-            }
-            var firstRevision = revisions.get(0);
-            if(revision.compareTo(firstRevision.getRevisionNumber()) < 0) {
-                return -1;
-            }
-            var lastRevision = revisions.get(revisions.size() - 1);
-            if(lastRevision.getRevisionNumber() == revision) {
-                return revisions.size() - 1;
-            }
-            var dummyRevision = Revision.createEmptyRevisionWithRevisionNumber(revision);
-            return Collections.binarySearch(revisions, dummyRevision);
+            return readAllRevisions();
         } finally {
             readLock.unlock();
         }
     }
 
+    /**
+     * Gets a snapshot of all of the revisions.  If changes are held in memory then this takes constant time.
+     */
     @Nonnull
     @Override
-    public ImmutableList<Revision> getRevisions() {
+    public List<Revision> getRevisionsSnapshot() {
+        var current = snapshot;
+        if(!current.isLazyChangeLoading()) {
+            return current.getRevisions();
+        }
         try {
             readLock.lock();
-            return revisions;
+            return readAllRevisions();
         } finally {
             readLock.unlock();
         }
     }
 
+    /**
+     * Streams the revisions in the specified range.  If the change history has not been loaded then the revisions
+     * are read from the change history file using the change log index.  If changes are loaded lazily then revisions
+     * that are not cached are read from the change history file as the stream is consumed, without populating the
+     * cache.  Otherwise the revisions are streamed from memory.
+     */
+    @Nonnull
+    @Override
+    public Stream<Revision> streamRevisions(@Nonnull RevisionNumber fromRevisionNumber, @Nonnull RevisionNumber toRevisionNumber) {
+        checkNotNull(fromRevisionNumber);
+        checkNotNull(toRevisionNumber);
+        if(!isLoaded() && compressedChangeLog == null && changeLogIndex.isConsistentWith(changeHistoryFile)) {
+            return changeLogIndex.getEntries()
+                                 .stream()
+                                 .filter(entry -> entry.revisionNumber() >= fromRevisionNumber.getValue())
+                                 .takeWhile(entry -> entry.revisionNumber() <= toRevisionNumber.getValue())
+                                 .map(this::readRevision);
+        }
+        var current = snapshot;
+        var summaries = current.getSummaries();
+        var loadedRevisions = current.getRevisions();
+        var lazy = current.isLazyChangeLoading();
+        return IntStream.range(getFirstRevisionIndexAtOrAfter(summaries, fromRevisionNumber), summaries.size())
+                        .takeWhile(i -> summaries.get(i).getRevisionNumber().compareTo(toRevisionNumber) <= 0)
+                        .mapToObj(i -> lazy ? readUncachedRevision(summaries.get(i)) : loadedRevisions.get(i));
+    }
+
+    /**
+     * Gets the position of the first summary with a revision number at or after the specified revision number.
+     * @return The position, or the number of summaries if every revision is before the revision number
+     */
+    private static int getFirstRevisionIndexAtOrAfter(List<RevisionSummary> summaries, RevisionNumber revisionNumber) {
+        var low = 0;
+        var high = summaries.size();
+        while(low < high) {
+            var mid = (low + high) >>> 1;
+            if(summaries.get(mid).getRevisionNumber().compareTo(revisionNumber) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Revision readRevision(@Nonnull ChangeLogIndexEntry entry) {
+        try {
+            return revisionDecoder.decode(changeLogReader.read(entry));
+        } catch(IOException e) {
+            throw new UncheckedIOException("Could not read revision " + entry.revisionNumber() + " from the change history", e);
+        }
+    }
+
+    /**
+     * Gets a revision when changes are loaded lazily, reading it from the change history file if it is not cached.
+     * The revision is not added to the cache, so that streaming over many revisions does not flush it.
+     */
+    private Revision readUncachedRevision(@Nonnull RevisionSummary summary) {
+        var cachedRevision = revisionCache.getIfPresent(summary.getRevisionNumber());
+        if(cachedRevision != null) {
+            return cachedRevision;
+        }
+        try {
+            return readRevision(summary);
+        } catch(IOException e) {
+            throw new UncheckedIOException("Could not read revision " + summary.getRevisionNumber().getValue() + " from the change history", e);
+        }
+    }
+
+    /**
+     * Reads every revision when changes are loaded lazily.  Must be called with the read or write lock held.
+     */
+    private ImmutableList<Revision> readAllRevisions() {
+        try {
+            var revisionsBuilder = ImmutableList.<Revision>builder();
+            for(var summary : snapshot.getSummaries()) {
+                // Don't populate the cache, otherwise it is flushed on every call
+                var cachedRevision = revisionCache.getIfPresent(summary.getRevisionNumber());
+                revisionsBuilder.add(cachedRevision != null ? cachedRevision : readRevision(summary));
+            }
+            return revisionsBuilder.build();
+        } catch(IOException e) {
+            throw new RuntimeException("Could not read revisions from the change history", e);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionSummaries() {
+        return snapshot.getSummaries();
+    }
+
+    @Nonnull
+    @Override
+    public Optional<RevisionSummary> getRevisionSummary(@Nonnull RevisionNumber revisionNumber) {
+        var current = snapshot;
+        int index = current.getRevisionIndex(revisionNumber);
+        if(index < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(current.getSummaries().get(index));
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getRevisionNumberAt(@Nonnull Instant instant) {
+        var current = snapshot;
+        var index = current.getTimestampIndex().getLastIndexAtOrBefore(instant.toEpochMilli());
+        return index < 0 ? RevisionNumber.getRevisionNumber(0) : current.getSummaries().get(index).getRevisionNumber();
+    }
+
+    @Nonnull
+    @Override
+    public List<RevisionSummary> getRevisionSummariesBetween(@Nonnull Instant from, @Nonnull Instant to) {
+        var current = snapshot;
+        var fromIndex = current.getTimestampIndex().getFirstIndexAtOrAfter(from.toEpochMilli());
+        var toIndex = current.getTimestampIndex().getFirstIndexAtOrAfter(to.toEpochMilli());
+        return fromIndex < toIndex ? current.getSummaries().subList(fromIndex, toIndex) : List.of();
+    }
+
+    @Nonnull
+    @Override
+    public long[] getRevisionNumbersForUser(@Nonnull UserId userId) {
+        return snapshot.getUserRevisionIndex().getRevisionNumbers(userId);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<UserContribution> getContribution(@Nonnull UserId userId) {
+        return snapshot.getUserRevisionIndex().getContribution(userId);
+    }
+
+    @Nonnull
+    @Override
+    public List<UserContribution> getContributions() {
+        return snapshot.getUserRevisionIndex().getContributions();
+    }
+
+    /**
+     * Gets the numbers of the revisions that mention the specified entity from the entity revision index.
+     */
+    @Nonnull
+    @Override
+    public long[] getRevisionNumbersForEntity(@Nonnull IRI entityIri) {
+        if(!isLoaded()) {
+            load();
+        }
+        return entityRevisionIndex.getRevisionNumbers(entityIri);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<OntologyCheckpoint> getCheckpoint(@Nonnull RevisionNumber revisionNumber) {
+        try {
+            return checkpointStore.read(revisionNumber);
+        } catch(IOException e) {
+            logger.warn("{} Could not read checkpoint at or below revision {}.  Cause: {}", projectId, revisionNumber.getValue(), e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Schedules the writing of a checkpoint for the current revision if enough revisions or changes have been added
+     * since the last checkpoint.  Must be called with the write lock held.
+     */
+    private void scheduleCheckpointIfDue() {
+        var revisionIntervalElapsed = checkpointRevisionInterval > 0 && revisionsSinceCheckpoint >= checkpointRevisionInterval;
+        var changeIntervalElapsed = checkpointChangeInterval > 0 && changesSinceCheckpoint >= checkpointChangeInterval;
+        if(!revisionIntervalElapsed && !changeIntervalElapsed) {
+            return;
+        }
+        revisionsSinceCheckpoint = 0;
+        changesSinceCheckpoint = 0;
+        var checkpointRevision = getHeadRevisionNumber();
+        checkpointExecutor.submit(() -> writeCheckpoint(checkpointRevision));
+    }
+
+    private void writeCheckpoint(@Nonnull RevisionNumber revisionNumber) {
+        try {
+            logger.info("{} Writing ontology checkpoint for revision {}", projectId, revisionNumber.getValue());
+            var stopwatch = Stopwatch.createStarted();
+            var replayer = OntologyReplayer.replayToRevision(this, revisionNumber);
+            var ontologyManager = replayer.getOntologyManager();
+            checkpointStore.write(revisionNumber,
+                                  OntologyReplayer.getOntologyIds(ontologyManager),
+                                  OntologyReplayer.toChanges(ontologyManager));
+            logger.info("{} Wrote ontology checkpoint for revision {} in {} ms", projectId, revisionNumber.getValue(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        } catch(Exception e) {
+            logger.error("{} Failed to write ontology checkpoint for revision {}.  Cause: {}", projectId, revisionNumber.getValue(), e.getMessage(), e);
+        }
+    }
+
     @Override
     public void addRevision(@Nonnull Revision revision) {
         checkNotNull(revision);
+        addRevisions(List.of(revision));
+    }
+
+    /**
+     * Adds the specified revisions.  The revision numbers are checked before any revision is added, the revisions
+     * are published to readers in one snapshot, and they are written to the change history file in one append.
+     * @throws IllegalStateException if this store has been disposed of, or if it is in a durable mode and a write
+     * to the change history file has failed
+     */
+    @Override
+    public void addRevisions(@Nonnull List<Revision> revisionsToAdd) {
+        checkNotNull(revisionsToAdd);
+        if(revisionsToAdd.isEmpty()) {
+            return;
+        }
         try {
+            var lockWaitStart = System.nanoTime();
             writeLock.lock();
-            if(revision.getRevisionNumber().compareTo(getCurrentRevisionNumber()) <= 0) {
-                throw new IllegalArgumentException(String.format("Revision number (%d) must be greater than the current revision number (%d)", revision
-                        .getRevisionNumber()
-                        .getValue(), getCurrentRevisionNumber().getValue()));
-            }
-            var extendedListBuilder = ImmutableList.<Revision>builder();
-            extendedListBuilder.addAll(revisions);
-            extendedListBuilder.add(revision);
-            revisions = extendedListBuilder.build();
-            persistChanges(revision);
+            projectMetrics.recordAddRevisionLockWait(System.nanoTime() - lockWaitStart);
+            if(disposed) {
+                throw new IllegalStateException("The revision store for " + projectId + " has been disposed of");
+            }
+            var failure = writeFailure;
+            if(failure != null) {
+                throw new IllegalStateException("The change history for " + projectId + " could not be written.  No more revisions can be persisted.", failure);
+            }
+            // The revisions must follow the revisions in the change history, not those of an unloaded store
+            load();
+            var previousRevisionNumber = getHeadRevisionNumber();
+            for(var revision : revisionsToAdd) {
+                if(revision.getRevisionNumber().compareTo(previousRevisionNumber) <= 0) {
+                    throw new IllegalArgumentException(String.format("Revision number (%d) must be greater than the current revision number (%d)", revision
+                            .getRevisionNumber()
+                            .getValue(), previousRevisionNumber.getValue()));
+                }
+                previousRevisionNumber = revision.getRevisionNumber();
+            }
+            for(var revision : revisionsToAdd) {
+                if(lazyChangeLoading) {
+                    unsavedRevisions.put(revision.getRevisionNumber(), revision);
+                    revisionCache.put(revision.getRevisionNumber(), revision);
+                }
+                else {
+                    revisions.add(revision);
+                    residentChangeCount += revision.getSize();
+                }
+                var summary = revision.toRevisionSummary();
+                revisionSummaries.add(summary);
+                timestampIndex.add(summary.getTimestamp());
+                userRevisionIndex.add(summary);
+                entityRevisionIndex.add(revision);
+                revisionsSinceCheckpoint++;
+                changesSinceCheckpoint += revision.getSize();
+            }
+            publishSnapshot();
+            persistChanges(revisionsToAdd);
+            scheduleCheckpointIfDue();
         } finally {
             writeLock.unlock();
         }
 
     }
 
+    /**
+     * Gets the revision number of the latest revision.  The change history is loaded first if it has not been, so
+     * that the number is never that of an unloaded store.
+     */
     @Nonnull
     @Override
     public RevisionNumber getCurrentRevisionNumber() {
-        try {
-            readLock.lock();
-            if(revisions.isEmpty()) {
-                return RevisionNumber.getRevisionNumber(0);
-            }
-            return revisions.get(revisions.size() - 1).getRevisionNumber();
-        } finally {
-            readLock.unlock();
+        if(!isLoaded()) {
+            load();
         }
+        return getHeadRevisionNumber();
+    }
+
+    /**
+     * Gets the revision number of the latest revision that has been loaded or added, without loading anything.
+     */
+    private RevisionNumber getHeadRevisionNumber() {
+        return snapshot.getHeadRevisionNumber();
+    }
 
+    /**
+     * Publishes a snapshot of the current revisions and summaries to readers.  Must be called with the write lock
+     * held, whenever the revisions, the summaries, or whether they are loaded, change.
+     */
+    private void publishSnapshot() {
+        snapshot = new RevisionSnapshot(revisions.snapshot(),
+                                        revisionSummaries.snapshot(),
+                                        timestampIndex.snapshot(),
+                                        userRevisionIndex.snapshot(),
+                                        lazyChangeLoading,
+                                        loaded);
     }
 
-    private void persistChanges(Revision revision) {
+    private void persistChanges(List<Revision> addedRevisions) {
         try {
             writeLock.lock();
-            var changeHistoryFile = changeHistoryFileFactory.getChangeHistoryFile(projectId);
-            var revisionSerializationTask = new RevisionSerializationTask(changeHistoryFile, revision);
-            revisionSerializationTask.setSavedHook(savedHook);
-            if(revisions.size() != 1) {
-                changeSerializationExecutor.submit(revisionSerializationTask);
+            pendingRevisions.add(List.copyOf(addedRevisions));
+            if(revisionSummaries.size() != addedRevisions.size()) {
+                changeSerializationExecutor.submit(this::serializePendingRevisions);
             }
             else {
                 // Save immediately
+                logger.info("{} Saving first revision of project", projectId);
+                serializePendingRevisions();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the revisions that are waiting to be written to the change history file.  Revisions that are queued
+     * while a batch is being written are written together in the next batch, so the batch size follows the depth of
+     * the queue.
+     * <p>
+     * If a batch cannot be written then it is put back at the head of the queue and nothing after it is written, so
+     * that the change history never skips revision numbers.  In {@link DurabilityMode#ASYNC} mode the batch is
+     * retried the next time revisions are written.  In the durable modes the pending revisions are failed, and the
+     * store rejects further revisions.
+     * </p>
+     * @return {@code true} if every pending revision was written, otherwise {@code false}
+     */
+    private boolean serializePendingRevisions() {
+        synchronized (serializationLock) {
+            while(!pendingRevisions.isEmpty()) {
+                var batch = new ArrayList<Revision>();
+                List<Revision> addedRevisions;
+                // Revisions that were added together are written together, even if the batch is then over size
+                while(batch.size() < maxSerializationBatchSize && (addedRevisions = pendingRevisions.poll()) != null) {
+                    batch.addAll(addedRevisions);
+                }
                 try {
-                    logger.info("{} Saving first revision of project", projectId);
+                    var revisionSerializationTask = new RevisionSerializationTask(changeHistoryFile, batch, changeLogIndex);
+                    revisionSerializationTask.setSavedHook(savedHook);
+                    revisionSerializationTask.setForce(durabilityMode == DurabilityMode.FSYNC);
+                    var appendStart = System.nanoTime();
                     revisionSerializationTask.call();
+                    projectMetrics.recordAppend(System.nanoTime() - appendStart, batch.size());
+                    batch.forEach(savedRevision -> unsavedRevisions.remove(savedRevision.getRevisionNumber()));
+                    var lastRevisionNumber = batch.get(batch.size() - 1).getRevisionNumber();
+                    writtenRevisionNumber = lastRevisionNumber.getValue();
+                    if(durabilityMode != DurabilityMode.GROUP_FSYNC) {
+                        persistenceTracker.markPersisted(lastRevisionNumber);
+                    }
                 } catch(IOException e) {
-                    logger.error("{} An error occurred whilst saving the first revision of the project.  Cause: {}.", projectId, e
+                    logger.error("{} An error occurred whilst saving {} revisions of the project.  The revisions will be retried.  Cause: {}.", projectId, batch.size(), e
                             .getMessage(), e);
+                    pendingRevisions.addFirst(List.copyOf(batch));
+                    if(durabilityMode != DurabilityMode.ASYNC) {
+                        // Callers are waiting for these revisions to be persisted, so fail them rather than retry
+                        writeFailure = e;
+                        failPendingRevisions(e);
+                    }
+                    return false;
                 }
             }
-        } finally {
-            writeLock.unlock();
+            return true;
+        }
+    }
+
+    /**
+     * Completes the persistence futures of the revisions that are still waiting to be written exceptionally, and
+     * discards them.  Used when the revisions will not be retried.
+     */
+    private void failPendingRevisions(@Nonnull Throwable cause) {
+        synchronized (serializationLock) {
+            var failedRevisionNumbers = new ArrayList<RevisionNumber>();
+            List<Revision> addedRevisions;
+            while((addedRevisions = pendingRevisions.poll()) != null) {
+                addedRevisions.forEach(revision -> failedRevisionNumbers.add(revision.getRevisionNumber()));
+            }
+            if(!failedRevisionNumbers.isEmpty()) {
+                logger.error("{} {} revisions could not be written to the change history file", projectId, failedRevisionNumbers.size());
+                persistenceTracker.markFailed(failedRevisionNumbers, cause);
+            }
+        }
+    }
+
+
+    /**
+     * Forces the change history file to storage and marks the revisions that were written before the force started
+     * as persisted.
+     */
+    private void forceWrittenRevisions() {
+        var revisionNumber = writtenRevisionNumber;
+        if(revisionNumber <= persistenceTracker.getMarkedRevisionNumber()) {
+            return;
+        }
+        try {
+            forceChangeHistory();
+            persistenceTracker.markPersisted(RevisionNumber.getRevisionNumber(revisionNumber));
+        } catch(IOException e) {
+            logger.error("{} Could not force change history to storage.  Cause: {}", projectId, e.getMessage(), e);
+            // The written revisions may never reach storage, so callers waiting for them must not wait forever
+            writeFailure = e;
+            var unforcedRevisionNumbers = LongStream.rangeClosed(persistenceTracker.getMarkedRevisionNumber() + 1, revisionNumber)
+                                                    .mapToObj(RevisionNumber::getRevisionNumber)
+                                                    .toList();
+            persistenceTracker.markFailed(unforcedRevisionNumbers, e);
+            failPendingRevisions(e);
+        }
+    }
+
+    /**
+     * Forces the change history file, including its length, to storage.  The change log index is not forced because
+     * it is rebuilt from the change history if it does not match it.
+     */
+    private void forceChangeHistory() throws IOException {
+        try(var channel = FileChannel.open(changeHistoryFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
         }
     }
 
+    @Nonnull
+    @Override
+    public CompletableFuture<RevisionNumber> whenPersisted(@Nonnull RevisionNumber revisionNumber) {
+        return persistenceTracker.whenPersisted(revisionNumber.isHead() ? getCurrentRevisionNumber() : revisionNumber);
+    }
+
+    @Nonnull
+    @Override
+    public RevisionNumber getPersistedRevisionNumber() {
+        return persistenceTracker.getPersistedRevisionNumber();
+    }
 
     /**
      * Load this revision store.  This method is safe in that it can be called multiple times by different threads.
@@ -203,52 +939,633 @@ public class RevisionStoreImpl implements RevisionStore {
             if(loaded) {
                 return;
             }
-            var changeHistoryFile = changeHistoryFileFactory.getChangeHistoryFile(projectId);
-            if(!changeHistoryFile.exists()) {
+            if(!hasChangeHistory()) {
                 changeHistoryFile.getParentFile().mkdirs();
+                // There is nothing to load, and anything added from now on is held in memory
+                loaded = true;
+                publishSnapshot();
                 return;
             }
-            var revisionsBuilder = ImmutableList.<Revision>builder();
-            var metadataInterner = Interners.<String>newStrongInterner();
-            var userIdInterner = Interners.<UserId>newStrongInterner();
+            var loadedRevisions = new AppendOnlyList<Revision>();
+            var loadedSummaries = new AppendOnlyList<RevisionSummary>();
+            var indexEntries = new ArrayList<ChangeLogIndexEntry>();
 
-            try {
-                logger.info("{} Loading change history", projectId);
-                var stopwatch = Stopwatch.createStarted();
+            logger.info("{} Loading change history", projectId);
+            var stopwatch = Stopwatch.createStarted();
+            if(!changeHistoryFile.exists() || parallelLoading && loadInParallel(loadedRevisions, loadedSummaries, indexEntries)) {
+                setLoadedRevisions(loadedRevisions, loadedSummaries);
+                completeLoad(stopwatch, indexEntries);
+                return;
+            }
+            try(var inputStream = new CountingInputStream(changeLogReader.openInputStream())) {
                 var changeLog = new BinaryOWLOntologyChangeLog();
-                var inputStream = new BufferedInputStream(new FileInputStream(changeHistoryFile));
+                var recordOffset = new long[]{changeLogReader.getHeaderLength()};
                 changeLog.readChanges(inputStream, dataFactory, (changeRecordList, skipSetting, l) -> {
-                    var metadata = changeRecordList.getMetadata();
-                    var userName = metadataInterner.intern(metadata.getStringAttribute(RevisionSerializationVocabulary.USERNAME_METADATA_ATTRIBUTE.getVocabularyName(), ""));
-                    var revisionNumberValue = metadata.getLongAttribute(RevisionSerializationVocabulary.REVISION_META_DATA_ATTRIBUTE.getVocabularyName(), 0L);
-                    var revisionNumber = RevisionNumber.getRevisionNumber(revisionNumberValue);
-                    var description = metadata.getStringAttribute(RevisionSerializationVocabulary.DESCRIPTION_META_DATA_ATTRIBUTE.getVocabularyName(), "");
-                    var userId = userIdInterner.intern(UserId.valueOf(userName));
-
-                    var internedChangeRecords = changeRecordList.getChangeRecords()
-                            .stream()
-                            .map(changeRecordTranslator::getOntologyChange)
-                            .collect(toImmutableList());
-                    var revision = new Revision(userId, revisionNumber, internedChangeRecords, changeRecordList.getTimestamp(), description);
-                    revisionsBuilder.add(revision);
+                    var summary = revisionDecoder.decodeSummary(changeRecordList);
+                    loadedSummaries.add(summary);
+                    if(!lazyChangeLoading) {
+                        loadedRevisions.add(new Revision(summary.getUserId(),
+                                                        summary.getRevisionNumber(),
+                                                        revisionDecoder.decodeChanges(changeRecordList),
+                                                        summary.getTimestamp(),
+                                                        summary.getDescription(),
+                                                        summary.getRevisionType()));
+                    }
+                    var recordEnd = inputStream.getCount();
+                    indexEntries.add(new ChangeLogIndexEntry(summary.getRevisionNumber().getValue(),
+                                                             recordOffset[0],
+                                                             recordEnd - recordOffset[0]));
+                    recordOffset[0] = recordEnd;
                 }, SkipSetting.SKIP_NONE);
-                inputStream.close();
-                stopwatch.stop();
-                logger.info("{} Change history loading complete.  Loaded {} revisions in {} ms.", projectId, revisions.size(), stopwatch
-                        .elapsed(TimeUnit.MILLISECONDS));
             } catch(Exception e) {
                 logger.error("{} Failed to load change history for project.  Cause: {}", projectId, e.getMessage(), e);
             }
-            revisions = revisionsBuilder.build();
-            loaded = true;
+            setLoadedRevisions(loadedRevisions, loadedSummaries);
+            completeLoad(stopwatch, indexEntries);
+        } finally {
+            writeLock.unlock();
+        }
+
+
+    }
+
+    /**
+     * Sets the revisions that were loaded from the change history file, preceded by the revisions in the compressed
+     * change log if the change history has been sealed.  Revisions in the change history file that are also in the
+     * compressed change log, which are left behind if sealing is interrupted, are skipped.  Must be called with the
+     * write lock held.
+     */
+    private void setLoadedRevisions(AppendOnlyList<Revision> loadedRevisions,
+                                    AppendOnlyList<RevisionSummary> loadedSummaries) {
+        var compressedLog = compressedChangeLog;
+        var tailSummaries = loadedSummaries.snapshot();
+        if(compressedLog != null && !tailSummaries.isEmpty()
+                && tailSummaries.get(0).getRevisionType() == RevisionType.BASELINE
+                && tailSummaries.get(0).getRevisionNumber().compareTo(compressedLog.getLastRevisionNumber()) >= 0) {
+            // Compaction was interrupted after the baseline replaced the sealed revisions
+            logger.info("{} The compressed change history has been superseded by a baseline.  Deleting it.", projectId);
+            deleteCompressedChangeLog();
+            compressedLog = null;
+        }
+        if(compressedLog == null) {
+            revisions = loadedRevisions;
+            revisionSummaries = loadedSummaries;
+            rebuildSummaryIndexes();
+            publishSnapshot();
+            return;
+        }
+        var mergedRevisions = new AppendOnlyList<Revision>();
+        var mergedSummaries = new AppendOnlyList<RevisionSummary>();
+        try {
+            for(var block : compressedLog.getBlocks()) {
+                for(var changeRecordList : compressedLog.readBlock(block)) {
+                    var summary = revisionDecoder.decodeSummary(changeRecordList);
+                    mergedSummaries.add(summary);
+                    if(!lazyChangeLoading) {
+                        mergedRevisions.add(new Revision(summary.getUserId(),
+                                                         summary.getRevisionNumber(),
+                                                         revisionDecoder.decodeChanges(changeRecordList),
+                                                         summary.getTimestamp(),
+                                                         summary.getDescription(),
+                                                         summary.getRevisionType()));
+                    }
+                }
+            }
+        } catch(IOException e) {
+            logger.error("{} Failed to load compressed change history for project.  Cause: {}", projectId, e.getMessage(), e);
+        }
+        var sealedRevisionNumber = compressedLog.getLastRevisionNumber();
+        var tailRevisions = loadedRevisions.snapshot();
+        for(int i = 0; i < tailSummaries.size(); i++) {
+            if(tailSummaries.get(i).getRevisionNumber().compareTo(sealedRevisionNumber) > 0) {
+                mergedSummaries.add(tailSummaries.get(i));
+                if(!lazyChangeLoading) {
+                    mergedRevisions.add(tailRevisions.get(i));
+                }
+            }
+        }
+        revisions = mergedRevisions;
+        revisionSummaries = mergedSummaries;
+        rebuildSummaryIndexes();
+        publishSnapshot();
+    }
+
+    private void deleteCompressedChangeLog() {
+        var compressedLog = compressedChangeLog;
+        if(compressedLog == null) {
+            return;
+        }
+        try {
+            compressedLog.delete();
+        } catch(IOException e) {
+            logger.warn("{} Could not delete the compressed change history.  Cause: {}", projectId, e.getMessage(), e);
+        }
+        compressedChangeLog = null;
+    }
+
+    /**
+     * Loads the change history with a {@link ParallelChangeLogLoader}.  Must be called with the write lock held.
+     * @return true if the change history was loaded, or false if it could not be loaded in parallel, in which case
+     * the specified lists are not modified.
+     */
+    private boolean loadInParallel(AppendOnlyList<Revision> loadedRevisions,
+                                   AppendOnlyList<RevisionSummary> loadedSummaries,
+                                   List<ChangeLogIndexEntry> indexEntries) {
+        try {
+            var loader = new ParallelChangeLogLoader(changeHistoryFile, dataFactory, changeLogReader, revisionDecoder, loadParallelism);
+            var result = loader.load(changeLogIndex, !lazyChangeLoading);
+            loadedRevisions.addAll(result.revisions());
+            loadedSummaries.addAll(result.summaries());
+            indexEntries.addAll(result.indexEntries());
+            return true;
+        } catch(IOException | RuntimeException e) {
+            logger.warn("{} Could not load change history in parallel.  Loading sequentially.  Cause: {}", projectId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Completes loading once the revisions have been read.  Must be called with the write lock held.
+     */
+    private void completeLoad(Stopwatch stopwatch, List<ChangeLogIndexEntry> indexEntries) {
+        stopwatch.stop();
+        projectMetrics.recordLoad(stopwatch.elapsed(TimeUnit.NANOSECONDS), changeHistoryFile.length());
+        residentChangeCount = lazyChangeLoading ? 0 : revisions.snapshot().stream().mapToLong(Revision::getSize).sum();
+        logger.info("{} Change history loading complete.  Loaded {} revisions in {} ms.", projectId, revisionSummaries.size(), stopwatch
+                .elapsed(TimeUnit.MILLISECONDS));
+        if(!changeLogIndex.isConsistentWith(changeHistoryFile)) {
+            rebuildChangeLogIndex(indexEntries);
+        }
+        if(lazyChangeLoading && !changeLogIndex.isConsistentWith(changeHistoryFile)) {
+            logger.warn("{} The change log index is not usable.  Changes will be held in memory.", projectId);
+            lazyChangeLoading = false;
+            load();
+            return;
+        }
+        updateEntityRevisionIndex();
+        // Everything that was loaded is already in the change history file
+        writtenRevisionNumber = getHeadRevisionNumber().getValue();
+        persistenceTracker.markPersisted(getHeadRevisionNumber());
+        initialiseCheckpointCounters();
+        loaded = true;
+        publishSnapshot();
+    }
+
+    /**
+     * Rebuilds the timestamp and user indexes from the loaded revision summaries.  Must be called with the write lock
+     * held.
+     */
+    private void rebuildSummaryIndexes() {
+        var loadedTimestampIndex = new TimestampIndex();
+        var loadedUserRevisionIndex = new UserRevisionIndex();
+        for(var summary : revisionSummaries.snapshot()) {
+            loadedTimestampIndex.add(summary.getTimestamp());
+            loadedUserRevisionIndex.add(summary);
+        }
+        timestampIndex = loadedTimestampIndex;
+        userRevisionIndex = loadedUserRevisionIndex;
+    }
+
+    /**
+     * Brings the entity revision index up to date with the loaded revisions.  A saved index only needs the revisions
+     * that were added after it was saved.  Must be called with the write lock held.
+     */
+    private void updateEntityRevisionIndex() {
+        var lastIndexedRevisionNumber = entityRevisionIndex.getLastIndexedRevisionNumber();
+        if(lastIndexedRevisionNumber.compareTo(getHeadRevisionNumber()) > 0) {
+            // The saved index includes revisions that never made it into the change history
+            logger.warn("{} The entity revision index is ahead of the change history.  Rebuilding it.", projectId);
+            entityRevisionIndex.clear();
+            lastIndexedRevisionNumber = entityRevisionIndex.getLastIndexedRevisionNumber();
+        }
+        var stopwatch = Stopwatch.createStarted();
+        var summaries = revisionSummaries.snapshot();
+        var loadedRevisions = revisions.snapshot();
+        var indexedRevisionCount = 0;
+        try {
+            for(int i = 0; i < summaries.size(); i++) {
+                var summary = summaries.get(i);
+                if(summary.getRevisionNumber().compareTo(lastIndexedRevisionNumber) <= 0) {
+                    continue;
+                }
+                entityRevisionIndex.add(lazyChangeLoading ? readRevision(summary) : loadedRevisions.get(i));
+                indexedRevisionCount++;
+            }
+        } catch(IOException e) {
+            logger.error("{} Could not index the entities in the change history.  Cause: {}", projectId, e.getMessage(), e);
+        }
+        if(indexedRevisionCount == 0) {
+            return;
+        }
+        logger.info("{} Indexed entities in {} revisions in {} ms", projectId, indexedRevisionCount, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        saveEntityRevisionIndex();
+    }
+
+    private void saveEntityRevisionIndex() {
+        if(!persistEntityRevisionIndex) {
+            return;
+        }
+        try {
+            entityRevisionIndex.save();
+        } catch(IOException e) {
+            logger.warn("{} Could not save the entity revision index.  Cause: {}", projectId, e.getMessage(), e);
+        }
+    }
+
+    private void initialiseCheckpointCounters() {
+        var currentRevisionNumber = getHeadRevisionNumber();
+        checkpointStore.deleteCheckpointsAfter(currentRevisionNumber);
+        var summaries = revisionSummaries.snapshot();
+        if(!summaries.isEmpty() && summaries.get(0).getRevisionType() == RevisionType.BASELINE) {
+            // Left behind if the process stopped between compacting and deleting superseded checkpoints
+            checkpointStore.deleteCheckpointsAtOrBefore(summaries.get(0).getRevisionNumber());
+        }
+        var checkpointRevision = checkpointStore.getNearestCheckpointRevision(currentRevisionNumber)
+                                                .orElse(RevisionNumber.getRevisionNumber(0));
+        for(var summary : revisionSummaries.snapshot()) {
+            if(summary.getRevisionNumber().compareTo(checkpointRevision) > 0) {
+                revisionsSinceCheckpoint++;
+                changesSinceCheckpoint += summary.getChangeCount();
+            }
+        }
+        scheduleCheckpointIfDue();
+    }
+
+    private void rebuildChangeLogIndex(List<ChangeLogIndexEntry> indexEntries) {
+        if(indexEntries.isEmpty()) {
+            return;
+        }
+        var lastEntry = indexEntries.get(indexEntries.size() - 1);
+        if(lastEntry.end() != changeHistoryFile.length()) {
+            logger.warn("{} Change log index entries do not cover the change history.  Not rebuilding the index.", projectId);
+            return;
+        }
+        try {
+            // Check that the recorded boundaries really are record boundaries before trusting them
+            var lastRecord = changeLogReader.read(lastEntry);
+            if(!RevisionDecoder.getRevisionNumber(lastRecord).equals(lastEntry.getRevisionNumber())) {
+                logger.warn("{} Change log index entries do not match the change history.  Not rebuilding the index.", projectId);
+                return;
+            }
+            logger.info("{} Rebuilding change log index", projectId);
+            changeLogIndex.replace(indexEntries);
+        } catch(IOException e) {
+            logger.warn("{} Could not rebuild change log index.  Cause: {}", projectId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compacts the change history so that it starts with a single {@link RevisionType#BASELINE} revision that holds
+     * the state of the ontologies at the specified revision.  The revisions after the specified revision are kept
+     * as they are.  The revisions up to and including the specified revision are no longer available from this
+     * store once it has been compacted, unless the old change history is archived.
+     * @param baselineRevisionNumber The number of the last revision to fold into the baseline
+     * @param archiveDirectory An optional directory that the old change history file is copied to before it is
+     *                         replaced
+     * @throws IllegalArgumentException if the revision does not exist
+     * @throws IOException if the change history could not be compacted.  The change history is left as it was.
+     */
+    public void compact(@Nonnull RevisionNumber baselineRevisionNumber,
+                        @Nullable Path archiveDirectory) throws IOException {
+        checkNotNull(baselineRevisionNumber);
+        try {
+            writeLock.lock();
+            load();
+            var baselineSummary = getRevisionSummary(baselineRevisionNumber)
+                    .orElseThrow(() -> new IllegalArgumentException("Revision " + baselineRevisionNumber.getValue() + " does not exist"));
+            var revisionNumber = baselineSummary.getRevisionNumber();
+            var compressedLog = compressedChangeLog;
+            if(compressedLog != null && revisionNumber.compareTo(compressedLog.getLastRevisionNumber()) < 0) {
+                throw new IllegalArgumentException(String.format("Revision %d is sealed in the compressed change history.  The baseline must be at or after revision %d.",
+                                                                 revisionNumber.getValue(),
+                                                                 compressedLog.getLastRevisionNumber().getValue()));
+            }
+            // Everything that has been added must be in the change history file before it is rewritten
+            if(!serializePendingRevisions()) {
+                throw new IOException("Pending revisions could not be written to the change history file");
+            }
+            if(!changeLogIndex.isConsistentWith(changeHistoryFile)) {
+                throw new IOException("The change log index does not match the change history file");
+            }
+            logger.info("{} Compacting change history up to revision {}", projectId, revisionNumber.getValue());
+            var stopwatch = Stopwatch.createStarted();
+            var baseline = new Revision(baselineSummary.getUserId(),
+                                        revisionNumber,
+                                        replayBaselineChanges(revisionNumber),
+                                        baselineSummary.getTimestamp(),
+                                        "Baseline of revisions up to and including revision " + revisionNumber.getValue(),
+                                        RevisionType.BASELINE);
+            if(compressedLog != null && archiveDirectory != null) {
+                ChangeHistoryCompactor.archive(compressedLog.getFile(), archiveDirectory);
+            }
+            var compactor = new ChangeHistoryCompactor(changeHistoryFile);
+            var compactedEntries = compactor.compact(baseline, changeLogIndex.getEntries(), archiveDirectory);
+            changeLogIndex.replace(compactedEntries);
+            changeLogReader.close();
+            // Checkpoints below the baseline were built from revisions that are no longer in the change history
+            checkpointStore.deleteCheckpointsAtOrBefore(revisionNumber);
+            // The baseline holds everything that was sealed
+            deleteCompressedChangeLog();
+            logger.info("{} Compacted change history in {} ms", projectId, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            reload();
         } finally {
             writeLock.unlock();
         }
+    }
+
+    /**
+     * Seals the change history into its {@link CompressedChangeLog}, so that the revisions in it are held in
+     * compressed blocks.  Revisions that are added afterwards are appended to a new change history file, and the
+     * change history can be sealed again later.  The loaded revisions are not affected.
+     * @throws IOException if the change history could not be sealed.  The change history is left as it was.
+     */
+    public void sealChangeHistory() throws IOException {
+        try {
+            writeLock.lock();
+            load();
+            // Everything that has been added must be in the change history file before it is sealed
+            if(!serializePendingRevisions()) {
+                throw new IOException("Pending revisions could not be written to the change history file");
+            }
+            var stopwatch = Stopwatch.createStarted();
+            changeLogReader.close();
+            var compressedLog = compressedChangeLog;
+            if(compressedLog != null) {
+                compressedLog.close();
+            }
+            var converter = new CompressedChangeLogConverter(dataFactory, compressedBlockSize);
+            var sealedRevisionCount = converter.convert(changeHistoryFile);
+            changeLogIndex.clear();
+            compressedChangeLog = CompressedChangeLog.openIfExists(changeHistoryFile, dataFactory).orElse(null);
+            // The compressed change log is forced to storage when it is written
+            persistenceTracker.markPersisted(getHeadRevisionNumber());
+            logger.info("{} Sealed {} revisions into the compressed change history in {} ms", projectId, sealedRevisionCount, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
+    private ImmutableList<OntologyChange> replayBaselineChanges(@Nonnull RevisionNumber revisionNumber) throws IOException {
+        try {
+            var replayer = OntologyReplayer.replayToRevision(this, revisionNumber);
+            return OntologyReplayer.toChanges(replayer.getOntologyManager());
+        } catch(OWLOntologyCreationException e) {
+            throw new IOException("Could not replay the change history up to revision " + revisionNumber.getValue(), e);
+        }
+    }
 
+    /**
+     * Discards the loaded revisions and loads them again from the change history file.  Must be called with the
+     * write lock held and with no revisions waiting to be written.
+     */
+    private void reload() {
+        revisions = new AppendOnlyList<>();
+        revisionSummaries = new AppendOnlyList<>();
+        rebuildSummaryIndexes();
+        revisionCache.invalidateAll();
+        unsavedRevisions.clear();
+        entityRevisionIndex.clear();
+        revisionsSinceCheckpoint = 0;
+        changesSinceCheckpoint = 0;
+        loaded = false;
+        publishSnapshot();
+        load();
     }
 
+    /**
+     * Disposes of this store.  Revisions that are waiting to be written are written to the change history file
+     * before this method returns.
+     */
+    @Override
     public void dispose() {
-        changeSerializationExecutor.shutdown();
+        try {
+            // Revisions are added with the write lock held, so none can be part way through being added
+            writeLock.lock();
+            if(disposed) {
+                return;
+            }
+            disposed = true;
+            if(groupFsyncExecutor != null) {
+                groupFsyncExecutor.shutdown();
+                // Force any revisions that are written before the serializer shuts down
+                changeSerializationExecutor.submit(this::forceWrittenRevisions);
+            }
+            changeSerializationExecutor.shutdown();
+            checkpointExecutor.shutdownNow();
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            if(!changeSerializationExecutor.awaitTermination(DISPOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.error("{} Timed out waiting for pending revisions to be written", projectId);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("{} Interrupted whilst waiting for pending revisions to be written", projectId);
+        }
+        // Retry any batch that could not be written, once, before giving up on it
+        if(!serializePendingRevisions()) {
+            failPendingRevisions(new IOException("The revisions could not be written to the change history file"));
+        }
+        saveEntityRevisionIndex();
+        try {
+            changeLogReader.close();
+            var compressedLog = compressedChangeLog;
+            if(compressedLog != null) {
+                compressedLog.close();
+            }
+        } catch(IOException e) {
+            logger.warn("{} Could not close change history reader.  Cause: {}", projectId, e.getMessage(), e);
+        }
+        projectMetrics.removeGauges();
+    }
+
+    /**
+     * Gets the number of revisions that are waiting to be written to the change history file.
+     */
+    public int getPendingRevisionCount() {
+        return pendingRevisions.stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Gets the number of revisions whose changes are held in memory.
+     */
+    public long getResidentRevisionCount() {
+        try {
+            readLock.lock();
+            return lazyChangeLoading ? revisionCache.size() : revisions.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of changes that are held in memory.
+     */
+    public long getResidentChangeCount() {
+        try {
+            readLock.lock();
+            if(!lazyChangeLoading) {
+                return residentChangeCount;
+            }
+            return revisionCache.asMap()
+                                .values()
+                                .stream()
+                                .mapToLong(Revision::getSize)
+                                .sum();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Gets an estimate of the heap that is used by the revisions that this store holds in memory.
+     */
+    @Override
+    public long getEstimatedHeapSize() {
+        var current = snapshot;
+        var summaries = current.getSummaries();
+        var changeCount = 0L;
+        if(current.isLazyChangeLoading()) {
+            for(var revision : revisionCache.asMap().values()) {
+                changeCount += revision.getSize();
+            }
+        }
+        else {
+            for(var summary : summaries) {
+                changeCount += summary.getChangeCount();
+            }
+        }
+        return summaries.size() * ESTIMATED_REVISION_SUMMARY_SIZE + changeCount * ESTIMATED_CHANGE_SIZE;
+    }
+
+    /**
+     * An immutable view of the revisions, summaries and summary indexes, which is published through a volatile field
+     * so that it can be read without a lock.  The lists are {@link AppendOnlyList} snapshots and the indexes share
+     * their contents with the live indexes, so publishing a snapshot takes constant time in the number of revisions.
+     */
+    private static final class RevisionSnapshot {
+
+        private static final RevisionSnapshot EMPTY = new RevisionSnapshot(List.of(),
+                                                                                    List.of(),
+                                                                                    TimestampIndex.Snapshot.EMPTY,
+                                                                                    UserRevisionIndex.Snapshot.EMPTY,
+                                                                                    false,
+                                                                                    false);
+
+        @Nonnull
+        private final List<Revision> revisions;
+
+        @Nonnull
+        private final List<RevisionSummary> summaries;
+
+        @Nonnull
+        private final TimestampIndex.Snapshot timestampIndex;
+
+        @Nonnull
+        private final UserRevisionIndex.Snapshot userRevisionIndex;
+
+        private final boolean lazyChangeLoading;
+
+        private final boolean loaded;
+
+        /**
+         * An immutable copy of the revisions, built on demand for {@link RevisionStoreImpl#getRevisions()}.  Racing
+         * readers may each build a copy, but every copy has the same contents.
+         */
+        @Nullable
+        private volatile ImmutableList<Revision> revisionsCopy = null;
+
+        private RevisionSnapshot(@Nonnull List<Revision> revisions,
+                                 @Nonnull List<RevisionSummary> summaries,
+                                 @Nonnull TimestampIndex.Snapshot timestampIndex,
+                                 @Nonnull UserRevisionIndex.Snapshot userRevisionIndex,
+                                 boolean lazyChangeLoading,
+                                 boolean loaded) {
+            this.revisions = revisions;
+            this.summaries = summaries;
+            this.timestampIndex = timestampIndex;
+            this.userRevisionIndex = userRevisionIndex;
+            this.lazyChangeLoading = lazyChangeLoading;
+            this.loaded = loaded;
+        }
+
+        /**
+         * Gets the revisions, including their changes.  Empty if changes are loaded lazily.
+         */
+        @Nonnull
+        public List<Revision> getRevisions() {
+            return revisions;
+        }
+
+        @Nonnull
+        public ImmutableList<Revision> getRevisionsCopy() {
+            var copy = revisionsCopy;
+            if(copy == null) {
+                copy = ImmutableList.copyOf(revisions);
+                revisionsCopy = copy;
+            }
+            return copy;
+        }
+
+        @Nonnull
+        public List<RevisionSummary> getSummaries() {
+            return summaries;
+        }
+
+        @Nonnull
+        public TimestampIndex.Snapshot getTimestampIndex() {
+            return timestampIndex;
+        }
+
+        @Nonnull
+        public UserRevisionIndex.Snapshot getUserRevisionIndex() {
+            return userRevisionIndex;
+        }
+
+        public boolean isLazyChangeLoading() {
+            return lazyChangeLoading;
+        }
+
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        @Nonnull
+        public RevisionNumber getHeadRevisionNumber() {
+            if(summaries.isEmpty()) {
+                return RevisionNumber.getRevisionNumber(0);
+            }
+            return summaries.get(summaries.size() - 1).getRevisionNumber();
+        }
+
+        /**
+         * Gets the position of the specified revision in the summaries.
+         * @return The position, or -1 if there is no such revision
+         */
+        public int getRevisionIndex(@Nonnull RevisionNumber revision) {
+            if(summaries.isEmpty()) {
+                return -1;
+            }
+            if(revision.isHead()) {
+                return summaries.size() - 1;
+            }
+            var low = 0;
+            var high = summaries.size() - 1;
+            while(low <= high) {
+                var mid = (low + high) >>> 1;
+                var diff = summaries.get(mid).getRevisionNumber().compareTo(revision);
+                if(diff < 0) {
+                    low = mid + 1;
+                }
+                else if(diff > 0) {
+                    high = mid - 1;
+                }
+                else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
     }
 }
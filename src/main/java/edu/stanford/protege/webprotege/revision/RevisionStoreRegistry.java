@@ -0,0 +1,467 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.base.Ticker;
+import edu.stanford.protege.webprotege.common.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Holds the open revision store, and its revision manager, for each project.  A project is opened, with the
+ * {@link RevisionStoreFactory}, the first time that it is requested.  Concurrent requests for a project that is
+ * being opened wait for it to be opened rather than opening it again.
+ * <p>
+ * Projects that have not been requested within the idle timeout (see
+ * {@link RevisionManagerSettings#getStoreIdleTimeout()}) are evicted.  If a heap budget is set (see
+ * {@link RevisionManagerSettings#getStoreHeapBudget()}) then the least recently requested projects are evicted when
+ * the estimated heap used by the open stores exceeds the budget.  An evicted store is disposed of, which writes any
+ * pending revisions, and the project is not reopened until that has completed.
+ * </p>
+ * <p>
+ * Stores are only handed out under a lease, and a leased project is never evicted.  A project is leased while an
+ * operation runs through {@link #withRevisionStore(ProjectId, Function)} or
+ * {@link #withRevisionManager(ProjectId, Function)}, and until a {@link ProjectLease} that is obtained with
+ * {@link #lease(ProjectId)} is closed.  The manager that is returned by {@link #getRevisionManager(ProjectId)} leases
+ * the project for each call, so it can be held on to.
+ * </p>
+ * <p>
+ * When the registry is disposed of every store is disposed of, including stores that are leased, so that the
+ * revisions that are waiting to be written are flushed.  Projects cannot be opened once the registry has been
+ * disposed of.
+ * </p>
+ */
+public class RevisionStoreRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevisionStoreRegistry.class);
+
+    private static final long MIN_EVICTION_CHECK_INTERVAL_MS = 1_000;
+
+    private static final long MAX_EVICTION_CHECK_INTERVAL_MS = 60_000;
+
+    @Nonnull
+    private final RevisionStoreFactory revisionStoreFactory;
+
+    @Nonnull
+    private final RevisionManagerSettings settings;
+
+    @Nonnull
+    private final RevisionMetrics metrics;
+
+    @Nonnull
+    private final Ticker ticker;
+
+    private final long idleTimeoutNanos;
+
+    private final long heapBudget;
+
+    private final Map<ProjectId, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Futures for the disposal of evicted stores, keyed by project.  A project is not reopened until the disposal of
+     * its previous store has completed.
+     */
+    private final Map<ProjectId, CompletableFuture<Void>> disposals = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final ScheduledExecutorService evictionExecutor;
+
+    private volatile boolean disposed = false;
+
+    private record OpenProject(RevisionStore revisionStore, RevisionManager revisionManager) {
+
+    }
+
+    private static class Entry {
+
+        /**
+         * The value of {@link #leaseCount} once the entry has been evicted
+         */
+        private static final int EVICTED = -1;
+
+        private final CompletableFuture<OpenProject> openProject = new CompletableFuture<>();
+
+        /**
+         * The number of operations that are using the project, or {@link #EVICTED}
+         */
+        private final AtomicInteger leaseCount = new AtomicInteger();
+
+        private volatile long lastAccessNanos;
+
+        private boolean isOpen() {
+            return openProject.isDone() && !openProject.isCompletedExceptionally();
+        }
+
+        /**
+         * Leases this entry, unless it has been evicted.
+         * @return true if the entry was leased, or false if it has been evicted
+         */
+        private boolean acquireLease() {
+            while(true) {
+                var count = leaseCount.get();
+                if(count == EVICTED) {
+                    return false;
+                }
+                if(leaseCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void releaseLease() {
+            leaseCount.updateAndGet(count -> count == EVICTED ? EVICTED : count - 1);
+        }
+
+        /**
+         * Marks this entry as evicted, unless it is leased.
+         * @return true if the entry was marked as evicted, or false if it is leased or has already been evicted
+         */
+        private boolean markEvicted() {
+            return leaseCount.compareAndSet(0, EVICTED);
+        }
+
+        /**
+         * Marks this entry as evicted, even if it is leased.
+         * @return The number of leases that were held, or {@link #EVICTED} if the entry had already been evicted
+         */
+        private int forceEvicted() {
+            return leaseCount.getAndSet(EVICTED);
+        }
+    }
+
+    /**
+     * A lease on an open project.  The project is not evicted until the lease is closed, unless the registry is
+     * disposed of.
+     */
+    public static final class ProjectLease implements AutoCloseable {
+
+        private final Entry entry;
+
+        private final OpenProject openProject;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ProjectLease(@Nonnull Entry entry, @Nonnull OpenProject openProject) {
+            this.entry = entry;
+            this.openProject = openProject;
+        }
+
+        @Nonnull
+        public RevisionStore getRevisionStore() {
+            return openProject.revisionStore();
+        }
+
+        @Nonnull
+        public RevisionManager getRevisionManager() {
+            return openProject.revisionManager();
+        }
+
+        /**
+         * Releases this lease.  Closing a lease more than once has no effect.
+         */
+        @Override
+        public void close() {
+            if(closed.compareAndSet(false, true)) {
+                entry.releaseLease();
+            }
+        }
+    }
+
+    public RevisionStoreRegistry(@Nonnull RevisionStoreFactory revisionStoreFactory,
+                                 @Nonnull RevisionManagerSettings settings) {
+        this(revisionStoreFactory, settings, RevisionMetrics.noop());
+    }
+
+    @Inject
+    public RevisionStoreRegistry(@Nonnull RevisionStoreFactory revisionStoreFactory,
+                                 @Nonnull RevisionManagerSettings settings,
+                                 @Nonnull RevisionMetrics metrics) {
+        this(revisionStoreFactory, settings, metrics, Ticker.systemTicker(), true);
+    }
+
+    RevisionStoreRegistry(@Nonnull RevisionStoreFactory revisionStoreFactory,
+                          @Nonnull RevisionManagerSettings settings,
+                          @Nonnull RevisionMetrics metrics,
+                          @Nonnull Ticker ticker,
+                          boolean scheduleEviction) {
+        this.revisionStoreFactory = checkNotNull(revisionStoreFactory);
+        this.settings = checkNotNull(settings);
+        this.metrics = checkNotNull(metrics);
+        this.ticker = checkNotNull(ticker);
+        this.idleTimeoutNanos = settings.getStoreIdleTimeout().toNanos();
+        this.heapBudget = settings.getStoreHeapBudget();
+        if(scheduleEviction && idleTimeoutNanos > 0) {
+            var checkIntervalMs = Math.min(MAX_EVICTION_CHECK_INTERVAL_MS,
+                                           Math.max(MIN_EVICTION_CHECK_INTERVAL_MS, settings.getStoreIdleTimeout().toMillis() / 4));
+            evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName(thread.getName().replace("thread", "revision-store-eviction-thread"));
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictionExecutor.scheduleWithFixedDelay(this::evictIdleStores, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        else {
+            evictionExecutor = null;
+        }
+    }
+
+    /**
+     * Opens the specified project, if it is not already open, without leasing it.
+     */
+    public void open(@Nonnull ProjectId projectId) {
+        join(getEntry(projectId));
+    }
+
+    /**
+     * Leases the specified project, opening it if necessary.  The lease must be closed once the project is no longer
+     * in use.
+     */
+    @Nonnull
+    public ProjectLease lease(@Nonnull ProjectId projectId) {
+        while(true) {
+            var entry = getEntry(projectId);
+            if(!entry.acquireLease()) {
+                // Evicted after it was looked up.  The next lookup waits for its disposal and reopens it.
+                continue;
+            }
+            try {
+                return new ProjectLease(entry, join(entry));
+            } catch(RuntimeException e) {
+                entry.releaseLease();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Gets a revision manager for the specified project that leases the project for each call.  The project is
+     * opened by the first call, and reopened by the next call if it is evicted in between.
+     */
+    @Nonnull
+    public RevisionManager getRevisionManager(@Nonnull ProjectId projectId) {
+        return new LeasingRevisionManager(this, checkNotNull(projectId));
+    }
+
+    /**
+     * Applies the specified operation to the revision store for the specified project, opening the project if
+     * necessary.  The project is not evicted while the operation runs.
+     */
+    public <T> T withRevisionStore(@Nonnull ProjectId projectId,
+                                   @Nonnull Function<RevisionStore, T> operation) {
+        return withLease(projectId, lease -> operation.apply(lease.getRevisionStore()));
+    }
+
+    /**
+     * Applies the specified operation to the revision manager for the specified project, opening the project if
+     * necessary.  The project is not evicted while the operation runs.
+     */
+    public <T> T withRevisionManager(@Nonnull ProjectId projectId,
+                                     @Nonnull Function<RevisionManager, T> operation) {
+        return withLease(projectId, lease -> operation.apply(lease.getRevisionManager()));
+    }
+
+    private <T> T withLease(@Nonnull ProjectId projectId,
+                            @Nonnull Function<ProjectLease, T> operation) {
+        checkNotNull(operation);
+        try(var lease = lease(projectId)) {
+            return operation.apply(lease);
+        }
+    }
+
+    /**
+     * Gets the projects that are open in this registry, most recently requested first.
+     */
+    @Nonnull
+    public List<ProjectId> getOpenProjectIds() {
+        return entries.entrySet()
+                      .stream()
+                      .filter(e -> e.getValue().isOpen())
+                      .sorted(Comparator.comparingLong((Map.Entry<ProjectId, Entry> e) -> e.getValue().lastAccessNanos).reversed())
+                      .map(Map.Entry::getKey)
+                      .toList();
+    }
+
+    /**
+     * Gets the estimated heap, in bytes, that is used by the stores that are open in this registry.
+     */
+    public long getEstimatedHeapSize() {
+        return entries.values()
+                      .stream()
+                      .filter(Entry::isOpen)
+                      .mapToLong(entry -> entry.openProject.join().revisionStore().getEstimatedHeapSize())
+                      .sum();
+    }
+
+    /**
+     * Determines whether the specified project is open in this registry.
+     */
+    public boolean isOpen(@Nonnull ProjectId projectId) {
+        var entry = entries.get(projectId);
+        return entry != null && entry.isOpen();
+    }
+
+    /**
+     * Gets the entry for the specified project, creating it and opening the project if necessary.
+     */
+    private Entry getEntry(@Nonnull ProjectId projectId) {
+        checkNotNull(projectId);
+        if(disposed) {
+            throw new IllegalStateException("The revision store registry has been disposed of");
+        }
+        var created = new boolean[1];
+        var entry = entries.computeIfAbsent(projectId, id -> {
+            created[0] = true;
+            return new Entry();
+        });
+        entry.lastAccessNanos = ticker.read();
+        if(created[0]) {
+            try {
+                awaitDisposal(projectId);
+                var revisionStore = revisionStoreFactory.createRevisionStore(projectId);
+                entry.openProject.complete(new OpenProject(revisionStore, new RevisionManagerImpl(revisionStore, settings, metrics.forProject(projectId))));
+            } catch(RuntimeException e) {
+                entries.remove(projectId, entry);
+                entry.openProject.completeExceptionally(e);
+                throw e;
+            }
+            evictOverBudget(projectId);
+        }
+        return entry;
+    }
+
+    private static OpenProject join(@Nonnull Entry entry) {
+        try {
+            return entry.openProject.join();
+        } catch(CompletionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private void awaitDisposal(@Nonnull ProjectId projectId) {
+        var disposal = disposals.get(projectId);
+        if(disposal != null) {
+            disposal.join();
+        }
+    }
+
+    /**
+     * Evicts the projects that have not been requested within the idle timeout.
+     */
+    public void evictIdleStores() {
+        if(idleTimeoutNanos <= 0) {
+            return;
+        }
+        var now = ticker.read();
+        entries.forEach((projectId, entry) -> {
+            if(entry.isOpen() && now - entry.lastAccessNanos > idleTimeoutNanos && evict(projectId, entry)) {
+                logger.info("{} Evicted idle revision store", projectId);
+            }
+        });
+    }
+
+    /**
+     * Evicts the least recently requested projects until the estimated heap used by the open stores is within the
+     * heap budget.  The project that has just been opened, and projects that are leased, are never evicted.
+     */
+    private void evictOverBudget(@Nonnull ProjectId openedProjectId) {
+        if(heapBudget <= 0) {
+            return;
+        }
+        var openEntries = entries.entrySet()
+                                 .stream()
+                                 .filter(e -> e.getValue().isOpen())
+                                 .sorted(Comparator.comparingLong(e -> e.getValue().lastAccessNanos))
+                                 .toList();
+        var estimatedHeapSize = openEntries.stream()
+                                           .mapToLong(e -> e.getValue().openProject.join().revisionStore().getEstimatedHeapSize())
+                                           .sum();
+        for(var e : openEntries) {
+            if(estimatedHeapSize <= heapBudget) {
+                break;
+            }
+            if(e.getKey().equals(openedProjectId)) {
+                continue;
+            }
+            var storeHeapSize = e.getValue().openProject.join().revisionStore().getEstimatedHeapSize();
+            if(evict(e.getKey(), e.getValue())) {
+                logger.info("{} Evicted revision store to stay within heap budget", e.getKey());
+                estimatedHeapSize -= storeHeapSize;
+            }
+        }
+    }
+
+    /**
+     * Evicts the specified entry and disposes of its store, unless the entry is leased.
+     * @return true if the entry was evicted, or false if it is leased or has already been evicted
+     */
+    private boolean evict(@Nonnull ProjectId projectId, @Nonnull Entry entry) {
+        if(!entry.markEvicted()) {
+            return false;
+        }
+        disposeEvicted(projectId, entry);
+        return true;
+    }
+
+    /**
+     * Removes the specified entry, which has been marked as evicted, and disposes of its store.
+     */
+    private void disposeEvicted(@Nonnull ProjectId projectId, @Nonnull Entry entry) {
+        entries.remove(projectId, entry);
+        var disposal = new CompletableFuture<Void>();
+        disposals.put(projectId, disposal);
+        entry.openProject.whenComplete((openProject, error) -> {
+            try {
+                if(openProject != null) {
+                    openProject.revisionStore().dispose();
+                }
+            } catch(RuntimeException e) {
+                logger.error("{} Error disposing of revision store.  Cause: {}", projectId, e.getMessage(), e);
+            } finally {
+                disposals.remove(projectId, disposal);
+                disposal.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Disposes of every store, which writes the revisions that are waiting to be written, and stops evicting idle
+     * projects.  Stores that are leased are disposed of too, so operations that are still using them fail.
+     */
+    public void dispose() {
+        disposed = true;
+        if(evictionExecutor != null) {
+            evictionExecutor.shutdown();
+        }
+        entries.forEach((projectId, entry) -> {
+            var leaseCount = entry.forceEvicted();
+            if(leaseCount == Entry.EVICTED) {
+                return;
+            }
+            if(leaseCount > 0) {
+                logger.warn("{} Revision store is in use and is being disposed of", projectId);
+            }
+            disposeEvicted(projectId, entry);
+        });
+        disposals.values().forEach(CompletableFuture::join);
+    }
+}
@@ -0,0 +1,167 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.ProjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loads projects into a {@link RevisionStoreRegistry} ahead of their first use, so that the first users of a project
+ * after a restart do not wait for it to load.  Projects are loaded in priority order, with at most
+ * {@link RevisionManagerSettings#getWarmUpParallelism()} loading at once.  If a heap budget is set (see
+ * {@link RevisionManagerSettings#getStoreHeapBudget()}) then warming up stops once the open stores reach the budget,
+ * so that warming up does not evict projects that it has just loaded.
+ * <p>
+ * The projects that are open when this service is disposed of are recorded, most recently used first, so that they
+ * can be warmed up when the application next starts.
+ * </p>
+ */
+public class RevisionStoreWarmUpService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevisionStoreWarmUpService.class);
+
+    @Nonnull
+    private final RevisionStoreRegistry revisionStoreRegistry;
+
+    @Nonnull
+    private final File recentProjectsFile;
+
+    private final long heapBudget;
+
+    @Nonnull
+    private final ExecutorService executor;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    public RevisionStoreWarmUpService(@Nonnull RevisionStoreRegistry revisionStoreRegistry,
+                                      @Nonnull RevisionManagerSettings settings,
+                                      @Nonnull File recentProjectsFile) {
+        this.revisionStoreRegistry = checkNotNull(revisionStoreRegistry);
+        this.recentProjectsFile = checkNotNull(recentProjectsFile);
+        this.heapBudget = settings.getStoreHeapBudget();
+        executor = Executors.newFixedThreadPool(Math.max(1, settings.getWarmUpParallelism()), runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName(thread.getName().replace("thread", "revision-store-warm-up-thread"));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Warms up the projects that were open when this service was last disposed of.
+     * @return A future that completes with the final progress once every project has been dealt with
+     */
+    @Nonnull
+    public CompletableFuture<WarmUpProgress> warmUpRecentProjects() {
+        return warmUp(readRecentProjects(), progress -> {});
+    }
+
+    /**
+     * Warms up the specified projects.
+     * @param projectIds The projects, highest priority first.  Projects are started in this order.
+     * @param progressListener A listener that is notified each time a project has been dealt with.  It is called on
+     *                         the thread that loaded the project.
+     * @return A future that completes with the final progress once every project has been dealt with
+     */
+    @Nonnull
+    public CompletableFuture<WarmUpProgress> warmUp(@Nonnull List<ProjectId> projectIds,
+                                                    @Nonnull Consumer<WarmUpProgress> progressListener) {
+        checkNotNull(progressListener);
+        var orderedProjectIds = List.copyOf(new LinkedHashSet<>(projectIds));
+        var projectCount = orderedProjectIds.size();
+        logger.info("Warming up {} projects", projectCount);
+        var loadedCount = new AtomicInteger();
+        var failedCount = new AtomicInteger();
+        var skippedCount = new AtomicInteger();
+        var futures = orderedProjectIds.stream()
+                                       .map(projectId -> CompletableFuture.supplyAsync(() -> {
+                                           warmUp(projectId, loadedCount, failedCount, skippedCount);
+                                           var progress = new WarmUpProgress(projectCount, loadedCount.get(), failedCount.get(), skippedCount.get());
+                                           progressListener.accept(progress);
+                                           return progress;
+                                       }, executor))
+                                       .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures).thenApply(v -> {
+            var progress = new WarmUpProgress(projectCount, loadedCount.get(), failedCount.get(), skippedCount.get());
+            logger.info("Warmed up projects.  Loaded: {}  Failed: {}  Skipped: {}", progress.loadedCount(), progress.failedCount(), progress.skippedCount());
+            return progress;
+        });
+    }
+
+    private void warmUp(@Nonnull ProjectId projectId,
+                        @Nonnull AtomicInteger loadedCount,
+                        @Nonnull AtomicInteger failedCount,
+                        @Nonnull AtomicInteger skippedCount) {
+        if(cancelled.get() || isOverHeapBudget()) {
+            skippedCount.incrementAndGet();
+            return;
+        }
+        try {
+            revisionStoreRegistry.open(projectId);
+            loadedCount.incrementAndGet();
+        } catch(RuntimeException e) {
+            logger.warn("{} Could not warm up project.  Cause: {}", projectId, e.getMessage(), e);
+            failedCount.incrementAndGet();
+        }
+    }
+
+    private boolean isOverHeapBudget() {
+        return heapBudget > 0 && revisionStoreRegistry.getEstimatedHeapSize() >= heapBudget;
+    }
+
+    @Nonnull
+    private List<ProjectId> readRecentProjects() {
+        if(!recentProjectsFile.exists()) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(recentProjectsFile.toPath(), StandardCharsets.UTF_8)
+                        .stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty())
+                        .map(ProjectId::valueOf)
+                        .toList();
+        } catch(IOException | RuntimeException e) {
+            logger.warn("Could not read the recent projects from {}.  Cause: {}", recentProjectsFile, e.getMessage(), e);
+            return List.of();
+        }
+    }
+
+    private void saveRecentProjects() {
+        var projectIds = revisionStoreRegistry.getOpenProjectIds();
+        var tempFile = new File(recentProjectsFile.getParentFile(), recentProjectsFile.getName() + ".tmp");
+        try {
+            Files.createDirectories(recentProjectsFile.getParentFile().toPath());
+            Files.write(tempFile.toPath(), projectIds.stream().map(ProjectId::id).toList(), StandardCharsets.UTF_8);
+            Files.move(tempFile.toPath(), recentProjectsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            logger.warn("Could not save the recent projects to {}.  Cause: {}", recentProjectsFile, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cancels any warm up that is in progress and records the projects that are open so that they can be warmed up
+     * when the application next starts.
+     */
+    public void dispose() {
+        cancelled.set(true);
+        executor.shutdownNow();
+        saveRecentProjects();
+    }
+}
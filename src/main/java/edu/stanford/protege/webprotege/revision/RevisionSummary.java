@@ -26,7 +26,8 @@ public class RevisionSummary implements Serializable, Comparable<RevisionSummary
     private int changeCount;
 
     private String description;
-    
+
+    private RevisionType revisionType = RevisionType.EDIT;
 
 
     private RevisionSummary() {
@@ -37,11 +38,21 @@ public class RevisionSummary implements Serializable, Comparable<RevisionSummary
                            long timestamp,
                            int changeCount,
                            @Nonnull String description) {
+        this(revisionNumber, userId, timestamp, changeCount, description, RevisionType.EDIT);
+    }
+
+    public RevisionSummary(@Nonnull RevisionNumber revisionNumber,
+                           @Nonnull UserId userId,
+                           long timestamp,
+                           int changeCount,
+                           @Nonnull String description,
+                           @Nonnull RevisionType revisionType) {
         this.revisionNumber = checkNotNull(revisionNumber);
         this.userId = checkNotNull(userId);
         this.timestamp = timestamp;
         this.changeCount = changeCount;
         this.description = checkNotNull(description);
+        this.revisionType = checkNotNull(revisionType);
     }
 
     @Nonnull
@@ -67,9 +78,14 @@ public class RevisionSummary implements Serializable, Comparable<RevisionSummary
         return description;
     }
 
+    @Nonnull
+    public RevisionType getRevisionType() {
+        return revisionType;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hashCode(revisionNumber, userId, timestamp, changeCount, description);
+        return Objects.hashCode(revisionNumber, userId, timestamp, changeCount, description, revisionType);
     }
 
     @Override
@@ -80,7 +96,7 @@ public class RevisionSummary implements Serializable, Comparable<RevisionSummary
         if(!(obj instanceof RevisionSummary other)) {
             return false;
         }
-        return this.timestamp == other.timestamp && this.revisionNumber.equals(other.revisionNumber) && this.userId.equals(other.userId) && this.changeCount == other.changeCount && this.description.equals(other.description);
+        return this.timestamp == other.timestamp && this.revisionNumber.equals(other.revisionNumber) && this.userId.equals(other.userId) && this.changeCount == other.changeCount && this.description.equals(other.description) && this.revisionType == other.revisionType;
     }
 
     /**
@@ -122,6 +138,7 @@ public class RevisionSummary implements Serializable, Comparable<RevisionSummary
                 .add("timestamp", timestamp)
                 .add("changeCount", changeCount)
                 .add("description", description)
+                .add("type", revisionType)
                 .toString();
     }
 }
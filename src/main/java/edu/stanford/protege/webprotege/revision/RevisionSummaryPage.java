@@ -0,0 +1,14 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Optional;
+
+/**
+ * A page of revision summaries, newest first.
+ * @param summaries The summaries in the page, in descending revision number order
+ * @param nextCursor The cursor for the next (older) page, or empty if this is the last page
+ */
+public record RevisionSummaryPage(ImmutableList<RevisionSummary> summaries, Optional<RevisionNumber> nextCursor) {
+
+}
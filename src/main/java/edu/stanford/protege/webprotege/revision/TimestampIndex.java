@@ -0,0 +1,128 @@
+package edu.stanford.protege.webprotege.revision;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * An index of the times at which revisions took effect, in revision order.  Revision timestamps come from the clock
+ * of the machine that added the revision, so they are not necessarily increasing; a clock can be set back, or a
+ * project can move between machines.  The index therefore holds, for each revision, the latest timestamp of that
+ * revision and every revision before it.  A revision takes effect at that time, at the earliest, because it depends
+ * on the revisions before it.  These effective times never decrease, so they can be binary searched.
+ * <p>
+ * This class is not thread safe, but its {@link #snapshot() snapshots} are immutable.
+ * </p>
+ */
+final class TimestampIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] effectiveTimestamps = new long[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /**
+     * Adds the timestamp of the next revision.
+     */
+    public void add(long timestamp) {
+        if(size == effectiveTimestamps.length) {
+            effectiveTimestamps = Arrays.copyOf(effectiveTimestamps, size * 2);
+        }
+        effectiveTimestamps[size] = size == 0 ? timestamp : Math.max(effectiveTimestamps[size - 1], timestamp);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the position of the last revision that took effect at or before the specified time.
+     * @return The position, or -1 if no revision took effect at or before the time
+     */
+    public int getLastIndexAtOrBefore(long timestamp) {
+        return snapshot().getLastIndexAtOrBefore(timestamp);
+    }
+
+    /**
+     * Gets the position of the first revision that took effect after the specified time.
+     * @return The position, or the size of this index if no revision took effect after the time
+     */
+    public int getFirstIndexAfter(long timestamp) {
+        return snapshot().getFirstIndexAfter(timestamp);
+    }
+
+    /**
+     * Gets the position of the first revision that took effect at or after the specified time.
+     * @return The position, or the size of this index if no revision took effect at or after the time
+     */
+    public int getFirstIndexAtOrAfter(long timestamp) {
+        return snapshot().getFirstIndexAtOrAfter(timestamp);
+    }
+
+    /**
+     * Gets an immutable snapshot of this index.  This takes constant time.  Adding a timestamp never overwrites the
+     * timestamps before it, so the snapshot shares the timestamps with this index.  As with {@link AppendOnlyList},
+     * snapshots must be published to other threads safely.
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        return new Snapshot(effectiveTimestamps, size);
+    }
+
+    /**
+     * An immutable snapshot of a {@link TimestampIndex}.
+     */
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(new long[0], 0);
+
+        private final long[] effectiveTimestamps;
+
+        private final int size;
+
+        private Snapshot(long[] effectiveTimestamps, int size) {
+            this.effectiveTimestamps = effectiveTimestamps;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets the position of the last revision that took effect at or before the specified time.
+         * @return The position, or -1 if no revision took effect at or before the time
+         */
+        public int getLastIndexAtOrBefore(long timestamp) {
+            return getFirstIndexAfter(timestamp) - 1;
+        }
+
+        /**
+         * Gets the position of the first revision that took effect after the specified time.
+         * @return The position, or the size of this snapshot if no revision took effect after the time
+         */
+        public int getFirstIndexAfter(long timestamp) {
+            var low = 0;
+            var high = size;
+            while(low < high) {
+                var mid = (low + high) >>> 1;
+                if(effectiveTimestamps[mid] <= timestamp) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Gets the position of the first revision that took effect at or after the specified time.
+         * @return The position, or the size of this snapshot if no revision took effect at or after the time
+         */
+        public int getFirstIndexAtOrAfter(long timestamp) {
+            return timestamp == Long.MIN_VALUE ? 0 : getFirstIndexAfter(timestamp - 1);
+        }
+    }
+}
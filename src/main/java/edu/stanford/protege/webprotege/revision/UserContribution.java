@@ -0,0 +1,19 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.UserId;
+
+/**
+ * Statistics about the revisions that a user has contributed to a project.
+ * @param userId The user
+ * @param revisionCount The number of revisions that the user has made
+ * @param changeCount The total number of changes in the revisions that the user has made
+ * @param firstTimestamp The timestamp of the first revision that the user made
+ * @param lastTimestamp The timestamp of the last revision that the user made
+ */
+public record UserContribution(UserId userId,
+                               long revisionCount,
+                               long changeCount,
+                               long firstTimestamp,
+                               long lastTimestamp) {
+
+}
@@ -0,0 +1,181 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import edu.stanford.protege.webprotege.common.UserId;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An index from users to the revisions that they have made, along with running totals of their contributions.  The
+ * index is built from revision summaries, so the changes in revisions do not need to be read.  Summaries must be
+ * added in revision number order.
+ * <p>
+ * This class is not thread safe, but its {@link #snapshot() snapshots} are immutable.
+ * </p>
+ */
+final class UserRevisionIndex {
+
+    private final Map<UserId, UserRevisions> revisionsByUser = new LinkedHashMap<>();
+
+    /**
+     * The users that have made revisions since the last snapshot was taken
+     */
+    private final Set<UserId> changedUsers = new HashSet<>();
+
+    private Snapshot lastSnapshot = Snapshot.EMPTY;
+
+    private static final class UserRevisions {
+
+        private final RevisionNumberList revisionNumbers = new RevisionNumberList();
+
+        private long changeCount = 0;
+
+        private long firstTimestamp;
+
+        private long lastTimestamp;
+    }
+
+    /**
+     * Adds the revision with the specified summary to this index.
+     */
+    public void add(@Nonnull RevisionSummary summary) {
+        var userRevisions = revisionsByUser.computeIfAbsent(summary.getUserId(), userId -> new UserRevisions());
+        if(userRevisions.revisionNumbers.size() == 0) {
+            userRevisions.firstTimestamp = summary.getTimestamp();
+        }
+        userRevisions.revisionNumbers.add(summary.getRevisionNumber().getValue());
+        userRevisions.changeCount += summary.getChangeCount();
+        userRevisions.lastTimestamp = summary.getTimestamp();
+        changedUsers.add(summary.getUserId());
+    }
+
+    /**
+     * Gets the numbers of the revisions that the specified user has made.
+     * @return The revision numbers in ascending order.  The array is a copy and may be modified by the caller.
+     */
+    @Nonnull
+    public long[] getRevisionNumbers(@Nonnull UserId userId) {
+        return snapshot().getRevisionNumbers(userId);
+    }
+
+    /**
+     * Gets the contribution of the specified user.
+     * @return The contribution, or empty if the user has not made any revisions
+     */
+    @Nonnull
+    public Optional<UserContribution> getContribution(@Nonnull UserId userId) {
+        return snapshot().getContribution(userId);
+    }
+
+    /**
+     * Gets the contributions of every user that has made a revision, in the order that they first made a revision.
+     */
+    @Nonnull
+    public ImmutableList<UserContribution> getContributions() {
+        return snapshot().getContributions();
+    }
+
+    /**
+     * Gets an immutable snapshot of this index.  Only the users that have made revisions since the previous snapshot
+     * are copied, and their revision numbers are shared with this index because they are never overwritten.  As with
+     * {@link AppendOnlyList}, snapshots must be published to other threads safely.
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        if(changedUsers.isEmpty()) {
+            return lastSnapshot;
+        }
+        var entries = ImmutableMap.<UserId, UserSnapshot>builderWithExpectedSize(revisionsByUser.size());
+        revisionsByUser.forEach((userId, revisions) -> {
+            var previousEntry = lastSnapshot.entries.get(userId);
+            if(previousEntry != null && !changedUsers.contains(userId)) {
+                entries.put(userId, previousEntry);
+            }
+            else {
+                entries.put(userId, new UserSnapshot(revisions.revisionNumbers.getValues(),
+                                                     toContribution(userId, revisions)));
+            }
+        });
+        changedUsers.clear();
+        lastSnapshot = new Snapshot(entries.build());
+        return lastSnapshot;
+    }
+
+    private static UserContribution toContribution(@Nonnull UserId userId, @Nonnull UserRevisions revisions) {
+        return new UserContribution(userId,
+                                    revisions.revisionNumbers.size(),
+                                    revisions.changeCount,
+                                    revisions.firstTimestamp,
+                                    revisions.lastTimestamp);
+    }
+
+    private static final class UserSnapshot {
+
+        /**
+         * The revision numbers of the user.  Only the first {@link UserContribution#revisionCount()} elements
+         * belong to this snapshot.
+         */
+        private final long[] revisionNumbers;
+
+        private final UserContribution contribution;
+
+        private UserSnapshot(long[] revisionNumbers, UserContribution contribution) {
+            this.revisionNumbers = revisionNumbers;
+            this.contribution = contribution;
+        }
+    }
+
+    /**
+     * An immutable snapshot of a {@link UserRevisionIndex}.
+     */
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(ImmutableMap.of());
+
+        private final ImmutableMap<UserId, UserSnapshot> entries;
+
+        private Snapshot(ImmutableMap<UserId, UserSnapshot> entries) {
+            this.entries = entries;
+        }
+
+        /**
+         * Gets the numbers of the revisions that the specified user has made.
+         * @return The revision numbers in ascending order.  The array is a copy and may be modified by the caller.
+         */
+        @Nonnull
+        public long[] getRevisionNumbers(@Nonnull UserId userId) {
+            var entry = entries.get(checkNotNull(userId));
+            return entry != null ? Arrays.copyOf(entry.revisionNumbers, (int) entry.contribution.revisionCount()) : new long[0];
+        }
+
+        /**
+         * Gets the contribution of the specified user.
+         * @return The contribution, or empty if the user has not made any revisions
+         */
+        @Nonnull
+        public Optional<UserContribution> getContribution(@Nonnull UserId userId) {
+            var entry = entries.get(checkNotNull(userId));
+            return Optional.ofNullable(entry).map(e -> e.contribution);
+        }
+
+        /**
+         * Gets the contributions of every user that has made a revision, in the order that they first made a
+         * revision.
+         */
+        @Nonnull
+        public ImmutableList<UserContribution> getContributions() {
+            var contributions = ImmutableList.<UserContribution>builderWithExpectedSize(entries.size());
+            entries.values().forEach(entry -> contributions.add(entry.contribution));
+            return contributions.build();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package edu.stanford.protege.webprotege.revision;
+
+/**
+ * The progress of warming up a set of projects with a {@link RevisionStoreWarmUpService}.
+ * @param projectCount The number of projects that are being warmed up
+ * @param loadedCount The number of projects that have been loaded, or that were already open
+ * @param failedCount The number of projects that could not be loaded
+ * @param skippedCount The number of projects that were not loaded because the heap budget was reached or the warm up
+ *                     was cancelled
+ */
+public record WarmUpProgress(int projectCount,
+                             int loadedCount,
+                             int failedCount,
+                             int skippedCount) {
+
+    /**
+     * Gets the number of projects that have been dealt with, whether or not they were loaded.
+     */
+    public int completedCount() {
+        return loadedCount + failedCount + skippedCount;
+    }
+
+    public boolean isComplete() {
+        return completedCount() == projectCount;
+    }
+}
@@ -1,10 +1,15 @@
 package edu.stanford.protege.webprotege.revision;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
 
@@ -25,8 +30,14 @@ public class WebProtegeRevisionManagerApplication {
 
 	@ConditionalOnMissingBean
 	@Bean
-	OntologyChangeRecordTranslator ontologyChangeRecordTranslator() {
-		return new OntologyChangeRecordTranslatorImpl();
+	OntologyChangeRecordTranslator ontologyChangeRecordTranslator(RevisionDataInterner p1) {
+		return new OntologyChangeRecordTranslatorImpl(p1);
+	}
+
+	@ConditionalOnMissingBean
+	@Bean
+	RevisionDataInterner revisionDataInterner() {
+		return RevisionDataInterner.getSharedInterner();
 	}
 
 	@ConditionalOnMissingBean
@@ -43,15 +54,57 @@ public class WebProtegeRevisionManagerApplication {
 
 	@ConditionalOnMissingBean
 	@Bean
-	RevisionManagerFactory revisionManagerFactory(RevisionStoreFactory p1) {
+	RevisionManagerFactory revisionManagerFactory(RevisionStoreRegistry p1) {
 		return new RevisionManagerFactory(p1);
 	}
 
+	@ConditionalOnMissingBean
+	@Bean(destroyMethod = "dispose")
+	RevisionStoreRegistry revisionStoreRegistry(RevisionStoreFactory p1, RevisionManagerSettings p2, RevisionMetrics p3) {
+		return new RevisionStoreRegistry(p1, p2, p3);
+	}
+
+	@ConditionalOnMissingBean
+	@Bean(destroyMethod = "dispose")
+	AsyncRevisionService asyncRevisionService(RevisionStoreRegistry p1, RevisionManagerSettings p2) {
+		return new AsyncRevisionService(p1, p2);
+	}
+
+	@ConditionalOnMissingBean
+	@Bean(destroyMethod = "dispose")
+	RevisionStoreWarmUpService revisionStoreWarmUpService(RevisionStoreRegistry p1, RevisionManagerSettings p2, ProjectDirectoryFactory p3) {
+		return new RevisionStoreWarmUpService(p1, p2, p3.getRecentProjectsFile());
+	}
+
+	@Bean
+	ApplicationRunner revisionStoreWarmUpRunner(RevisionStoreWarmUpService p1, RevisionManagerSettings p2) {
+		return args -> {
+			if(p2.isWarmUpOnStartup()) {
+				p1.warmUpRecentProjects();
+			}
+		};
+	}
+
+	@ConditionalOnMissingBean
+	@Bean
+	RevisionMetrics revisionMetrics(ObjectProvider<MeterRegistry> p1) {
+		return new RevisionMetrics(p1.getIfAvailable(SimpleMeterRegistry::new));
+	}
+
+	@ConditionalOnMissingBean
+	@Bean
+	@ConfigurationProperties(prefix = "webprotege.revisions")
+	RevisionManagerSettings revisionManagerSettings() {
+		return new RevisionManagerSettings();
+	}
+
 	@ConditionalOnMissingBean
 	@Bean
 	RevisionStoreFactory revisionStoreFactory(ChangeHistoryFileFactory p1,
 											  OWLDataFactory p2,
-											  OntologyChangeRecordTranslator p3) {
-		return new RevisionStoreFactory(p1, p2, p3);
+											  OntologyChangeRecordTranslator p3,
+											  RevisionManagerSettings p4,
+											  RevisionMetrics p5) {
+		return new RevisionStoreFactory(p1, p2, p3, p4, p5);
 	}
 }
@@ -0,0 +1,50 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AppendOnlyList_TestCase {
+
+    private static final int ELEMENT_COUNT = 10_000;
+
+    @Test
+    public void shouldBeEmpty() {
+        var list = new AppendOnlyList<Integer>();
+        assertThat(list.isEmpty(), is(true));
+        assertThat(list.snapshot().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldContainAppendedElementsInOrder() {
+        var list = new AppendOnlyList<Integer>();
+        IntStream.range(0, ELEMENT_COUNT).forEach(list::add);
+        assertThat(list.size(), is(ELEMENT_COUNT));
+        assertThat(list.snapshot(), is(IntStream.range(0, ELEMENT_COUNT).boxed().collect(Collectors.toList())));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotOnAppend() {
+        var list = new AppendOnlyList<Integer>();
+        IntStream.range(0, 1500).forEach(list::add);
+        var snapshot = list.snapshot();
+        IntStream.range(1500, ELEMENT_COUNT).forEach(list::add);
+        assertThat(snapshot.size(), is(1500));
+        assertThat(snapshot.get(1499), is(1499));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(1500));
+    }
+
+    @Test
+    public void shouldNotAllowSnapshotToBeModified() {
+        var list = new AppendOnlyList<Integer>();
+        list.add(1);
+        var snapshot = list.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(2));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.set(0, 2));
+    }
+}
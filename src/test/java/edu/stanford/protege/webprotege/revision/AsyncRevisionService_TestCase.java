@@ -0,0 +1,91 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.common.ProjectId;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+public class AsyncRevisionService_TestCase {
+
+    private RevisionManager revisionManager;
+
+    private ProjectId projectId;
+
+    private RevisionStoreRegistry registry;
+
+    private AsyncRevisionService service;
+
+    @BeforeEach
+    public void setUp() {
+        projectId = ProjectId.generate();
+        revisionManager = mock(RevisionManager.class);
+        registry = mock(RevisionStoreRegistry.class);
+        when(registry.withRevisionManager(eq(projectId), any())).thenAnswer(invocation -> {
+            Function<RevisionManager, ?> operation = invocation.getArgument(1);
+            return operation.apply(revisionManager);
+        });
+        service = new AsyncRevisionService(registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.dispose();
+    }
+
+    @Test
+    public void shouldGetCurrentRevision() throws Exception {
+        when(revisionManager.getCurrentRevision()).thenReturn(RevisionNumber.getRevisionNumber(3));
+        var currentRevision = service.getCurrentRevision(projectId).get(10, TimeUnit.SECONDS);
+        assertThat(currentRevision, is(RevisionNumber.getRevisionNumber(3)));
+    }
+
+    @Test
+    public void shouldCompleteDurableAddOnceRevisionIsPersisted() throws Exception {
+        var userId = UserId.valueOf("The User");
+        var revision = new Revision(userId, RevisionNumber.getRevisionNumber(1), ImmutableList.of(), 0, "Revision 1");
+        when(revisionManager.addRevision(userId, List.of(), "Revision 1")).thenReturn(revision);
+        var persisted = new CompletableFuture<RevisionNumber>();
+        when(revisionManager.whenPersisted(RevisionNumber.getRevisionNumber(1))).thenReturn(persisted);
+        var added = service.addRevisionDurably(projectId, userId, List.of(), "Revision 1");
+        verify(revisionManager, timeout(10_000)).whenPersisted(RevisionNumber.getRevisionNumber(1));
+        assertThat(added.isDone(), is(false));
+        persisted.complete(RevisionNumber.getRevisionNumber(1));
+        assertThat(added.get(10, TimeUnit.SECONDS), is(revision));
+    }
+
+    @Test
+    public void shouldCancelOperationsThatHaveNotStartedOnShutdown() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(revisionManager.getRevisionSummaries()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of();
+        });
+        var singleThreadService = new AsyncRevisionService(registry, Executors.newSingleThreadExecutor());
+        var running = singleThreadService.getRevisionSummaries(projectId);
+        started.await(10, TimeUnit.SECONDS);
+        var queued = singleThreadService.getCurrentRevision(projectId);
+        singleThreadService.shutdownNow();
+        release.countDown();
+        assertThrows(CancellationException.class, () -> queued.get(10, TimeUnit.SECONDS));
+        var submittedAfterShutdown = singleThreadService.getCurrentRevision(projectId);
+        assertThat(submittedAfterShutdown.isCompletedExceptionally(), is(true));
+        running.handle((summaries, throwable) -> null).get(10, TimeUnit.SECONDS);
+    }
+}
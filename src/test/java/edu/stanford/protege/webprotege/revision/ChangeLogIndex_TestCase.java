@@ -0,0 +1,196 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ChangeLogIndex_TestCase {
+
+    @TempDir
+    Path tempDir;
+
+    private File changeHistoryFile;
+
+    private OWLDataFactoryImpl dataFactory;
+
+    private OWLOntologyID ontologyId;
+
+    @BeforeEach
+    public void setUp() {
+        changeHistoryFile = tempDir.resolve("change-data.binary").toFile();
+        dataFactory = new OWLDataFactoryImpl();
+        ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+    }
+
+    @Test
+    public void shouldBeConsistentWithEmptyChangeHistory() {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        assertThat(index.isEmpty(), is(true));
+        assertThat(index.isConsistentWith(changeHistoryFile), is(true));
+    }
+
+    @Test
+    public void shouldIndexAppendedRevisions() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        appendRevisions(index, 3);
+        assertThat(index.size(), is(3));
+        assertThat(index.isConsistentWith(changeHistoryFile), is(true));
+    }
+
+    @Test
+    public void shouldReopenPersistedIndex() throws IOException {
+        appendRevisions(ChangeLogIndex.open(changeHistoryFile), 3);
+        var reopenedIndex = ChangeLogIndex.open(changeHistoryFile);
+        assertThat(reopenedIndex.size(), is(3));
+        assertThat(reopenedIndex.isConsistentWith(changeHistoryFile), is(true));
+    }
+
+    @Test
+    public void shouldReadIndexedRevision() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        appendRevisions(index, 3);
+        var entry = index.getEntry(RevisionNumber.getRevisionNumber(2)).orElseThrow();
+        try(var reader = new ChangeLogReader(changeHistoryFile, dataFactory)) {
+            var revision = new RevisionDecoder(new OntologyChangeRecordTranslatorImpl()).decode(reader.read(entry));
+            assertThat(revision.getRevisionNumber(), is(RevisionNumber.getRevisionNumber(2)));
+            assertThat(revision.getHighLevelDescription(), is("Revision 2"));
+        }
+    }
+
+    @Test
+    public void shouldIndexBatchOfAppendedRevisions() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        appendRevisions(index, 2);
+        var batch = List.of(createRevision(3), createRevision(4), createRevision(5));
+        new RevisionSerializationTask(changeHistoryFile, batch, index).call();
+        assertThat(index.size(), is(5));
+        assertThat(index.isConsistentWith(changeHistoryFile), is(true));
+        var entry = index.getEntry(RevisionNumber.getRevisionNumber(4)).orElseThrow();
+        try(var reader = new ChangeLogReader(changeHistoryFile, dataFactory)) {
+            var revision = new RevisionDecoder(new OntologyChangeRecordTranslatorImpl()).decode(reader.read(entry));
+            assertThat(revision.getHighLevelDescription(), is("Revision 4"));
+        }
+    }
+
+    @Test
+    public void shouldIndexBatchWrittenToEmptyChangeHistory() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        new RevisionSerializationTask(changeHistoryFile, List.of(createRevision(1), createRevision(2)), index).call();
+        assertThat(index.size(), is(2));
+        assertThat(index.isConsistentWith(changeHistoryFile), is(true));
+    }
+
+    @Test
+    public void shouldReadHeaderLengthFromChangeHistory() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        appendRevisions(index, 2);
+        try(var reader = new ChangeLogReader(changeHistoryFile, dataFactory)) {
+            assertThat((long) reader.getHeaderLength(), is(index.getEntries().get(0).offset()));
+        }
+    }
+
+    @Test
+    public void shouldReadLastEntry() throws IOException {
+        appendRevisions(ChangeLogIndex.open(changeHistoryFile), 3);
+        var lastEntry = ChangeLogIndex.readLastEntry(changeHistoryFile).orElseThrow();
+        assertThat(lastEntry.getRevisionNumber(), is(RevisionNumber.getRevisionNumber(3)));
+        assertThat(lastEntry.end(), is(changeHistoryFile.length()));
+    }
+
+    @Test
+    public void shouldNotReadLastEntryOfStaleIndex() throws IOException {
+        appendRevisions(ChangeLogIndex.open(changeHistoryFile), 1);
+        new RevisionSerializationTask(changeHistoryFile, createRevision(2)).call();
+        assertThat(ChangeLogIndex.readLastEntry(changeHistoryFile).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldNotBeConsistentWithUnindexedAppends() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        appendRevisions(index, 1);
+        new RevisionSerializationTask(changeHistoryFile, createRevision(2)).call();
+        assertThat(index.isConsistentWith(changeHistoryFile), is(false));
+    }
+
+    @Test
+    public void shouldReadRevisionsAcrossMappedWindows() throws IOException {
+        var index = ChangeLogIndex.open(changeHistoryFile);
+        appendRevisions(index, 5);
+        // A window that is smaller than a record, so that every read spans windows
+        try(var reader = new ChangeLogReader(changeHistoryFile, dataFactory, 7)) {
+            var decoder = new RevisionDecoder(new OntologyChangeRecordTranslatorImpl());
+            for(var entry : index.getEntries()) {
+                var revision = decoder.decode(reader.read(entry));
+                assertThat(revision.getHighLevelDescription(), is("Revision " + entry.revisionNumber()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldStreamCompleteChangeHistoryAcrossMappedWindows() throws IOException {
+        appendRevisions(ChangeLogIndex.open(changeHistoryFile), 3);
+        try(var reader = new ChangeLogReader(changeHistoryFile, dataFactory, 7);
+            var inputStream = reader.openInputStream()) {
+            assertThat(inputStream.readAllBytes(), is(Files.readAllBytes(changeHistoryFile.toPath())));
+        }
+    }
+
+    @Test
+    public void shouldReadInterleavedStreamsIndependently() throws IOException {
+        appendRevisions(ChangeLogIndex.open(changeHistoryFile), 3);
+        var expected = Files.readAllBytes(changeHistoryFile.toPath());
+        try(var reader = new ChangeLogReader(changeHistoryFile, dataFactory, 7);
+            var first = reader.openInputStream();
+            var second = reader.openInputStream()) {
+            second.skip(expected.length / 2);
+            var firstBytes = new ByteArrayOutputStream();
+            var secondBytes = new ByteArrayOutputStream();
+            int b;
+            while((b = first.read()) != -1) {
+                firstBytes.write(b);
+                var other = second.read();
+                if(other != -1) {
+                    secondBytes.write(other);
+                }
+            }
+            assertThat(firstBytes.toByteArray(), is(expected));
+            assertThat(secondBytes.toByteArray(), is(Arrays.copyOfRange(expected, expected.length / 2, expected.length)));
+        }
+    }
+
+    private void appendRevisions(ChangeLogIndex index, int count) throws IOException {
+        for(int i = 1; i <= count; i++) {
+            new RevisionSerializationTask(changeHistoryFile, createRevision(i), index).call();
+        }
+    }
+
+    private Revision createRevision(long revisionNumber) {
+        var cls = dataFactory.getOWLClass(IRI.create("http://example.org/C" + revisionNumber));
+        var changes = ImmutableList.<OntologyChange>of(
+                AddAxiomChange.of(ontologyId, dataFactory.getOWLDeclarationAxiom(cls))
+        );
+        return new Revision(UserId.valueOf("The User"),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            changes,
+                            System.currentTimeMillis(),
+                            "Revision " + revisionNumber);
+    }
+}
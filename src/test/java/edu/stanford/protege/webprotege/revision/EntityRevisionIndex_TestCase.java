@@ -0,0 +1,103 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.change.RemoveAxiomChange;
+import edu.stanford.protege.webprotege.common.UserId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class EntityRevisionIndex_TestCase {
+
+    private static final IRI A = IRI.create("http://example.org/A");
+
+    private static final IRI B = IRI.create("http://example.org/B");
+
+    private static final IRI LABELLED = IRI.create("http://example.org/Labelled");
+
+    @TempDir
+    Path tempDir;
+
+    private File changeHistoryFile;
+
+    private OWLDataFactoryImpl dataFactory;
+
+    private OWLOntologyID ontologyId;
+
+    @BeforeEach
+    public void setUp() {
+        changeHistoryFile = tempDir.resolve("change-data.binary").toFile();
+        dataFactory = new OWLDataFactoryImpl();
+        ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+    }
+
+    @Test
+    public void shouldIndexEntitiesInAxiomSignatures() {
+        var index = EntityRevisionIndex.create(changeHistoryFile);
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, subClassOf(A, B))));
+        index.add(createRevision(2, AddAxiomChange.of(ontologyId, dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(B)))));
+        index.add(createRevision(3, RemoveAxiomChange.of(ontologyId, subClassOf(A, B))));
+        assertThat(index.getRevisionNumbers(A), is(new long[]{1, 3}));
+        assertThat(index.getRevisionNumbers(B), is(new long[]{1, 2, 3}));
+        assertThat(index.getLastIndexedRevisionNumber(), is(RevisionNumber.getRevisionNumber(3)));
+    }
+
+    @Test
+    public void shouldIndexAnnotationAssertionSubjects() {
+        var index = EntityRevisionIndex.create(changeHistoryFile);
+        var label = dataFactory.getOWLAnnotationAssertionAxiom(dataFactory.getRDFSLabel(), LABELLED, dataFactory.getOWLLiteral("Labelled"));
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, label)));
+        assertThat(index.getRevisionNumbers(LABELLED), is(new long[]{1}));
+    }
+
+    @Test
+    public void shouldReturnNoRevisionsForUnknownEntity() {
+        var index = EntityRevisionIndex.create(changeHistoryFile);
+        assertThat(index.getRevisionNumbers(A), is(new long[0]));
+    }
+
+    @Test
+    public void shouldIgnoreRevisionsThatAreAlreadyIndexed() {
+        var index = EntityRevisionIndex.create(changeHistoryFile);
+        index.add(createRevision(2, AddAxiomChange.of(ontologyId, subClassOf(A, B))));
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, subClassOf(A, B))));
+        assertThat(index.getRevisionNumbers(A), is(new long[]{2}));
+    }
+
+    @Test
+    public void shouldReopenSavedIndex() throws IOException {
+        var index = EntityRevisionIndex.create(changeHistoryFile);
+        index.add(createRevision(1, AddAxiomChange.of(ontologyId, subClassOf(A, B))));
+        index.add(createRevision(5, AddAxiomChange.of(ontologyId, subClassOf(B, A))));
+        index.save();
+        var reopenedIndex = EntityRevisionIndex.open(changeHistoryFile);
+        assertThat(reopenedIndex.size(), is(2));
+        assertThat(reopenedIndex.getRevisionNumbers(A), is(new long[]{1, 5}));
+        assertThat(reopenedIndex.getLastIndexedRevisionNumber(), is(RevisionNumber.getRevisionNumber(5)));
+    }
+
+    private OWLSubClassOfAxiom subClassOf(IRI sub, IRI sup) {
+        return dataFactory.getOWLSubClassOfAxiom(dataFactory.getOWLClass(sub), dataFactory.getOWLClass(sup));
+    }
+
+    private Revision createRevision(long revisionNumber, OntologyChange change) {
+        return new Revision(UserId.valueOf("The User"),
+                            RevisionNumber.getRevisionNumber(revisionNumber),
+                            ImmutableList.of(change),
+                            System.currentTimeMillis(),
+                            "Revision " + revisionNumber);
+    }
+}
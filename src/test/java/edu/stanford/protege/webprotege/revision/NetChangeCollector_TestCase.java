@@ -0,0 +1,93 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.RemoveAxiomChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class NetChangeCollector_TestCase {
+
+    private static final RevisionNumber FROM = RevisionNumber.getRevisionNumber(1);
+
+    private static final RevisionNumber TO = RevisionNumber.getRevisionNumber(5);
+
+    private OWLOntologyID ontologyId;
+
+    private OWLAxiom axiomA;
+
+    private OWLAxiom axiomB;
+
+    private NetChangeCollector collector;
+
+    @BeforeEach
+    public void setUp() {
+        var dataFactory = new OWLDataFactoryImpl();
+        ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        axiomA = dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/A")));
+        axiomB = dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/B")));
+        collector = new NetChangeCollector();
+    }
+
+    @Test
+    public void shouldCancelAddThenRemove() {
+        collector.add(AddAxiomChange.of(ontologyId, axiomA));
+        collector.add(RemoveAxiomChange.of(ontologyId, axiomA));
+        assertThat(collector.toDiff(FROM, TO).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldCancelRemoveThenAdd() {
+        collector.add(RemoveAxiomChange.of(ontologyId, axiomA));
+        collector.add(AddAxiomChange.of(ontologyId, axiomA));
+        assertThat(collector.toDiff(FROM, TO).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldKeepChangesThatDoNotCancel() {
+        collector.add(AddAxiomChange.of(ontologyId, axiomA));
+        collector.add(RemoveAxiomChange.of(ontologyId, axiomB));
+        collector.add(RemoveAxiomChange.of(ontologyId, axiomA));
+        collector.add(AddAxiomChange.of(ontologyId, axiomA));
+        var diff = collector.toDiff(FROM, TO);
+        assertThat(diff.getAddedAxioms(), is(Set.of(axiomA)));
+        assertThat(diff.getRemovedAxioms(), is(Set.of(axiomB)));
+        assertThat(diff.getChanges(), is(List.of(RemoveAxiomChange.of(ontologyId, axiomB), AddAxiomChange.of(ontologyId, axiomA))));
+    }
+
+    @Test
+    public void shouldNotCancelChangesToDifferentOntologies() {
+        var otherOntologyId = new OWLOntologyID(IRI.create("http://example.org/OntB"));
+        collector.add(AddAxiomChange.of(ontologyId, axiomA));
+        collector.add(RemoveAxiomChange.of(otherOntologyId, axiomA));
+        var diff = collector.toDiff(FROM, TO);
+        assertThat(diff.getAdditions(), is(List.of(AddAxiomChange.of(ontologyId, axiomA))));
+        assertThat(diff.getRemovals(), is(List.of(RemoveAxiomChange.of(otherOntologyId, axiomA))));
+    }
+
+    @Test
+    public void shouldCancelChangesToAnonymousOntologiesWithDifferentIds() {
+        collector.add(AddAxiomChange.of(new OWLOntologyID(), axiomA));
+        collector.add(RemoveAxiomChange.of(new OWLOntologyID(), axiomA));
+        assertThat(collector.toDiff(FROM, TO).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldInvertChanges() {
+        collector.add(AddAxiomChange.of(ontologyId, axiomA));
+        collector.add(RemoveAxiomChange.of(ontologyId, axiomB));
+        var diff = collector.toInverseDiff(TO, FROM);
+        assertThat(diff.getAddedAxioms(), is(Set.of(axiomB)));
+        assertThat(diff.getRemovedAxioms(), is(Set.of(axiomA)));
+        assertThat(diff.getFromRevision(), is(TO));
+    }
+}
@@ -7,10 +7,12 @@ import org.mockito.Mock;
 import org.semanticweb.owlapi.change.*;
 import org.semanticweb.owlapi.model.*;
 import org.springframework.boot.test.context.SpringBootTest;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -51,6 +53,17 @@ public class OntologyChangeRecordTranslatorImpl_TestCase {
         assertThat(change, is(instanceOf(AddAxiomChange.class)));
     }
 
+    @Test
+    public void shouldInternEqualAxioms() {
+        var dataFactory = new OWLDataFactoryImpl();
+        var cls = IRI.create("http://example.org/A");
+        var addedAxiom = dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(cls));
+        var removedAxiom = new OWLDataFactoryImpl().getOWLDeclarationAxiom(new OWLDataFactoryImpl().getOWLClass(cls));
+        var addChange = impl.getOntologyChange(new OWLOntologyChangeRecord(ontologyId, new AddAxiomData(addedAxiom)));
+        var removeChange = impl.getOntologyChange(new OWLOntologyChangeRecord(ontologyId, new RemoveAxiomData(removedAxiom)));
+        assertThat(removeChange.getAxiomOrThrow(), is(sameInstance(addChange.getAxiomOrThrow())));
+    }
+
     @Test
     public void shouldTranslateRemoveAxiom() {
         var change = impl.getOntologyChange(new OWLOntologyChangeRecord(ontologyId, new RemoveAxiomData(axiom)));
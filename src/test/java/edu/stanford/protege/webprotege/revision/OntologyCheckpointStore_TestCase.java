@@ -0,0 +1,89 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.webprotege.change.AddAxiomChange;
+import edu.stanford.protege.webprotege.change.OntologyChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class OntologyCheckpointStore_TestCase {
+
+    @TempDir
+    Path tempDir;
+
+    private OntologyCheckpointStore checkpointStore;
+
+    private OWLDataFactoryImpl dataFactory;
+
+    private ImmutableList<OntologyChange> changes;
+
+    @BeforeEach
+    public void setUp() {
+        dataFactory = new OWLDataFactoryImpl();
+        var changeHistoryFile = tempDir.resolve("change-data.binary").toFile();
+        checkpointStore = new OntologyCheckpointStore(changeHistoryFile, dataFactory, new OntologyChangeRecordTranslatorImpl(), 2);
+        var ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        var cls = dataFactory.getOWLClass(IRI.create("http://example.org/A"));
+        changes = ImmutableList.of(AddAxiomChange.of(ontologyId, dataFactory.getOWLDeclarationAxiom(cls)));
+    }
+
+    @Test
+    public void shouldNotFindCheckpointInEmptyStore() throws IOException {
+        assertThat(checkpointStore.read(RevisionNumber.getHeadRevisionNumber()), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldReadNearestCheckpoint() throws IOException {
+        checkpointStore.write(RevisionNumber.getRevisionNumber(10), changes);
+        checkpointStore.write(RevisionNumber.getRevisionNumber(20), ImmutableList.of());
+        var checkpoint = checkpointStore.read(RevisionNumber.getRevisionNumber(15)).orElseThrow();
+        assertThat(checkpoint.revisionNumber(), is(RevisionNumber.getRevisionNumber(10)));
+        assertThat(checkpoint.changes(), is(changes));
+    }
+
+    @Test
+    public void shouldReadOntologyIdsOfEmptyOntologies() throws IOException {
+        var ontologyIds = ImmutableList.of(new OWLOntologyID(IRI.create("http://example.org/OntB")),
+                                           new OWLOntologyID(IRI.create("http://example.org/OntC"), IRI.create("http://example.org/OntC/1")),
+                                           new OWLOntologyID());
+        checkpointStore.write(RevisionNumber.getRevisionNumber(10), ontologyIds, ImmutableList.of());
+        var checkpoint = checkpointStore.read(RevisionNumber.getRevisionNumber(10)).orElseThrow();
+        assertThat(checkpoint.ontologyIds().size(), is(3));
+        assertThat(checkpoint.ontologyIds().subList(0, 2), is(ontologyIds.subList(0, 2)));
+        assertThat(checkpoint.ontologyIds().get(2).isAnonymous(), is(true));
+    }
+
+    @Test
+    public void shouldNotFindCheckpointBelowFirstCheckpoint() throws IOException {
+        checkpointStore.write(RevisionNumber.getRevisionNumber(10), changes);
+        assertThat(checkpointStore.read(RevisionNumber.getRevisionNumber(9)), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldDeleteOldestCheckpoints() throws IOException {
+        checkpointStore.write(RevisionNumber.getRevisionNumber(10), changes);
+        checkpointStore.write(RevisionNumber.getRevisionNumber(20), changes);
+        checkpointStore.write(RevisionNumber.getRevisionNumber(30), changes);
+        assertThat(checkpointStore.getNearestCheckpointRevision(RevisionNumber.getRevisionNumber(15)), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldDeleteCheckpointsAfterRevision() throws IOException {
+        checkpointStore.write(RevisionNumber.getRevisionNumber(10), changes);
+        checkpointStore.write(RevisionNumber.getRevisionNumber(20), changes);
+        checkpointStore.deleteCheckpointsAfter(RevisionNumber.getRevisionNumber(15));
+        assertThat(checkpointStore.getNearestCheckpointRevision(RevisionNumber.getHeadRevisionNumber()),
+                   is(Optional.of(RevisionNumber.getRevisionNumber(10))));
+    }
+}
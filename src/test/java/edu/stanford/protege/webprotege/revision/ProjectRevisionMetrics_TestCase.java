@@ -0,0 +1,92 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.ProjectId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProjectRevisionMetrics_TestCase {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProjectId projectId;
+
+    private ProjectRevisionMetrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        projectId = ProjectId.generate();
+        metrics = new ProjectRevisionMetrics(meterRegistry, projectId);
+    }
+
+    @Test
+    public void shouldRegisterMetersTaggedWithProject() {
+        var meterNames = meterRegistry.getMeters()
+                                      .stream()
+                                      .filter(meter -> projectId.id().equals(meter.getId().getTag(RevisionMetrics.PROJECT_TAG)))
+                                      .map(meter -> meter.getId().getName())
+                                      .toList();
+        assertThat(meterNames, containsInAnyOrder("webprotege.revisions.load.duration",
+                                                  "webprotege.revisions.load.bytes",
+                                                  "webprotege.revisions.append.duration",
+                                                  "webprotege.revisions.append.batch.size",
+                                                  "webprotege.revisions.add.lock.wait",
+                                                  "webprotege.revisions.replay.duration",
+                                                  "webprotege.revisions.replay.changes"));
+    }
+
+    @Test
+    public void shouldRecordLoad() {
+        metrics.recordLoad(TimeUnit.MILLISECONDS.toNanos(5), 1024);
+        var loadTimer = meterRegistry.get("webprotege.revisions.load.duration").tag(RevisionMetrics.PROJECT_TAG, projectId.id()).timer();
+        assertThat(loadTimer.count(), is(1L));
+        assertThat(loadTimer.totalTime(TimeUnit.MILLISECONDS), is(5.0));
+        assertThat(meterRegistry.get("webprotege.revisions.load.bytes").summary().totalAmount(), is(1024.0));
+    }
+
+    @Test
+    public void shouldRecordAppend() {
+        metrics.recordAppend(TimeUnit.MILLISECONDS.toNanos(2), 3);
+        metrics.recordAppend(TimeUnit.MILLISECONDS.toNanos(4), 5);
+        assertThat(meterRegistry.get("webprotege.revisions.append.duration").timer().count(), is(2L));
+        var batchSize = meterRegistry.get("webprotege.revisions.append.batch.size").summary();
+        assertThat(batchSize.count(), is(2L));
+        assertThat(batchSize.max(), is(5.0));
+    }
+
+    @Test
+    public void shouldRecordAddRevisionLockWait() {
+        metrics.recordAddRevisionLockWait(TimeUnit.MILLISECONDS.toNanos(7));
+        assertThat(meterRegistry.get("webprotege.revisions.add.lock.wait").timer().totalTime(TimeUnit.MILLISECONDS), is(7.0));
+    }
+
+    @Test
+    public void shouldRecordReplay() {
+        metrics.recordReplay(TimeUnit.MILLISECONDS.toNanos(3), 42);
+        assertThat(meterRegistry.get("webprotege.revisions.replay.duration").timer().count(), is(1L));
+        assertThat(meterRegistry.get("webprotege.revisions.replay.changes").summary().totalAmount(), is(42.0));
+    }
+
+    @Test
+    public void shouldBindAndRemoveGauges() {
+        var revisionStore = mock(RevisionStoreImpl.class);
+        when(revisionStore.getPendingRevisionCount()).thenReturn(3);
+        when(revisionStore.getResidentRevisionCount()).thenReturn(10L);
+        when(revisionStore.getResidentChangeCount()).thenReturn(100L);
+        metrics.bindGauges(revisionStore);
+        assertThat(meterRegistry.get("webprotege.revisions.serialization.queue.depth").gauge().value(), is(3.0));
+        assertThat(meterRegistry.get("webprotege.revisions.resident.revisions").gauge().value(), is(10.0));
+        assertThat(meterRegistry.get("webprotege.revisions.resident.changes").gauge().value(), is(100.0));
+        metrics.removeGauges();
+        assertThat(meterRegistry.find("webprotege.revisions.serialization.queue.depth").gauge(), is(nullValue()));
+        assertThat(meterRegistry.find("webprotege.revisions.load.duration").timer(), is(notNullValue()));
+    }
+}
@@ -39,6 +39,9 @@ public class RevisionManagerFactory_IT {
     @Autowired
     private RevisionManagerFactory revisionManagerFactory;
 
+    @Autowired
+    private OWLDataFactory dataFactory;
+
     private ProjectId projectId;
 
 
@@ -53,4 +56,18 @@ public class RevisionManagerFactory_IT {
         revisionManagerFactory.createRevisionManager(projectId);
         assertThat(tempDir.resolve("data-store").resolve("project-data").resolve(projectId.id()).resolve("change-data")).exists();
     }
+
+    @Test
+    void shouldGiveEachRevisionInBatchItsOwnTimestamp() {
+        var revisionManager = revisionManagerFactory.createRevisionManager(projectId);
+        var ontologyId = new OWLOntologyID(IRI.create("http://example.org/OntA"));
+        var requests = List.of("A", "B", "C").stream()
+                           .map(name -> dataFactory.getOWLDeclarationAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/" + name))))
+                           .map(axiom -> new RevisionRequest(UserId.valueOf("The User"), List.of(AddAxiomChange.of(ontologyId, axiom)), "Add axiom"))
+                           .toList();
+        var revisions = revisionManager.addRevisions(requests);
+        assertThat(revisions).hasSize(3);
+        assertThat(revisions.get(1).getTimestamp()).isGreaterThan(revisions.get(0).getTimestamp());
+        assertThat(revisions.get(2).getTimestamp()).isGreaterThan(revisions.get(1).getTimestamp());
+    }
 }
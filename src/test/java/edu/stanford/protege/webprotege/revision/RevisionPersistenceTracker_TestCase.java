@@ -0,0 +1,42 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RevisionPersistenceTracker_TestCase {
+
+    private RevisionPersistenceTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        tracker = new RevisionPersistenceTracker();
+    }
+
+    @Test
+    public void shouldNotAdvanceWatermarkPastFailedRevision() {
+        tracker.markPersisted(RevisionNumber.getRevisionNumber(1));
+        tracker.markFailed(List.of(RevisionNumber.getRevisionNumber(2)), new IOException("Disk full"));
+        tracker.markPersisted(RevisionNumber.getRevisionNumber(3));
+        assertThat(tracker.getPersistedRevisionNumber(), is(RevisionNumber.getRevisionNumber(1)));
+        assertThat(tracker.whenPersisted(RevisionNumber.getRevisionNumber(2)).isCompletedExceptionally(), is(true));
+        assertThat(tracker.whenPersisted(RevisionNumber.getRevisionNumber(3)).join(), is(RevisionNumber.getRevisionNumber(3)));
+    }
+
+    @Test
+    public void shouldBoundRecordedFailures() {
+        var failedRevisionNumbers = new ArrayList<RevisionNumber>();
+        for(int i = 1; i <= RevisionPersistenceTracker.MAX_RECORDED_FAILURES + 10; i++) {
+            failedRevisionNumbers.add(RevisionNumber.getRevisionNumber(i));
+        }
+        tracker.markFailed(failedRevisionNumbers, new IOException("Disk full"));
+        assertThat(tracker.whenPersisted(RevisionNumber.getRevisionNumber(1)).isCompletedExceptionally(), is(true));
+        assertThat(tracker.getPersistedRevisionNumber(), is(RevisionNumber.getRevisionNumber(0)));
+    }
+}
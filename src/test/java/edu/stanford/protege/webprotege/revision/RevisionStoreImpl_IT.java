@@ -3,6 +3,7 @@ package edu.stanford.protege.webprotege.revision;
 import com.google.common.collect.ImmutableList;
 import edu.stanford.protege.webprotege.change.AddAxiomChange;
 import edu.stanford.protege.webprotege.change.OntologyChange;
+import edu.stanford.protege.webprotege.change.RemoveAxiomChange;
 import edu.stanford.protege.webprotege.common.ProjectId;
 import edu.stanford.protege.webprotege.common.UserId;
 import org.junit.jupiter.api.AfterEach;
@@ -18,9 +19,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -165,6 +170,274 @@ public class RevisionStoreImpl_IT {
         otherStore.dispose();
     }
 
+    @Test
+    public void shouldLoadSavedRevisionLazily() {
+        var revision = createRevision();
+        store.addRevision(revision);
+        var settings = new RevisionManagerSettings();
+        settings.setLazyChangeLoading(true);
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        otherStore.load();
+        assertThat(otherStore.getRevisionSummaries(), contains(revision.toRevisionSummary()));
+        assertThat(otherStore.getRevision(RevisionNumber.getRevisionNumber(1)), is(equalTo(Optional.of(revision))));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldLoadChangeHistoryBeforeAddingToUnloadedStore() throws Exception {
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(2)));
+        store.whenPersisted(RevisionNumber.getRevisionNumber(2)).get(10, TimeUnit.SECONDS);
+        var settings = new RevisionManagerSettings();
+        settings.setLazyChangeLoading(true);
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        assertThrows(IllegalArgumentException.class, () -> otherStore.addRevision(createRevision(RevisionNumber.getRevisionNumber(1))));
+        assertThat(otherStore.getCurrentRevisionNumber(), is(RevisionNumber.getRevisionNumber(2)));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldLoadSavedRevisionsInParallel() throws Exception {
+        var revision1 = createRevision(RevisionNumber.getRevisionNumber(1));
+        var revision2 = createRevision(RevisionNumber.getRevisionNumber(2));
+        var revision3 = createRevision(RevisionNumber.getRevisionNumber(3));
+        store.addRevision(revision1);
+        store.addRevision(revision2);
+        store.addRevision(revision3);
+        store.whenPersisted(RevisionNumber.getRevisionNumber(3)).get(10, TimeUnit.SECONDS);
+        // Without the index, boundaries are found by scanning
+        Files.deleteIfExists(ChangeLogIndex.getIndexFile(changeHistoryFile).toPath());
+        var settings = new RevisionManagerSettings();
+        settings.setParallelLoading(true);
+        settings.setLoadParallelism(2);
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        otherStore.load();
+        assertThat(otherStore.getRevisions(), contains(revision1, revision2, revision3));
+        assertThat(ChangeLogIndex.open(changeHistoryFile).isConsistentWith(changeHistoryFile), is(true));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldCompletePersistenceFutureWhenRevisionIsForced() throws Exception {
+        var settings = new RevisionManagerSettings();
+        settings.setDurabilityMode(DurabilityMode.GROUP_FSYNC);
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        otherStore.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        otherStore.addRevision(createRevision(RevisionNumber.getRevisionNumber(2)));
+        var persisted = otherStore.whenPersisted(RevisionNumber.getRevisionNumber(2)).get(10, TimeUnit.SECONDS);
+        assertThat(persisted, is(RevisionNumber.getRevisionNumber(2)));
+        assertThat(otherStore.getPersistedRevisionNumber(), is(RevisionNumber.getRevisionNumber(2)));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldStreamRevisionsInRange() {
+        for(int i = 1; i <= 10; i++) {
+            store.addRevision(createRevision(RevisionNumber.getRevisionNumber(i)));
+        }
+        var revisionNumbers = store.streamRevisions(RevisionNumber.getRevisionNumber(3), RevisionNumber.getRevisionNumber(5))
+                                   .map(revision -> revision.getRevisionNumber().getValue())
+                                   .toList();
+        assertThat(revisionNumbers, contains(3L, 4L, 5L));
+    }
+
+    @Test
+    public void shouldPageRevisionSummariesNewestFirst() {
+        for(int i = 1; i <= 5; i++) {
+            store.addRevision(createRevision(RevisionNumber.getRevisionNumber(i)));
+        }
+        var firstPage = store.getRevisionSummaryPage(RevisionNumber.getHeadRevisionNumber(), 3);
+        assertThat(firstPage.summaries().stream().map(summary -> summary.getRevisionNumber().getValue()).toList(), contains(5L, 4L, 3L));
+        var secondPage = store.getRevisionSummaryPage(firstPage.nextCursor().orElseThrow(), 3);
+        assertThat(secondPage.summaries().stream().map(summary -> summary.getRevisionNumber().getValue()).toList(), contains(2L, 1L));
+        assertThat(secondPage.nextCursor(), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldCompactChangeHistoryIntoBaseline() throws Exception {
+        for(int i = 1; i <= 5; i++) {
+            store.addRevision(createRevision(RevisionNumber.getRevisionNumber(i)));
+        }
+        store.whenPersisted(RevisionNumber.getRevisionNumber(5)).get(10, TimeUnit.SECONDS);
+        var archiveDirectory = tempDir.resolve("archive");
+        store.compact(RevisionNumber.getRevisionNumber(3), archiveDirectory);
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator);
+        otherStore.load();
+        var summaries = otherStore.getRevisionSummaries();
+        assertThat(summaries.stream().map(summary -> summary.getRevisionNumber().getValue()).toList(), contains(3L, 4L, 5L));
+        assertThat(summaries.get(0).getRevisionType(), is(RevisionType.BASELINE));
+        assertThat(summaries.get(1).getRevisionType(), is(RevisionType.EDIT));
+        assertThat(otherStore.getRevision(RevisionNumber.getRevisionNumber(3)).orElseThrow().getChanges(), contains(AddAxiomChange.of(ontologyId, axiom)));
+        assertThat(ChangeLogIndex.open(changeHistoryFile).isConsistentWith(changeHistoryFile), is(true));
+        try(var archivedFiles = Files.list(archiveDirectory)) {
+            assertThat(archivedFiles.count(), is(1L));
+        }
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldReplayEmptyOntologyFromCheckpointAsFullReplayDoes() throws Exception {
+        var settings = new RevisionManagerSettings();
+        settings.setCheckpointRevisionInterval(2);
+        var checkpointingStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        checkpointingStore.load();
+        checkpointingStore.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        // Leaves the ontology empty
+        checkpointingStore.addRevision(new Revision(UserId.valueOf("The User"),
+                                                    RevisionNumber.getRevisionNumber(2),
+                                                    ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)),
+                                                    System.currentTimeMillis(),
+                                                    "Remove axiom"));
+        for(int i = 0; i < 100 && checkpointingStore.getCheckpoint(RevisionNumber.getRevisionNumber(2)).isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(checkpointingStore.getCheckpoint(RevisionNumber.getRevisionNumber(2)).isPresent(), is(true));
+        var fullReplayer = new OntologyReplayer();
+        for(var revision : checkpointingStore.getRevisions()) {
+            fullReplayer.replay(revision.getChanges());
+        }
+        var checkpointReplayer = OntologyReplayer.replayToRevision(checkpointingStore, RevisionNumber.getRevisionNumber(2));
+        assertThat(OntologyReplayer.getOntologyIds(fullReplayer.getOntologyManager()), contains(ontologyId));
+        assertThat(OntologyReplayer.getOntologyIds(checkpointReplayer.getOntologyManager()),
+                   is(OntologyReplayer.getOntologyIds(fullReplayer.getOntologyManager())));
+        checkpointingStore.dispose();
+    }
+
+    @Test
+    public void shouldNotReplayCheckpointsBelowBaseline() throws Exception {
+        var settings = new RevisionManagerSettings();
+        settings.setCheckpointRevisionInterval(1);
+        var checkpointingStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        checkpointingStore.load();
+        var otherAxiom = dataFactory.getOWLSubClassOfAxiom(dataFactory.getOWLClass(IRI.create("http://example.org/B")),
+                                                           dataFactory.getOWLClass(IRI.create("http://example.org/C")));
+        checkpointingStore.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        checkpointingStore.addRevision(new Revision(UserId.valueOf("The User"),
+                                                    RevisionNumber.getRevisionNumber(2),
+                                                    ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)),
+                                                    System.currentTimeMillis(),
+                                                    "Remove axiom"));
+        for(int i = 0; i < 100 && checkpointingStore.getCheckpoint(RevisionNumber.getRevisionNumber(1)).isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(checkpointingStore.getCheckpoint(RevisionNumber.getRevisionNumber(1)).isPresent(), is(true));
+        checkpointingStore.compact(RevisionNumber.getRevisionNumber(2), null);
+        checkpointingStore.addRevision(new Revision(UserId.valueOf("The User"),
+                                                    RevisionNumber.getRevisionNumber(3),
+                                                    ImmutableList.of(AddAxiomChange.of(ontologyId, otherAxiom)),
+                                                    System.currentTimeMillis(),
+                                                    "Add other axiom"));
+        assertThat(checkpointingStore.getCheckpoint(RevisionNumber.getRevisionNumber(2)).isPresent(), is(false));
+        var replayer = OntologyReplayer.replayToRevision(checkpointingStore, RevisionNumber.getRevisionNumber(3));
+        var axioms = replayer.getOntologyManager()
+                             .getOntologies()
+                             .stream()
+                             .flatMap(ontology -> ontology.getAxioms().stream())
+                             .toList();
+        assertThat(axioms, contains(otherAxiom));
+        checkpointingStore.dispose();
+    }
+
+    @Test
+    public void shouldLoadSealedChangeHistoryAndTail() throws Exception {
+        for(int i = 1; i <= 5; i++) {
+            store.addRevision(createRevision(RevisionNumber.getRevisionNumber(i)));
+        }
+        store.sealChangeHistory();
+        assertThat(CompressedChangeLog.getCompressedFile(changeHistoryFile).exists(), is(true));
+        assertThat(changeHistoryFile.exists(), is(false));
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(6)));
+        store.whenPersisted(RevisionNumber.getRevisionNumber(6)).get(10, TimeUnit.SECONDS);
+        var settings = new RevisionManagerSettings();
+        settings.setLazyChangeLoading(true);
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator, settings);
+        otherStore.load();
+        assertThat(otherStore.getRevisionSummaries(), is(store.getRevisionSummaries()));
+        assertThat(otherStore.getRevisions(), is(store.getRevisions()));
+        assertThat(new HeadRevisionNumberFinder(changeHistoryFileFactory).getHeadRevisionNumber(projectId), is(RevisionNumber.getRevisionNumber(6)));
+        otherStore.dispose();
+    }
+
+    @Test
+    public void shouldAddRevisionsInOneAppend() throws Exception {
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        var appendCount = new AtomicInteger();
+        store.setSavedHook(appendCount::incrementAndGet);
+        store.addRevisions(List.of(createRevision(RevisionNumber.getRevisionNumber(2)),
+                                   createRevision(RevisionNumber.getRevisionNumber(3)),
+                                   createRevision(RevisionNumber.getRevisionNumber(4))));
+        assertThat(store.getCurrentRevisionNumber(), is(RevisionNumber.getRevisionNumber(4)));
+        store.whenPersisted(RevisionNumber.getRevisionNumber(4)).get(10, TimeUnit.SECONDS);
+        assertThat(appendCount.get(), is(1));
+        var otherStore = new RevisionStoreImpl(projectId, changeHistoryFileFactory, dataFactory, changeRecordTranslator);
+        otherStore.load();
+        assertThat(otherStore.getRevisions().size(), is(4));
+    }
+
+    @Test
+    public void shouldRejectRevisionsOnceDisposed() {
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        store.dispose();
+        assertThrows(IllegalStateException.class, () -> store.addRevision(createRevision(RevisionNumber.getRevisionNumber(2))));
+        assertThat(store.getCurrentRevisionNumber(), is(RevisionNumber.getRevisionNumber(1)));
+    }
+
+    @Test
+    public void shouldNotAddAnyRevisionsIfOneIsOutOfOrder() {
+        store.addRevision(createRevision(RevisionNumber.getRevisionNumber(1)));
+        assertThrows(IllegalArgumentException.class, () -> {
+            store.addRevisions(List.of(createRevision(RevisionNumber.getRevisionNumber(2)),
+                                       createRevision(RevisionNumber.getRevisionNumber(2))));
+        });
+        assertThat(store.getCurrentRevisionNumber(), is(RevisionNumber.getRevisionNumber(1)));
+        assertThat(store.getRevisionSummaries().size(), is(1));
+    }
+
+    @Test
+    public void shouldReadConsistentSnapshotsWhileRevisionsAreAdded() throws Exception {
+        store.load();
+        var reader = CompletableFuture.supplyAsync(() -> {
+            var inconsistentReads = 0;
+            for(int i = 0; i < 10_000; i++) {
+                var revisions = store.getRevisions();
+                var headRevisionNumber = store.getCurrentRevisionNumber().getValue();
+                var headRevision = store.getRevision(RevisionNumber.getRevisionNumber(headRevisionNumber));
+                if(headRevisionNumber < revisions.size() || (headRevisionNumber > 0 && headRevision.isEmpty())) {
+                    inconsistentReads++;
+                }
+            }
+            return inconsistentReads;
+        });
+        for(int i = 1; i <= 200; i++) {
+            store.addRevision(createRevision(RevisionNumber.getRevisionNumber(i)));
+        }
+        assertThat(reader.get(60, TimeUnit.SECONDS), is(0));
+        assertThat(store.getRevisions().size(), is(200));
+    }
+
+    @Test
+    public void shouldIncludeRevisionsAddedElsewhereInHeadOntology() {
+        var settings = new RevisionManagerSettings();
+        settings.setMaintainHeadOntology(true);
+        store.load();
+        var revisionManager = new RevisionManagerImpl(store, settings);
+        revisionManager.addRevision(UserId.valueOf("The User"), List.of(AddAxiomChange.of(ontologyId, axiom)), "Add axiom");
+        assertThat(revisionManager.getOntologyManagerForRevision(RevisionNumber.getHeadRevisionNumber())
+                                  .getOntologies()
+                                  .size(), is(1));
+        store.addRevision(new Revision(UserId.valueOf("The User"),
+                                       RevisionNumber.getRevisionNumber(2),
+                                       ImmutableList.of(RemoveAxiomChange.of(ontologyId, axiom)),
+                                       System.currentTimeMillis(),
+                                       "Remove axiom"));
+        var axioms = revisionManager.getOntologyManagerForRevision(RevisionNumber.getHeadRevisionNumber())
+                                    .getOntologies()
+                                    .stream()
+                                    .flatMap(ontology -> ontology.getAxioms().stream())
+                                    .toList();
+        assertThat(axioms, is(empty()));
+    }
+
     private Revision createRevision() {
         var revisionNumber = RevisionNumber.getRevisionNumber(1);
         return createRevision(revisionNumber);
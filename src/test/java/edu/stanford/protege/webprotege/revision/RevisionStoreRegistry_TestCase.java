@@ -0,0 +1,137 @@
+package edu.stanford.protege.webprotege.revision;
+
+import com.google.common.base.Ticker;
+import edu.stanford.protege.webprotege.common.ProjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+public class RevisionStoreRegistry_TestCase {
+
+    private RevisionStoreFactory revisionStoreFactory;
+
+    private RevisionManagerSettings settings;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private ProjectId projectId;
+
+    private ProjectId otherProjectId;
+
+    @BeforeEach
+    public void setUp() {
+        revisionStoreFactory = mock(RevisionStoreFactory.class);
+        when(revisionStoreFactory.createRevisionStore(any())).thenAnswer(invocation -> {
+            var revisionStore = mock(RevisionStore.class);
+            when(revisionStore.getEstimatedHeapSize()).thenReturn(100L);
+            return revisionStore;
+        });
+        settings = new RevisionManagerSettings();
+        settings.setStoreIdleTimeout(Duration.ofMinutes(1));
+        projectId = ProjectId.generate();
+        otherProjectId = ProjectId.generate();
+    }
+
+    @Test
+    public void shouldOpenProjectOnce() {
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var revisionStore = getRevisionStore(registry, projectId);
+        assertThat(getRevisionStore(registry, projectId), is(sameInstance(revisionStore)));
+        verify(revisionStoreFactory, times(1)).createRevisionStore(projectId);
+    }
+
+    @Test
+    public void shouldEvictAndDisposeIdleStore() {
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var revisionStore = getRevisionStore(registry, projectId);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        getRevisionStore(registry, otherProjectId);
+        registry.evictIdleStores();
+        assertThat(registry.isOpen(projectId), is(false));
+        assertThat(registry.isOpen(otherProjectId), is(true));
+        verify(revisionStore).dispose();
+        assertThat(getRevisionStore(registry, projectId), is(not(sameInstance(revisionStore))));
+    }
+
+    @Test
+    public void shouldNotEvictLeasedStore() {
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var revisionStore = registry.withRevisionStore(projectId, leasedStore -> {
+            nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+            registry.evictIdleStores();
+            assertThat(registry.isOpen(projectId), is(true));
+            return leasedStore;
+        });
+        verify(revisionStore, never()).dispose();
+        registry.evictIdleStores();
+        verify(revisionStore).dispose();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedStoreWhenOverBudget() {
+        settings.setStoreHeapBudget(150);
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var revisionStore = getRevisionStore(registry, projectId);
+        nanos.incrementAndGet();
+        getRevisionStore(registry, otherProjectId);
+        assertThat(registry.isOpen(projectId), is(false));
+        assertThat(registry.isOpen(otherProjectId), is(true));
+        verify(revisionStore).dispose();
+    }
+
+    @Test
+    public void shouldNotEvictProjectWhileLeaseIsOpen() {
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var lease = registry.lease(projectId);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        registry.evictIdleStores();
+        verify(lease.getRevisionStore(), never()).dispose();
+        lease.close();
+        registry.evictIdleStores();
+        verify(lease.getRevisionStore()).dispose();
+    }
+
+    @Test
+    public void shouldReopenEvictedProjectForRevisionManager() {
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var revisionManager = registry.getRevisionManager(projectId);
+        revisionManager.getCurrentRevision();
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        registry.evictIdleStores();
+        assertThat(registry.isOpen(projectId), is(false));
+        revisionManager.getCurrentRevision();
+        assertThat(registry.isOpen(projectId), is(true));
+        verify(revisionStoreFactory, times(2)).createRevisionStore(projectId);
+    }
+
+    @Test
+    public void shouldDisposeLeasedStoresWhenDisposed() {
+        var registry = new RevisionStoreRegistry(revisionStoreFactory, settings, RevisionMetrics.noop(), ticker, false);
+        var lease = registry.lease(projectId);
+        registry.dispose();
+        verify(lease.getRevisionStore()).dispose();
+        lease.close();
+        assertThrows(IllegalStateException.class, () -> registry.lease(projectId));
+    }
+
+    private static RevisionStore getRevisionStore(RevisionStoreRegistry registry, ProjectId projectId) {
+        return registry.withRevisionStore(projectId, revisionStore -> revisionStore);
+    }
+}
@@ -0,0 +1,64 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.ProjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+public class RevisionStoreWarmUpService_TestCase {
+
+    @TempDir
+    Path tempDir;
+
+    private RevisionStoreRegistry registry;
+
+    private RevisionManagerSettings settings;
+
+    private File recentProjectsFile;
+
+    @BeforeEach
+    public void setUp() {
+        registry = mock(RevisionStoreRegistry.class);
+        settings = new RevisionManagerSettings();
+        settings.setWarmUpParallelism(1);
+        recentProjectsFile = tempDir.resolve("recent-projects").toFile();
+    }
+
+    @Test
+    public void shouldSkipProjectsOnceHeapBudgetIsReached() throws Exception {
+        settings.setStoreHeapBudget(100);
+        when(registry.getEstimatedHeapSize()).thenReturn(0L, 100L);
+        var service = new RevisionStoreWarmUpService(registry, settings, recentProjectsFile);
+        var first = ProjectId.generate();
+        var second = ProjectId.generate();
+        var progress = service.warmUp(List.of(first, second), p -> {}).get(10, TimeUnit.SECONDS);
+        assertThat(progress, is(new WarmUpProgress(2, 1, 0, 1)));
+        verify(registry).open(first);
+        verify(registry, never()).open(second);
+        service.dispose();
+    }
+
+    @Test
+    public void shouldWarmUpProjectsThatWereOpenWhenDisposed() throws Exception {
+        var first = ProjectId.generate();
+        var second = ProjectId.generate();
+        when(registry.getOpenProjectIds()).thenReturn(List.of(first, second));
+        new RevisionStoreWarmUpService(registry, settings, recentProjectsFile).dispose();
+        var service = new RevisionStoreWarmUpService(registry, settings, recentProjectsFile);
+        var progress = service.warmUpRecentProjects().get(10, TimeUnit.SECONDS);
+        assertThat(progress, is(new WarmUpProgress(2, 2, 0, 0)));
+        var inOrder = inOrder(registry);
+        inOrder.verify(registry).open(first);
+        inOrder.verify(registry).open(second);
+        service.dispose();
+    }
+}
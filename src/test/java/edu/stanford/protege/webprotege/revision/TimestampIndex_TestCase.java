@@ -0,0 +1,69 @@
+package edu.stanford.protege.webprotege.revision;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TimestampIndex_TestCase {
+
+    private TimestampIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TimestampIndex();
+        // The clock goes back between the second and third revisions
+        index.add(100);
+        index.add(200);
+        index.add(150);
+        index.add(300);
+    }
+
+    @Test
+    public void shouldFindNoRevisionBeforeFirstTimestamp() {
+        assertThat(index.getLastIndexAtOrBefore(99), is(-1));
+    }
+
+    @Test
+    public void shouldFindRevisionAtExactTimestamp() {
+        assertThat(index.getLastIndexAtOrBefore(100), is(0));
+        assertThat(index.getLastIndexAtOrBefore(300), is(3));
+    }
+
+    @Test
+    public void shouldNotTreatRevisionAsInEffectBeforeEarlierRevisions() {
+        // The third revision has an earlier timestamp than the second but depends on it
+        assertThat(index.getLastIndexAtOrBefore(175), is(0));
+        assertThat(index.getLastIndexAtOrBefore(200), is(2));
+    }
+
+    @Test
+    public void shouldFindRevisionsInPeriod() {
+        assertThat(index.getFirstIndexAtOrAfter(200), is(1));
+        assertThat(index.getFirstIndexAtOrAfter(300), is(3));
+        assertThat(index.getFirstIndexAtOrAfter(301), is(4));
+    }
+
+    @Test
+    public void shouldGrow() {
+        var largeIndex = new TimestampIndex();
+        for(int i = 0; i < 1000; i++) {
+            largeIndex.add(i * 10L);
+        }
+        assertThat(largeIndex.size(), is(1000));
+        assertThat(largeIndex.getLastIndexAtOrBefore(5005), is(500));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotWhenTimestampsAreAdded() {
+        var snapshot = index.snapshot();
+        for(int i = 0; i < 100; i++) {
+            index.add(400 + i);
+        }
+        assertThat(snapshot.size(), is(4));
+        assertThat(snapshot.getFirstIndexAtOrAfter(400), is(4));
+        assertThat(index.getFirstIndexAtOrAfter(400), is(4));
+        assertThat(index.size(), is(104));
+    }
+}
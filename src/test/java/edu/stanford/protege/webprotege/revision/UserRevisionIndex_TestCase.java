@@ -0,0 +1,66 @@
+package edu.stanford.protege.webprotege.revision;
+
+import edu.stanford.protege.webprotege.common.UserId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class UserRevisionIndex_TestCase {
+
+    private static final UserId ALICE = UserId.valueOf("Alice");
+
+    private static final UserId BOB = UserId.valueOf("Bob");
+
+    private UserRevisionIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new UserRevisionIndex();
+        index.add(createSummary(1, ALICE, 100, 3));
+        index.add(createSummary(2, BOB, 200, 1));
+        index.add(createSummary(3, ALICE, 300, 4));
+    }
+
+    @Test
+    public void shouldGetRevisionNumbersForUser() {
+        assertThat(index.getRevisionNumbers(ALICE), is(new long[]{1, 3}));
+        assertThat(index.getRevisionNumbers(BOB), is(new long[]{2}));
+    }
+
+    @Test
+    public void shouldGetContribution() {
+        assertThat(index.getContribution(ALICE), is(Optional.of(new UserContribution(ALICE, 2, 7, 100, 300))));
+    }
+
+    @Test
+    public void shouldNotGetContributionForUnknownUser() {
+        assertThat(index.getContribution(UserId.valueOf("Carol")), is(Optional.empty()));
+        assertThat(index.getRevisionNumbers(UserId.valueOf("Carol")), is(new long[0]));
+    }
+
+    @Test
+    public void shouldGetContributionsInOrderOfFirstRevision() {
+        assertThat(index.getContributions(), is(List.of(new UserContribution(ALICE, 2, 7, 100, 300),
+                                                        new UserContribution(BOB, 1, 1, 200, 200))));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotWhenRevisionsAreAdded() {
+        var snapshot = index.snapshot();
+        index.add(createSummary(4, ALICE, 400, 2));
+        index.add(createSummary(5, UserId.valueOf("Carol"), 500, 1));
+        assertThat(snapshot.getRevisionNumbers(ALICE), is(new long[]{1, 3}));
+        assertThat(snapshot.getContribution(ALICE), is(Optional.of(new UserContribution(ALICE, 2, 7, 100, 300))));
+        assertThat(snapshot.getContributions().size(), is(2));
+        assertThat(index.getRevisionNumbers(ALICE), is(new long[]{1, 3, 4}));
+    }
+
+    private static RevisionSummary createSummary(long revisionNumber, UserId userId, long timestamp, int changeCount) {
+        return new RevisionSummary(RevisionNumber.getRevisionNumber(revisionNumber), userId, timestamp, changeCount, "Revision " + revisionNumber);
+    }
+}